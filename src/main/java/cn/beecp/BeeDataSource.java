@@ -114,6 +114,25 @@ public class BeeDataSource extends BeeDataSourceConfig implements DataSource {
     public Connection getConnection() throws SQLException {
         if (inited) return pool.getConnection();
 
+        createPoolByLock();
+        return pool.getConnection();
+    }
+
+    /**
+     * borrow a connection from pool with quota of a borrower group
+     *
+     * @param groupName borrower group name,which configured in 'borrowerGroups'
+     * @return If exists idle connection in pool,then return one;if not, waiting
+     * until other borrower release
+     * @throws SQLException if pool is closed or waiting timeout or group not found,then throw exception
+     */
+    public Connection getConnection(String groupName) throws SQLException {
+        if (!inited) createPoolByLock();
+        return pool.getConnection(groupName);
+    }
+
+    //create pool on first borrowing
+    private void createPoolByLock() throws SQLException {
         if (writeLock.tryLock()) {
             try {
                 if (!inited) {
@@ -135,8 +154,6 @@ public class BeeDataSource extends BeeDataSourceConfig implements DataSource {
                 readLock.unlock();
             }
         }
-
-        return pool.getConnection();
     }
 
     /**
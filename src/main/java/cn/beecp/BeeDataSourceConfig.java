@@ -30,6 +30,7 @@ import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
 
@@ -98,6 +99,36 @@ public class BeeDataSourceConfig implements BeeDataSourceConfigJMXBean {
      * 'PreparedStatement' cache size
      */
     private int preparedStatementCacheSize;
+    /**
+     * 'PreparedStatement' cache policy,reference:{@link StatementCachePolicy}
+     */
+    private String preparedStatementCachePolicy = StatementCachePolicy.POLICY_LRU;
+    private int preparedStatementCachePolicyCode;
+    /**
+     * pool-wide byte budget of cached statements(estimated),0 means no budget
+     */
+    private long preparedStatementCacheMaxBytes;
+    /**
+     * heap usage percent after GC,over which statement cache budget is halved,0 means not monitor heap
+     */
+    private int preparedStatementCacheHeapThreshold = 85;
+    /**
+     * count of hottest statements pre-prepared on new idle connection(created in pool initialization),
+     * connections created for waiting borrowers are not warmed up,0 means no warm-up
+     */
+    private int preparedStatementWarmUpSize;
+    /**
+     * time budget of statement warm-up on one connection(milliseconds)
+     */
+    private long preparedStatementWarmUpTimeout = 1000L;
+    /**
+     * local file to keep hottest statements across restarts,null means not persisted
+     */
+    private String preparedStatementWarmUpFile;
+    /**
+     * interval time to write hottest statements to file(milliseconds)
+     */
+    private long preparedStatementWarmUpFileInterval = 300000L;
     /**
      * connection.setAutoCommit(boolean);
      */
@@ -131,6 +162,17 @@ public class BeeDataSourceConfig implements BeeDataSourceConfigJMXBean {
      * max hold time in Unused(milliseconds),pool will release it by forced
      */
     private long holdTimeout = MINUTES.toMillis(5);
+    /**
+     * salvage hold timeout connection instead of closing it:running statement is cancelled and its return is
+     * waited(max time is connectionTestTimeout),then connection is rolled back,reset and validated,returned
+     * to pool if active,otherwise closed
+     */
+    private boolean holdTimeoutRecovery;
+    /**
+     * seconds,default query timeout of statements,statement is cancelled by pool timer when its execution
+     * not finished in time,zero means no timeout;the value set by statement 'setQueryTimeout' takes precedence
+     */
+    private int defaultQueryTimeout;
     /**
      * a test SQL to check connection active state
      */
@@ -159,10 +201,71 @@ public class BeeDataSourceConfig implements BeeDataSourceConfigJMXBean {
      * milliseconds,idle Check Time initialize delay
      */
     private long idleCheckTimeInitDelay = SECONDS.toMillis(1);
+    /**
+     * milliseconds,resolution of pool clock for access time of connections,default is zero(system
+     * time read on every access),rounded up to tick of shared scheduler(10 milliseconds)
+     */
+    private long poolClockResolution;
     /**
      * BeeCP implementation class name
      */
     private String poolImplementClassName = DefaultImplementClassName;
+    /**
+     * source of JDBC proxy classes,reference:{@link ProxyClassMode}
+     */
+    private String proxyClassMode = ProxyClassMode.MODE_AUTO;
+    private int proxyClassModeCode;
+    /**
+     * reuse closed statement and result set proxies within a borrow,proxy connection is created on each borrow,
+     * so objects kept from an earlier borrow stay closed;in same borrow,a closed statement(or result set) kept
+     * by application may be same to the one issued later by same connection
+     */
+    private boolean reuseProxyObject;
+    /**
+     * keep known session state(autoCommit,isolation,readOnly,catalog,schema) of pooled connection in proxy,
+     * unchanged setting and known reading are not sent to driver,isolation,readOnly,catalog and schema are
+     * known after reading from driver(not from setting);state changed by SQL(for example:'use db',
+     * 'set autocommit=0') is not seen by proxy,so it is disabled by default
+     */
+    private boolean cacheSessionState;
+    /**
+     * changed session state is not reset on return,but reset when connection claimed by other thread;
+     * for same thread,the reset of a state is skipped if borrower sets it again,otherwise applied before use
+     */
+    private boolean deferredSessionReset;
+    /**
+     * call JDBC4.3 request boundary(beginRequest/endRequest) on borrow and return,if driver implements it(JDK9+);
+     * pool skips own reset on return only for drivers known to roll back,restore session state and clear warnings
+     * in endRequest(SQL Server),statements of them are closed by driver,so statement cache is cleared on return
+     */
+    private boolean enableRequestBoundary;
+    /**
+     * record execution latency of each SQL in statement proxies(bounded SQL count),p50/p99/max and
+     * execution count of slowest SQL are exported through JMX
+     */
+    private boolean recordSqlLatency;
+    /**
+     * record latency histograms of borrow wait(semaphore and transfer phase),connection hold time,
+     * connection creation time and validation time,p50/p99/max are exported through JMX
+     */
+    private boolean recordPoolLatency;
+    /**
+     * emit Java Flight Recorder events(category 'BeeCP') of borrow,return,connection create/close,
+     * validation,hold timeout and statement cache eviction,which are recorded when enabled in
+     * recording and duration over their threshold;ignored if JFR not present in JDK or jar built without
+     * profile 'jfr'(active on JDK11+)
+     */
+    private boolean enableJfrEvent;
+    /**
+     * port of OpenMetrics(Prometheus) endpoint '/metrics' on JDK http server,which is shared by pools
+     * configured with same port and exposes all pools in JVM;0 means not started
+     */
+    private int metricsPort;
+    /**
+     * bind address of metrics endpoint,null means loopback address,so metrics is not exposed to other
+     * hosts;'0.0.0.0' to listen on all interfaces
+     */
+    private String metricsHost;
     /**
      * Physical JDBC Connection factory class name
      */
@@ -179,6 +282,15 @@ public class BeeDataSourceConfig implements BeeDataSourceConfigJMXBean {
      * enableJMX
      */
     private boolean enableJMX;
+    /**
+     * borrower groups with connection quota,format: name:minSize-maxSize,separated by comma
+     * (for example: web:4-10,batch:0-3),borrowers without group name go into group 'default'
+     */
+    private String borrowerGroups;
+    /**
+     * borrower group quotas parsed from 'borrowerGroups',value:[minSize,maxSize]
+     */
+    private Map<String, int[]> borrowerGroupMap;
 
     public BeeDataSourceConfig() {
         this(null, null, null, null);
@@ -314,6 +426,73 @@ public class BeeDataSourceConfig implements BeeDataSourceConfigJMXBean {
             this.preparedStatementCacheSize = preparedStatementCacheSize;
     }
 
+    public String getPreparedStatementCachePolicy() {
+        return preparedStatementCachePolicy;
+    }
+
+    public void setPreparedStatementCachePolicy(String preparedStatementCachePolicy) {
+        if (!this.checked && !isNullText(preparedStatementCachePolicy))
+            this.preparedStatementCachePolicy = preparedStatementCachePolicy;
+    }
+
+    public int getPreparedStatementCachePolicyCode() {
+        return preparedStatementCachePolicyCode;
+    }
+
+    public long getPreparedStatementCacheMaxBytes() {
+        return preparedStatementCacheMaxBytes;
+    }
+
+    public void setPreparedStatementCacheMaxBytes(long preparedStatementCacheMaxBytes) {
+        if (!this.checked && preparedStatementCacheMaxBytes >= 0)
+            this.preparedStatementCacheMaxBytes = preparedStatementCacheMaxBytes;
+    }
+
+    public int getPreparedStatementCacheHeapThreshold() {
+        return preparedStatementCacheHeapThreshold;
+    }
+
+    public void setPreparedStatementCacheHeapThreshold(int preparedStatementCacheHeapThreshold) {
+        if (!this.checked && preparedStatementCacheHeapThreshold >= 0)
+            this.preparedStatementCacheHeapThreshold = preparedStatementCacheHeapThreshold;
+    }
+
+    public int getPreparedStatementWarmUpSize() {
+        return preparedStatementWarmUpSize;
+    }
+
+    public void setPreparedStatementWarmUpSize(int preparedStatementWarmUpSize) {
+        if (!this.checked && preparedStatementWarmUpSize >= 0)
+            this.preparedStatementWarmUpSize = preparedStatementWarmUpSize;
+    }
+
+    public long getPreparedStatementWarmUpTimeout() {
+        return preparedStatementWarmUpTimeout;
+    }
+
+    public void setPreparedStatementWarmUpTimeout(long preparedStatementWarmUpTimeout) {
+        if (!this.checked && preparedStatementWarmUpTimeout > 0)
+            this.preparedStatementWarmUpTimeout = preparedStatementWarmUpTimeout;
+    }
+
+    public String getPreparedStatementWarmUpFile() {
+        return preparedStatementWarmUpFile;
+    }
+
+    public void setPreparedStatementWarmUpFile(String preparedStatementWarmUpFile) {
+        if (!this.checked)
+            this.preparedStatementWarmUpFile = preparedStatementWarmUpFile;
+    }
+
+    public long getPreparedStatementWarmUpFileInterval() {
+        return preparedStatementWarmUpFileInterval;
+    }
+
+    public void setPreparedStatementWarmUpFileInterval(long preparedStatementWarmUpFileInterval) {
+        if (!this.checked && preparedStatementWarmUpFileInterval > 0)
+            this.preparedStatementWarmUpFileInterval = preparedStatementWarmUpFileInterval;
+    }
+
     public boolean isDefaultAutoCommit() {
         return defaultAutoCommit;
     }
@@ -380,6 +559,24 @@ public class BeeDataSourceConfig implements BeeDataSourceConfigJMXBean {
             this.idleTimeout = idleTimeout;
     }
 
+    public boolean isHoldTimeoutRecovery() {
+        return holdTimeoutRecovery;
+    }
+
+    public void setHoldTimeoutRecovery(boolean holdTimeoutRecovery) {
+        if (!this.checked)
+            this.holdTimeoutRecovery = holdTimeoutRecovery;
+    }
+
+    public int getDefaultQueryTimeout() {
+        return defaultQueryTimeout;
+    }
+
+    public void setDefaultQueryTimeout(int defaultQueryTimeout) {
+        if (!this.checked && defaultQueryTimeout >= 0)
+            this.defaultQueryTimeout = defaultQueryTimeout;
+    }
+
     public long getHoldTimeout() {
         return holdTimeout;
     }
@@ -452,6 +649,15 @@ public class BeeDataSourceConfig implements BeeDataSourceConfigJMXBean {
             this.idleCheckTimeInitDelay = idleCheckTimeInitDelay;
     }
 
+    public long getPoolClockResolution() {
+        return poolClockResolution;
+    }
+
+    public void setPoolClockResolution(long poolClockResolution) {
+        if (!this.checked && poolClockResolution >= 0L)
+            this.poolClockResolution = poolClockResolution;
+    }
+
     public String getPoolImplementClassName() {
         return poolImplementClassName;
     }
@@ -462,6 +668,100 @@ public class BeeDataSourceConfig implements BeeDataSourceConfigJMXBean {
         }
     }
 
+    public String getProxyClassMode() {
+        return proxyClassMode;
+    }
+
+    public void setProxyClassMode(String proxyClassMode) {
+        if (!this.checked && !isNullText(proxyClassMode))
+            this.proxyClassMode = proxyClassMode;
+    }
+
+    public int getProxyClassModeCode() {
+        return proxyClassModeCode;
+    }
+
+    public boolean isReuseProxyObject() {
+        return reuseProxyObject;
+    }
+
+    public void setReuseProxyObject(boolean reuseProxyObject) {
+        if (!this.checked)
+            this.reuseProxyObject = reuseProxyObject;
+    }
+
+    public boolean isCacheSessionState() {
+        return cacheSessionState;
+    }
+
+    public void setCacheSessionState(boolean cacheSessionState) {
+        if (!this.checked)
+            this.cacheSessionState = cacheSessionState;
+    }
+
+    public boolean isDeferredSessionReset() {
+        return deferredSessionReset;
+    }
+
+    public void setDeferredSessionReset(boolean deferredSessionReset) {
+        if (!this.checked)
+            this.deferredSessionReset = deferredSessionReset;
+    }
+
+    public boolean isEnableRequestBoundary() {
+        return enableRequestBoundary;
+    }
+
+    public void setEnableRequestBoundary(boolean enableRequestBoundary) {
+        if (!this.checked)
+            this.enableRequestBoundary = enableRequestBoundary;
+    }
+
+    public boolean isRecordSqlLatency() {
+        return recordSqlLatency;
+    }
+
+    public void setRecordSqlLatency(boolean recordSqlLatency) {
+        if (!this.checked)
+            this.recordSqlLatency = recordSqlLatency;
+    }
+
+    public boolean isRecordPoolLatency() {
+        return recordPoolLatency;
+    }
+
+    public void setRecordPoolLatency(boolean recordPoolLatency) {
+        if (!this.checked)
+            this.recordPoolLatency = recordPoolLatency;
+    }
+
+    public boolean isEnableJfrEvent() {
+        return enableJfrEvent;
+    }
+
+    public void setEnableJfrEvent(boolean enableJfrEvent) {
+        if (!this.checked)
+            this.enableJfrEvent = enableJfrEvent;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        if (!this.checked && metricsPort >= 0 && metricsPort <= 65535)
+            this.metricsPort = metricsPort;
+    }
+
+    public String getMetricsHost() {
+        return metricsHost;
+    }
+
+    public void setMetricsHost(String metricsHost) {
+        if (!this.checked)
+            this.metricsHost = isNullText(metricsHost) ? null : metricsHost.trim();
+    }
+
     public void removeConnectProperty(String key) {
         if (!this.checked) {
             connectProperties.remove(key);
@@ -483,6 +783,19 @@ public class BeeDataSourceConfig implements BeeDataSourceConfigJMXBean {
             this.enableJMX = enableJMX;
     }
 
+    public String getBorrowerGroups() {
+        return borrowerGroups;
+    }
+
+    public void setBorrowerGroups(String borrowerGroups) {
+        if (!this.checked)
+            this.borrowerGroups = borrowerGroups;
+    }
+
+    public Map<String, int[]> getBorrowerGroupMap() {
+        return borrowerGroupMap;
+    }
+
     void copyTo(BeeDataSourceConfig config) throws SQLException {
         int modifiers;
         Field[] fields = BeeDataSourceConfig.class.getDeclaredFields();
@@ -592,8 +905,22 @@ public class BeeDataSourceConfig implements BeeDataSourceConfigJMXBean {
             throw new BeeDataSourceConfigException("Connection 'holdTimeout' must be greater than zero");
         if (this.maxWait <= 0)
             throw new BeeDataSourceConfigException("Borrower 'maxWait' must be greater than zero");
+        if (this.poolClockResolution >= this.connectionTestInterval)
+            throw new BeeDataSourceConfigException("Pool 'poolClockResolution' must be lesser than 'connectionTestInterval'");
         if (this.preparedStatementCacheSize < 0)
             throw new BeeDataSourceConfigException("Connection 'preparedStatementCacheSize' must not be lesser than zero");
+        preparedStatementCachePolicyCode = StatementCachePolicy.nameToCode(preparedStatementCachePolicy);
+        if (preparedStatementCachePolicyCode == -999)
+            throw new BeeDataSourceConfigException("Valid statement cache policy list:" + StatementCachePolicy.POLICY_LIST);
+        proxyClassModeCode = ProxyClassMode.nameToCode(proxyClassMode);
+        if (proxyClassModeCode == -999)
+            throw new BeeDataSourceConfigException("Valid proxy class mode list:" + ProxyClassMode.MODE_LIST);
+        if (this.preparedStatementCacheHeapThreshold >= 100)
+            throw new BeeDataSourceConfigException("Connection 'preparedStatementCacheHeapThreshold' must be lesser than 100");
+        if (this.preparedStatementWarmUpSize > this.preparedStatementCacheSize)
+            throw new BeeDataSourceConfigException("Connection 'preparedStatementWarmUpSize' must not be greater than 'preparedStatementCacheSize'");
+        if (this.preparedStatementWarmUpTimeout <= 0)
+            throw new BeeDataSourceConfigException("Connection 'preparedStatementWarmUpTimeout' must be greater than zero");
 
         defaultTransactionIsolationCode = TransactionIsolationLevel.nameToCode(defaultTransactionIsolation);
         if (defaultTransactionIsolationCode == -999) {
@@ -606,6 +933,48 @@ public class BeeDataSourceConfig implements BeeDataSourceConfigJMXBean {
             //fix issue:#1 The check of validationQuerySQL has logic problem. Chris-2019-05-01 end
             throw new BeeDataSourceConfigException("Connection 'connectionTestSQL' must start with 'select '");
         //}
+
+        borrowerGroupMap = parseBorrowerGroups(borrowerGroups);
+    }
+
+    //parse borrower groups,format: name:minSize-maxSize,name:minSize-maxSize
+    private Map<String, int[]> parseBorrowerGroups(String groups) throws BeeDataSourceConfigException {
+        if (isNullText(groups)) return null;
+
+        int totalMinSize = 0;
+        Map<String, int[]> groupMap = new LinkedHashMap<String, int[]>();
+        for (String group : groups.split(",")) {
+            if (isNullText(group)) continue;
+            int nameEnd = group.indexOf(':');
+            int sizeSplit = group.indexOf('-', nameEnd + 1);
+            if (nameEnd <= 0 || sizeSplit < 0)
+                throw new BeeDataSourceConfigException("Borrower group[" + group.trim() + "]must be in format 'name:minSize-maxSize'");
+
+            String name = group.substring(0, nameEnd).trim();
+            int minSize, maxSize;
+            try {
+                minSize = Integer.parseInt(group.substring(nameEnd + 1, sizeSplit).trim());
+                maxSize = Integer.parseInt(group.substring(sizeSplit + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new BeeDataSourceConfigException("Borrower group[" + name + "]size must be a number");
+            }
+
+            if (isNullText(name))
+                throw new BeeDataSourceConfigException("Borrower group name can't be null");
+            if (groupMap.containsKey(name))
+                throw new BeeDataSourceConfigException("Borrower group[" + name + "]has been defined");
+            if (minSize < 0 || maxSize <= 0 || minSize > maxSize)
+                throw new BeeDataSourceConfigException("Borrower group[" + name + "]must be 0<=minSize<=maxSize and maxSize>0");
+            if (maxSize > maxActive)
+                throw new BeeDataSourceConfigException("Borrower group[" + name + "]maxSize must not be greater than 'maxActive'");
+
+            totalMinSize += minSize;
+            groupMap.put(name, new int[]{minSize, maxSize});
+        }
+
+        if (totalMinSize > maxActive)
+            throw new BeeDataSourceConfigException("Total minSize of borrower groups must not be greater than 'maxActive'");
+        return groupMap.isEmpty() ? null : groupMap;
     }
 
     private void setDataSourceProperty(String propName, Object propValue, Object bean) throws Exception {
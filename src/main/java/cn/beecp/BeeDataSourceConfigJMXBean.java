@@ -44,6 +44,20 @@ public interface BeeDataSourceConfigJMXBean {
 
     int getPreparedStatementCacheSize();
 
+    String getPreparedStatementCachePolicy();
+
+    long getPreparedStatementCacheMaxBytes();
+
+    int getPreparedStatementCacheHeapThreshold();
+
+    int getPreparedStatementWarmUpSize();
+
+    long getPreparedStatementWarmUpTimeout();
+
+    String getPreparedStatementWarmUpFile();
+
+    long getPreparedStatementWarmUpFileInterval();
+
     boolean isDefaultAutoCommit();
 
     String getDefaultTransactionIsolation();
@@ -60,6 +74,10 @@ public interface BeeDataSourceConfigJMXBean {
 
     long getHoldTimeout();
 
+    boolean isHoldTimeoutRecovery();
+
+    int getDefaultQueryTimeout();
+
     String getConnectionTestSQL();
 
     int getConnectionTestTimeout();
@@ -74,7 +92,31 @@ public interface BeeDataSourceConfigJMXBean {
 
     long getIdleCheckTimeInitDelay();
 
+    long getPoolClockResolution();
+
     String getPoolImplementClassName();
 
+    String getProxyClassMode();
+
+    boolean isReuseProxyObject();
+
+    boolean isCacheSessionState();
+
+    boolean isDeferredSessionReset();
+
+    boolean isEnableRequestBoundary();
+
+    boolean isRecordSqlLatency();
+
+    boolean isRecordPoolLatency();
+
+    boolean isEnableJfrEvent();
+
+    int getMetricsPort();
+
+    String getMetricsHost();
+
     boolean isEnableJMX();
+
+    String getBorrowerGroups();
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp;
+
+/**
+ * Source of JDBC proxy classes used by pool
+ *
+ * @author Chris.Liao
+ */
+
+public final class ProxyClassMode {
+
+    /**
+     * use classes pre-generated after compile if exist and up to date,otherwise generate them at pool initialization(default)
+     */
+    public final static String MODE_AUTO = "auto";
+
+    /**
+     * use classes pre-generated by 'ProxyClassGenerator' after compile,pool fails to initialize if they missed or out of date
+     */
+    public final static String MODE_PREGENERATED = "pregenerated";
+
+    /**
+     * generate classes at pool initialization,no post-compile step needed
+     */
+    public final static String MODE_RUNTIME = "runtime";
+
+    /**
+     * generate classes for JDBC driver of first connection at pool initialization,forwarded calls
+     * are made on driver classes,so call sites keep monomorphic when several drivers loaded in JVM;
+     * classes are generated once per driver and shared by pools,interface proxy classes are used if
+     * driver classes are invisible to pool class loader
+     */
+    public final static String MODE_DRIVER = "driver";
+
+    public final static String MODE_LIST = new StringBuilder()
+            .append(MODE_AUTO).append(",")
+            .append(MODE_PREGENERATED).append(",")
+            .append(MODE_RUNTIME).append(",")
+            .append(MODE_DRIVER).toString();
+
+    public final static int CODE_AUTO = 0;
+
+    public final static int CODE_PREGENERATED = 1;
+
+    public final static int CODE_RUNTIME = 2;
+
+    public final static int CODE_DRIVER = 3;
+
+    public final static int nameToCode(String name) {
+        if (MODE_AUTO.equalsIgnoreCase(name))
+            return CODE_AUTO;
+        else if (MODE_PREGENERATED.equalsIgnoreCase(name))
+            return CODE_PREGENERATED;
+        else if (MODE_RUNTIME.equalsIgnoreCase(name))
+            return CODE_RUNTIME;
+        else if (MODE_DRIVER.equalsIgnoreCase(name))
+            return CODE_DRIVER;
+        else
+            return -999;
+    }
+}
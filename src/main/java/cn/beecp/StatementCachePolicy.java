@@ -0,0 +1,63 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp;
+
+/**
+ * PreparedStatement cache policy
+ *
+ * @author Chris.Liao
+ */
+
+public final class StatementCachePolicy {
+
+    /**
+     * least recently used,every hit relinks entry(default)
+     */
+    public final static String POLICY_LRU = "LRU";
+
+    /**
+     * CLOCK(second chance),hit only marks a reference bit
+     */
+    public final static String POLICY_CLOCK = "CLOCK";
+
+    /**
+     * CLOCK with TinyLFU admission,a new statement replaces victim only when
+     * it is accessed more frequently,so one-off statements can't flush hot set
+     */
+    public final static String POLICY_TINY_LFU = "TinyLFU";
+
+    public final static String POLICY_LIST = new StringBuilder()
+            .append(POLICY_LRU).append(",")
+            .append(POLICY_CLOCK).append(",")
+            .append(POLICY_TINY_LFU).toString();
+
+    public final static int CODE_LRU = 0;
+
+    public final static int CODE_CLOCK = 1;
+
+    public final static int CODE_TINY_LFU = 2;
+
+    public final static int nameToCode(String name) {
+        if (POLICY_LRU.equalsIgnoreCase(name))
+            return CODE_LRU;
+        else if (POLICY_CLOCK.equalsIgnoreCase(name))
+            return CODE_CLOCK;
+        else if (POLICY_TINY_LFU.equalsIgnoreCase(name))
+            return CODE_TINY_LFU;
+        else
+            return -999;
+    }
+}
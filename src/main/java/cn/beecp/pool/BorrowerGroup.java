@@ -0,0 +1,201 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cn.beecp.pool.PoolExceptionList.RequestInterruptException;
+import static cn.beecp.pool.PoolExceptionList.RequestTimeoutException;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Borrower group(bulkhead) with connection quota,a group is guaranteed 'minSize'
+ * connections and can hold at most 'maxSize' connections,idle capacity not
+ * reserved by other groups can be borrowed by any group.
+ *
+ * Quota is taken by CAS without lock:using size of group is per group counter,a
+ * connection over guaranteed size takes a slot of shared occupied size(sum of
+ * max(usingSize,minSize) of all groups) at first,which is bounded by pool max size.
+ * Waiters of a group park on its own semaphore,a release wakes one waiter of its
+ * group,or one waiter of other groups when a shared slot is freed.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class BorrowerGroup {
+    static final String DEFAULT_GROUP_NAME = "default";
+
+    final String name;
+    final int minSize;
+    final int maxSize;
+    private final int index;//position in groups
+    private final BorrowerGroup[] groups;//all groups of pool
+    private final AtomicInteger occupiedSize;//shared by groups of pool
+    private final int poolMaxSize;
+    private final AtomicInteger usingSize = new AtomicInteger();
+    private final AtomicInteger waitingSize = new AtomicInteger();
+    private final Semaphore wakeupPermits = new Semaphore(0);//permits to wake waiters,spare ones cause a recheck only
+    private final StripedCounter borrowCount = new StripedCounter();
+
+    //guarded by this
+    private long waitCount;
+    private long timeoutCount;
+    private long waitTimeNanos;
+    private long maxWaitTimeNanos;
+
+    BorrowerGroup(String name, int minSize, int maxSize, int index, BorrowerGroup[] groups, AtomicInteger occupiedSize, int poolMaxSize) {
+        this.name = name;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.index = index;
+        this.groups = groups;
+        this.occupiedSize = occupiedSize;
+        this.poolMaxSize = poolMaxSize;
+        occupiedSize.addAndGet(minSize);//guaranteed size is reserved
+    }
+
+    /**
+     * take one connection quota of group
+     *
+     * @param deadline nanoseconds,time point of borrower wait timeout
+     * @throws SQLException if waiting timeout or interrupted
+     */
+    void acquire(long deadline) throws SQLException {
+        if (tryAcquire()) {
+            borrowCount.increment();
+            return;
+        }
+
+        long beginTime = nanoTime();
+        boolean acquired = false, timeout = false;
+        waitingSize.incrementAndGet();//before recheck,so a release after it wakes this waiter
+        try {
+            while (!(acquired = tryAcquire())) {
+                long waitTime = deadline - nanoTime();
+                if (waitTime <= 0L) {
+                    timeout = true;
+                    throw RequestTimeoutException;
+                }
+                try {
+                    wakeupPermits.tryAcquire(waitTime, NANOSECONDS);
+                } catch (InterruptedException e) {
+                    throw RequestInterruptException;
+                }
+            }
+            borrowCount.increment();
+        } finally {
+            waitingSize.decrementAndGet();
+            recordWait(nanoTime() - beginTime, timeout);
+            if (!acquired) wakeUp(occupiedSize.get() < poolMaxSize);//pass on wakeup may be taken by this waiter
+        }
+    }
+
+    /**
+     * return connection quota to group
+     */
+    void release() {
+        boolean sharedFreed = usingSize.getAndDecrement() > minSize;
+        if (sharedFreed) occupiedSize.decrementAndGet();
+        wakeUp(sharedFreed);
+    }
+
+    private boolean tryAcquire() {
+        boolean reserved = false;//shared slot taken
+        while (true) {
+            int size = usingSize.get();
+            if (size >= maxSize) break;
+            if (size < minSize) {//in guaranteed size
+                if (usingSize.compareAndSet(size, size + 1)) {
+                    if (reserved) freeReserved();
+                    return true;
+                }
+            } else if (reserved || (reserved = reserveShared())) {
+                if (usingSize.compareAndSet(size, size + 1)) return true;
+            } else {
+                return false;
+            }
+        }
+
+        if (reserved) freeReserved();
+        return false;
+    }
+
+    //take a slot of idle capacity not reserved by other groups
+    private boolean reserveShared() {
+        int size;
+        while ((size = occupiedSize.get()) < poolMaxSize) {
+            if (occupiedSize.compareAndSet(size, size + 1)) return true;
+        }
+        return false;
+    }
+
+    //return a slot taken by a failed attempt,other groups may fail on it
+    private void freeReserved() {
+        occupiedSize.decrementAndGet();
+        wakeUpShared();
+    }
+
+    /**
+     * wake one waiter of this group,if none,wake one waiter of other groups when a shared slot freed
+     *
+     * @param sharedFreed true if a slot of shared idle capacity freed
+     */
+    private void wakeUp(boolean sharedFreed) {
+        if (waitingSize.get() > 0) {
+            wakeupPermits.release();
+        } else if (sharedFreed) {
+            wakeUpShared();
+        }
+    }
+
+    //wake one waiter of any group,start from next group,not always the first
+    private void wakeUpShared() {
+        for (int i = 1, size = groups.length; i <= size; i++) {
+            BorrowerGroup group = groups[(index + i) % size];
+            if (group.waitingSize.get() > 0) {
+                group.wakeupPermits.release();
+                return;
+            }
+        }
+    }
+
+    private synchronized void recordWait(long waitTime, boolean timeout) {
+        waitCount++;
+        if (timeout) timeoutCount++;
+        waitTimeNanos += waitTime;
+        if (waitTime > maxWaitTimeNanos) maxWaitTimeNanos = waitTime;
+    }
+
+    BorrowerGroupMonitorVo getMonitorVo() {
+        BorrowerGroupMonitorVo vo = new BorrowerGroupMonitorVo();
+        vo.setGroupName(name);
+        vo.setMinSize(minSize);
+        vo.setMaxSize(maxSize);
+        vo.setUsingSize(usingSize.get());
+        vo.setWaitingSize(waitingSize.get());
+        vo.setBorrowCount(borrowCount.sum());
+        synchronized (this) {
+            vo.setWaitCount(waitCount);
+            vo.setTimeoutCount(timeoutCount);
+            vo.setWaitTime(NANOSECONDS.toMillis(waitTimeNanos));
+            vo.setMaxWaitTime(NANOSECONDS.toMillis(maxWaitTimeNanos));
+        }
+        return vo;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+/**
+ * Borrower group Monitor Vo
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+
+public class BorrowerGroupMonitorVo {
+    private String groupName;
+    private int minSize;
+    private int maxSize;
+    private int usingSize;
+    private int waitingSize;
+    private long borrowCount;
+    private long waitCount;
+    private long timeoutCount;
+    private long waitTime;//milliseconds
+    private long maxWaitTime;//milliseconds
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    void setMinSize(int minSize) {
+        this.minSize = minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getUsingSize() {
+        return usingSize;
+    }
+
+    void setUsingSize(int usingSize) {
+        this.usingSize = usingSize;
+    }
+
+    public int getWaitingSize() {
+        return waitingSize;
+    }
+
+    void setWaitingSize(int waitingSize) {
+        this.waitingSize = waitingSize;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    void setBorrowCount(long borrowCount) {
+        this.borrowCount = borrowCount;
+    }
+
+    public long getWaitCount() {
+        return waitCount;
+    }
+
+    void setWaitCount(long waitCount) {
+        this.waitCount = waitCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    void setTimeoutCount(long timeoutCount) {
+        this.timeoutCount = timeoutCount;
+    }
+
+    public long getWaitTime() {
+        return waitTime;
+    }
+
+    void setWaitTime(long waitTime) {
+        this.waitTime = waitTime;
+    }
+
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    void setMaxWaitTime(long maxWaitTime) {
+        this.maxWaitTime = maxWaitTime;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Statement cache key,one instance per connection is reused as lookup probe,
+ * a copy of it is only created when a new statement is put into cache
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class CacheKey {
+    //argument list of prepare method
+    static final int ARGS_SQL = 0;
+    static final int ARGS_AUTO_KEYS = 1;
+    static final int ARGS_COLUMN_INDEXES = 2;
+    static final int ARGS_COLUMN_NAMES = 3;
+    static final int ARGS_RESULT_SET = 4;
+    static final int ARGS_RESULT_SET_HOLD = 5;
+    //limits of values read from file
+    private static final int MAX_STRING_BYTES = 1024 * 1024;
+    private static final int MAX_COLUMN_SIZE = 1024;
+
+    private int type;//first digit:1 is PreparedStatement,2 is CallableStatement
+    private int args;
+    private String sql;
+    private int p1;
+    private int p2;
+    private int p3;
+    private int[] columnIndexes;
+    private String[] columnNames;
+    private int h;
+
+    /**
+     * type of a prepare method of connection,first digit:1 is PreparedStatement,2 is CallableStatement,
+     * second digit is argument list kind plus one
+     *
+     * @param callable   true if method creates CallableStatement
+     * @param descriptor JVM descriptor of method
+     * @return cache type passed to statement lookup
+     */
+    static int cacheType(boolean callable, String descriptor) {
+        String params = descriptor.substring(0, descriptor.indexOf(')') + 1);
+        int args;
+        if ("(Ljava/lang/String;)".equals(params))
+            args = ARGS_SQL;
+        else if ("(Ljava/lang/String;I)".equals(params))
+            args = ARGS_AUTO_KEYS;
+        else if ("(Ljava/lang/String;[I)".equals(params))
+            args = ARGS_COLUMN_INDEXES;
+        else if ("(Ljava/lang/String;[Ljava/lang/String;)".equals(params))
+            args = ARGS_COLUMN_NAMES;
+        else if ("(Ljava/lang/String;II)".equals(params))
+            args = ARGS_RESULT_SET;
+        else if ("(Ljava/lang/String;III)".equals(params))
+            args = ARGS_RESULT_SET_HOLD;
+        else
+            throw new IllegalArgumentException("Unknown prepare method:" + descriptor);
+        return (callable ? 20 : 10) + args + 1;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    CacheKey set(int type, int args, String sql, int p1, int p2, int p3, int[] columnIndexes, String[] columnNames) {
+        this.type = type;
+        this.args = args;
+        this.sql = sql;
+        this.p1 = p1;
+        this.p2 = p2;
+        this.p3 = p3;
+        this.columnIndexes = columnIndexes;
+        this.columnNames = columnNames;
+
+        int h = 31 * type + sql.hashCode();
+        h = 31 * h + p1;
+        h = 31 * h + p2;
+        h = 31 * h + p3;
+        h = 31 * h + Arrays.hashCode(columnIndexes);
+        this.h = 31 * h + Arrays.hashCode(columnNames);
+        return this;
+    }
+
+    CacheKey copy() {
+        CacheKey key = new CacheKey();
+        key.type = type;
+        key.args = args;
+        key.sql = sql;
+        key.p1 = p1;
+        key.p2 = p2;
+        key.p3 = p3;
+        key.columnIndexes = columnIndexes == null ? null : columnIndexes.clone();
+        key.columnNames = columnNames == null ? null : columnNames.clone();
+        key.h = h;
+        return key;
+    }
+
+    /**
+     * prepare statement on raw connection with arguments of key
+     */
+    PreparedStatement prepare(Connection con) throws SQLException {
+        if (type / 10 == 2) {
+            switch (args) {
+                case ARGS_RESULT_SET:
+                    return con.prepareCall(sql, p1, p2);
+                case ARGS_RESULT_SET_HOLD:
+                    return con.prepareCall(sql, p1, p2, p3);
+                default:
+                    return con.prepareCall(sql);
+            }
+        } else {
+            switch (args) {
+                case ARGS_AUTO_KEYS:
+                    return con.prepareStatement(sql, p1);
+                case ARGS_COLUMN_INDEXES:
+                    return con.prepareStatement(sql, columnIndexes);
+                case ARGS_COLUMN_NAMES:
+                    return con.prepareStatement(sql, columnNames);
+                case ARGS_RESULT_SET:
+                    return con.prepareStatement(sql, p1, p2);
+                case ARGS_RESULT_SET_HOLD:
+                    return con.prepareStatement(sql, p1, p2, p3);
+                default:
+                    return con.prepareStatement(sql);
+            }
+        }
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(type);
+        out.writeByte(args);
+        writeString(out, sql);
+        out.writeInt(p1);
+        out.writeInt(p2);
+        out.writeInt(p3);
+        if (columnIndexes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(columnIndexes.length);
+            for (int columnIndex : columnIndexes)
+                out.writeInt(columnIndex);
+        }
+        if (columnNames == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(columnNames.length);
+            for (String columnName : columnNames)
+                writeString(out, columnName);
+        }
+    }
+
+    /**
+     * read key written by {@link #writeTo},values are checked,so a corrupt file can't cause huge allocation
+     *
+     * @throws IOException if read failed or a value out of range
+     */
+    static CacheKey readFrom(DataInputStream in) throws IOException {
+        int type = in.readInt();
+        int args = in.readByte();
+        if ((type / 10 != 1 && type / 10 != 2) || args < ARGS_SQL || args > ARGS_RESULT_SET_HOLD)
+            throw new IOException("Invalid statement type:" + type + ",args:" + args);
+        String sql = readString(in);
+        int p1 = in.readInt();
+        int p2 = in.readInt();
+        int p3 = in.readInt();
+        int[] columnIndexes = null;
+        int length = readLength(in);
+        if (length >= 0) {
+            columnIndexes = new int[length];
+            for (int i = 0; i < length; i++)
+                columnIndexes[i] = in.readInt();
+        }
+        String[] columnNames = null;
+        length = readLength(in);
+        if (length >= 0) {
+            columnNames = new String[length];
+            for (int i = 0; i < length; i++)
+                columnNames[i] = readString(in);
+        }
+        return new CacheKey().set(type, args, sql, p1, p2, p3, columnIndexes, columnNames);
+    }
+
+    //length prefixed UTF-8(SQL may be longer than 'writeUTF' limit)
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    //length of column array,-1 means null
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < -1 || length > MAX_COLUMN_SIZE)
+            throw new IOException("Invalid column array length:" + length);
+        return length;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_BYTES)
+            throw new IOException("Invalid string length:" + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    public int hashCode() {
+        return h;
+    }
+
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof CacheKey)) return false;
+        CacheKey other = (CacheKey) obj;
+        return h == other.h
+                && type == other.type
+                && p1 == other.p1
+                && p2 == other.p2
+                && p3 == other.p3
+                && sql.equals(other.sql)
+                && Arrays.equals(columnIndexes, other.columnIndexes)
+                && Arrays.equals(columnNames, other.columnNames);
+    }
+}
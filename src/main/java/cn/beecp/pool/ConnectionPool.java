@@ -44,6 +44,15 @@ public interface ConnectionPool {
      */
     Connection getConnection() throws SQLException;
 
+    /**
+     * borrow a connection from pool with quota of a borrower group
+     *
+     * @param groupName borrower group name
+     * @return If exists idle connection in pool,then return one;if not, waiting until other borrower release
+     * @throws SQLException if pool is closed or waiting timeout or group not found,then throw exception
+     */
+    Connection getConnection(String groupName) throws SQLException;
+
     /**
      * return connection to pool
      *
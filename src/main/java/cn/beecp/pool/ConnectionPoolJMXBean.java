@@ -50,5 +50,56 @@ public interface ConnectionPoolJMXBean {
 
     int getTransferWaitingSize();
 
+    //return statement cache hit count of all connections
+    long getStatementCacheHitCount();
+
+    //return statement cache miss(prepare) count of all connections
+    long getStatementCacheMissCount();
+
+    //return statement cache eviction count of all connections
+    long getStatementCacheEvictCount();
+
+    //return most frequently prepared SQL(bounded size),refreshed by idle scan
+    StatementMonitorVo[] getMostPreparedStatements();
+
+    //return most frequently evicted SQL(bounded size),refreshed by idle scan
+    StatementMonitorVo[] getMostEvictedStatements();
+
+    //return count of driver calls(round trips) skipped on connection return
+    long getSavedRoundTripCount();
+
+    //return count of hold timeout connections salvaged to pool
+    long getHoldTimeoutSalvagedCount();
+
+    //return cumulative count of successful borrows
+    long getBorrowCount();
+
+    //return cumulative count of borrows served by last used connection of thread
+    long getThreadLocalHitCount();
+
+    //return cumulative count of borrows failed by timeout
+    long getBorrowTimeoutCount();
+
+    //return cumulative count of created connections
+    long getCreateCount();
+
+    //return execution latency of SQL with most total time(bounded size),empty if SQL latency not recorded
+    SqlLatencyMonitorVo[] getSlowestStatements();
+
+    //return latency of waiting for borrow semaphore,null if pool latency not recorded
+    LatencyMonitorVo getSemaphoreWaitLatency();
+
+    //return latency of waiting in queue for a released connection,null if pool latency not recorded
+    LatencyMonitorVo getTransferWaitLatency();
+
+    //return latency from borrow to return,null if pool latency not recorded
+    LatencyMonitorVo getHoldLatency();
+
+    //return latency of connection creation,null if pool latency not recorded
+    LatencyMonitorVo getCreationLatency();
+
+    //return latency of connection validation,null if pool latency not recorded
+    LatencyMonitorVo getValidationLatency();
+
 }
 
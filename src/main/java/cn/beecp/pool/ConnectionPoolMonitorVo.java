@@ -15,8 +15,10 @@
  */
 package cn.beecp.pool;
 
+import java.util.Map;
+
 /**
- * Connection pool Monitor Vo
+ * Connection pool Monitor Vo,a snapshot created by pool and not changed after returned
  *
  * @author Chris.Liao
  * @version 1.0
@@ -31,6 +33,29 @@ public class ConnectionPoolMonitorVo {
     private int usingSize;
     private int semaphoreWaiterSize;
     private int transferWaiterSize;
+    private BorrowerGroupMonitorVo[] borrowerGroupMonitorVos;
+    private long statementCacheHitCount;
+    private long statementCacheMissCount;
+    private long statementCacheEvictCount;
+    private long statementPrepareTime;//milliseconds
+    private StatementMonitorVo[] mostPreparedStatements;
+    private StatementMonitorVo[] mostEvictedStatements;
+    private long statementCacheBytes;//estimated bytes
+    private long statementCacheLimitBytes;
+    private long savedRoundTripCount;//driver calls skipped on connection return
+    private long holdTimeoutSalvagedCount;//hold timeout connections returned to pool
+    private long borrowCount;//cumulative counts
+    private long threadLocalHitCount;
+    private long borrowTimeoutCount;
+    private long borrowInterruptCount;
+    private long createCount;
+    private long createFailCount;
+    private Map<String, Long> removeCounts;//count of removed connections by reason
+    private LatencyMonitorVo semaphoreWaitLatency;//null if pool latency not recorded
+    private LatencyMonitorVo transferWaitLatency;
+    private LatencyMonitorVo holdLatency;
+    private LatencyMonitorVo creationLatency;
+    private LatencyMonitorVo validationLatency;
 
     public String getPoolName() {
         return poolName;
@@ -95,4 +120,189 @@ public class ConnectionPoolMonitorVo {
     void setTransferWaiterSize(int transferWaiterSize) {
         this.transferWaiterSize = transferWaiterSize;
     }
+
+    public BorrowerGroupMonitorVo[] getBorrowerGroupMonitorVos() {
+        return borrowerGroupMonitorVos;
+    }
+
+    void setBorrowerGroupMonitorVos(BorrowerGroupMonitorVo[] borrowerGroupMonitorVos) {
+        this.borrowerGroupMonitorVos = borrowerGroupMonitorVos;
+    }
+
+    public long getStatementCacheHitCount() {
+        return statementCacheHitCount;
+    }
+
+    void setStatementCacheHitCount(long statementCacheHitCount) {
+        this.statementCacheHitCount = statementCacheHitCount;
+    }
+
+    public long getStatementCacheMissCount() {
+        return statementCacheMissCount;
+    }
+
+    void setStatementCacheMissCount(long statementCacheMissCount) {
+        this.statementCacheMissCount = statementCacheMissCount;
+    }
+
+    public long getStatementCacheEvictCount() {
+        return statementCacheEvictCount;
+    }
+
+    void setStatementCacheEvictCount(long statementCacheEvictCount) {
+        this.statementCacheEvictCount = statementCacheEvictCount;
+    }
+
+    public long getStatementPrepareTime() {
+        return statementPrepareTime;
+    }
+
+    void setStatementPrepareTime(long statementPrepareTime) {
+        this.statementPrepareTime = statementPrepareTime;
+    }
+
+    public StatementMonitorVo[] getMostPreparedStatements() {
+        return mostPreparedStatements;
+    }
+
+    void setMostPreparedStatements(StatementMonitorVo[] mostPreparedStatements) {
+        this.mostPreparedStatements = mostPreparedStatements;
+    }
+
+    public StatementMonitorVo[] getMostEvictedStatements() {
+        return mostEvictedStatements;
+    }
+
+    void setMostEvictedStatements(StatementMonitorVo[] mostEvictedStatements) {
+        this.mostEvictedStatements = mostEvictedStatements;
+    }
+
+    public long getStatementCacheBytes() {
+        return statementCacheBytes;
+    }
+
+    void setStatementCacheBytes(long statementCacheBytes) {
+        this.statementCacheBytes = statementCacheBytes;
+    }
+
+    public long getStatementCacheLimitBytes() {
+        return statementCacheLimitBytes;
+    }
+
+    void setStatementCacheLimitBytes(long statementCacheLimitBytes) {
+        this.statementCacheLimitBytes = statementCacheLimitBytes;
+    }
+
+    public long getSavedRoundTripCount() {
+        return savedRoundTripCount;
+    }
+
+    void setSavedRoundTripCount(long savedRoundTripCount) {
+        this.savedRoundTripCount = savedRoundTripCount;
+    }
+
+    public long getHoldTimeoutSalvagedCount() {
+        return holdTimeoutSalvagedCount;
+    }
+
+    void setHoldTimeoutSalvagedCount(long holdTimeoutSalvagedCount) {
+        this.holdTimeoutSalvagedCount = holdTimeoutSalvagedCount;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    void setBorrowCount(long borrowCount) {
+        this.borrowCount = borrowCount;
+    }
+
+    public long getThreadLocalHitCount() {
+        return threadLocalHitCount;
+    }
+
+    void setThreadLocalHitCount(long threadLocalHitCount) {
+        this.threadLocalHitCount = threadLocalHitCount;
+    }
+
+    public long getBorrowTimeoutCount() {
+        return borrowTimeoutCount;
+    }
+
+    void setBorrowTimeoutCount(long borrowTimeoutCount) {
+        this.borrowTimeoutCount = borrowTimeoutCount;
+    }
+
+    public long getBorrowInterruptCount() {
+        return borrowInterruptCount;
+    }
+
+    void setBorrowInterruptCount(long borrowInterruptCount) {
+        this.borrowInterruptCount = borrowInterruptCount;
+    }
+
+    public long getCreateCount() {
+        return createCount;
+    }
+
+    void setCreateCount(long createCount) {
+        this.createCount = createCount;
+    }
+
+    public long getCreateFailCount() {
+        return createFailCount;
+    }
+
+    void setCreateFailCount(long createFailCount) {
+        this.createFailCount = createFailCount;
+    }
+
+    //key is remove reason(idle,holdTimeout,bad,closed,reset,destroy,init)
+    public Map<String, Long> getRemoveCounts() {
+        return removeCounts;
+    }
+
+    void setRemoveCounts(Map<String, Long> removeCounts) {
+        this.removeCounts = removeCounts;
+    }
+
+    public LatencyMonitorVo getSemaphoreWaitLatency() {
+        return semaphoreWaitLatency;
+    }
+
+    void setSemaphoreWaitLatency(LatencyMonitorVo semaphoreWaitLatency) {
+        this.semaphoreWaitLatency = semaphoreWaitLatency;
+    }
+
+    public LatencyMonitorVo getTransferWaitLatency() {
+        return transferWaitLatency;
+    }
+
+    void setTransferWaitLatency(LatencyMonitorVo transferWaitLatency) {
+        this.transferWaitLatency = transferWaitLatency;
+    }
+
+    public LatencyMonitorVo getHoldLatency() {
+        return holdLatency;
+    }
+
+    void setHoldLatency(LatencyMonitorVo holdLatency) {
+        this.holdLatency = holdLatency;
+    }
+
+    public LatencyMonitorVo getCreationLatency() {
+        return creationLatency;
+    }
+
+    void setCreationLatency(LatencyMonitorVo creationLatency) {
+        this.creationLatency = creationLatency;
+    }
+
+    public LatencyMonitorVo getValidationLatency() {
+        return validationLatency;
+    }
+
+    void setValidationLatency(LatencyMonitorVo validationLatency) {
+        this.validationLatency = validationLatency;
+    }
 }
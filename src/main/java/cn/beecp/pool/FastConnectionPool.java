@@ -17,17 +17,21 @@ package cn.beecp.pool;
 
 import cn.beecp.BeeDataSourceConfig;
 import cn.beecp.ConnectionFactory;
+import cn.beecp.ProxyClassMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.ref.WeakReference;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
@@ -59,12 +63,14 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
     private static final String DESC_REMOVE_CLOSED = "closed";
     private static final String DESC_REMOVE_RESET = "reset";
     private static final String DESC_REMOVE_DESTROY = "destroy";
+    static final String[] REMOVE_REASONS = {DESC_REMOVE_INIT, DESC_REMOVE_BAD, DESC_REMOVE_IDLE,
+            DESC_REMOVE_HOLDTIMEOUT, DESC_REMOVE_CLOSED, DESC_REMOVE_RESET, DESC_REMOVE_DESTROY};
     private static AtomicInteger PoolNameIndex = new AtomicInteger(1);
     private final Object connArrayLock = new Object();
     private final Object connNotifyLock = new Object();
     private final ConcurrentLinkedQueue<Borrower> waitQueue = new ConcurrentLinkedQueue<Borrower>();
     private final ThreadLocal<WeakReference<Borrower>> threadLocal = new ThreadLocal<WeakReference<Borrower>>();
-    private final ConnectionPoolMonitorVo monitorVo = new ConnectionPoolMonitorVo();
+    private final PoolCounters counters = new PoolCounters();
     private final Logger log = LoggerFactory.getLogger(FastConnectionPool.class);
 
     private int poolMaxSize;
@@ -80,28 +86,59 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
     private ConnectionTestPolicy testPolicy;
     private ConnectionFactory connFactory;
     private volatile PooledConnection[] connArray = new PooledConnection[0];
-    private ScheduledFuture<?> idleCheckSchFuture = null;
-    private ScheduledThreadPoolExecutor idleSchExecutor = new ScheduledThreadPoolExecutor(1, new PoolThreadThreadFactory("IdleConnectionScan"));
+    private SharedScheduler scheduler;//shared by pools in JVM
+    private SharedScheduler.ScheduledTask idleCheckTask;
+    private boolean holdTimeoutRecovery;
     private int networkTimeout;
     private boolean supportValidTest = true;
     private boolean supportSchema = true;
     private boolean supportNetworkTimeout = true;
     private boolean supportQueryTimeout = true;
     private boolean supportIsValidTested = false;
-    private ThreadPoolExecutor networkTimeoutExecutor = new ThreadPoolExecutor(Runtime.getRuntime().availableProcessors(),
-            Runtime.getRuntime().availableProcessors(), 15, SECONDS, new LinkedBlockingQueue<Runnable>(), new PoolThreadThreadFactory("networkTimeout"));
     private String poolName = "";
     private String poolMode = "";
     private AtomicInteger poolState = new AtomicInteger(POOL_UNINIT);
     private AtomicInteger createConnThreadState = new AtomicInteger(THREAD_WORKING);
     private AtomicInteger needAddConnSize = new AtomicInteger(0);
-
-    // create proxy to wrap connection as result
-    private static final Connection createProxyConnection(PooledConnection pConn, Borrower borrower)
-            throws SQLException {
-        // borrower.setBorrowedConnection(pConn);
-        // return pConn.proxyConnCurInstance=new ProxyConnection(pConn);
-        throw new SQLException("Proxy classes not be generated,please execute 'ProxyClassGenerator' after compile");
+    private BorrowerGroup defaultGroup;
+    private BorrowerGroup[] borrowerGroups;
+    private Map<String, BorrowerGroup> borrowerGroupMap;
+    private final SqlIdentityRegistry sqlRegistry = new SqlIdentityRegistry();
+    private int stmWarmUpSize;
+    private long stmWarmUpTimeoutNanos;//nanoseconds
+    private HotStatementFile hotStatementFile;
+    private StatementCacheBudget stmCacheBudget;
+    private HeapPressureMonitor heapPressureMonitor;
+    private PoolClock poolClock;
+    private SharedScheduler.ScheduledTask hotStatementTask;
+    private SqlLatencyRegistry sqlLatencyRegistry;//null if SQL latency not recorded
+    private PoolLatencyRecorder latencyRecorder;//null if pool latency not recorded
+    private PoolEventRecorder eventRecorder;//null if pool events not enabled
+    private boolean borrowTimed;//true if borrow time and wait phases measured
+    private MetricsHttpServer metricsServer;//null if metrics endpoint not configured
+
+    private int proxyClassModeCode;
+    private Class<?> proxyDriverClass;//connection class of driver specialized proxy classes
+    private volatile ProxyObjectFactory proxyFactory;
+
+    // create proxy to wrap connection as result,group quota is attached before proxy published to idle scan
+    private Connection createProxyConnection(PooledConnection pConn, Borrower borrower, BorrowerGroup group) throws SQLException {
+        long threadId = borrower.thread.getId();
+        try {
+            if (pConn.resetPendingCount > 0 && pConn.lastBorrowThreadId != threadId)//claimed by other thread
+                pConn.resetPendingState();
+            if (pConn.requestBoundary != null) pConn.requestBoundary.begin(pConn.rawConn);
+        } catch (SQLException e) {
+            abandonOnReturn(pConn);
+            throw e;
+        }
+        pConn.lastBorrowThreadId = threadId;
+        pConn.borrowerGroup = group;
+        counters.borrow.increment();
+        if (borrowTimed) pConn.borrowNanoTime = nanoTime();
+        borrower.lastUsedConn = pConn;
+        pConn.proxyFactory = proxyFactory;
+        return proxyFactory.createProxyConnection(pConn);
     }
 
     /**
@@ -112,8 +149,10 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
      */
     public void init(BeeDataSourceConfig config) throws SQLException {
         if (poolState.get() == POOL_UNINIT) {
-            checkProxyClasses();
             if (config == null) throw new SQLException("DataSource configuration can't be null");
+            proxyClassModeCode = config.getProxyClassModeCode();
+            if (proxyClassModeCode != ProxyClassMode.CODE_DRIVER)
+                proxyFactory = ProxyObjectFactory.getInstance(proxyClassModeCode);
             poolConfig = config;
 
             poolName = !isNullText(config.getPoolName()) ? config.getPoolName() : "FastPool-" + PoolNameIndex.getAndIncrement();
@@ -123,67 +162,118 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
             connFactory = poolConfig.getConnectionFactory();
             connectionTestSQL = poolConfig.getConnectionTestSQL();
             connectionTestTimeout = poolConfig.getConnectionTestTimeout();
-            this.testPolicy = new SQLQueryTestPolicy(poolConfig.isDefaultAutoCommit());
+            this.testPolicy = new SQLQueryTestPolicy();
             if (isNullText(connectionTestSQL))
                 connectionTestSQL = "select 1 from dual";
 
             defaultMaxWaitNanos = MILLISECONDS.toNanos(poolConfig.getMaxWait());
             connectionTestInterval = poolConfig.getConnectionTestInterval();
-            createInitConnections(poolConfig.getInitialSize());
+            holdTimeoutRecovery = poolConfig.isHoldTimeoutRecovery();
+            if (poolConfig.isRecordSqlLatency()) sqlLatencyRegistry = new SqlLatencyRegistry();
+            if (poolConfig.isRecordPoolLatency()) latencyRecorder = new PoolLatencyRecorder();
+            if (poolConfig.isEnableJfrEvent()) eventRecorder = createEventRecorder();
+            borrowTimed = latencyRecorder != null || eventRecorder != null;
+            createBorrowerGroups(poolConfig.getBorrowerGroupMap());
+            scheduler = SharedScheduler.acquire();
+            boolean started = false;
+            try {
+                poolClock = new PoolClock(poolConfig.getPoolClockResolution());
+                poolClock.start(scheduler);
+                stmWarmUpSize = poolConfig.getPreparedStatementWarmUpSize();
+                stmWarmUpTimeoutNanos = MILLISECONDS.toNanos(poolConfig.getPreparedStatementWarmUpTimeout());
+                if (poolConfig.getPreparedStatementCacheSize() > 0 && poolConfig.getPreparedStatementCacheMaxBytes() > 0) {
+                    stmCacheBudget = new StatementCacheBudget(poolConfig.getPreparedStatementCacheMaxBytes());
+                    if (poolConfig.getPreparedStatementCacheHeapThreshold() > 0) {
+                        heapPressureMonitor = new HeapPressureMonitor(poolConfig.getPreparedStatementCacheHeapThreshold(), stmCacheBudget);
+                        heapPressureMonitor.start();
+                    }
+                }
+                if (poolConfig.getPreparedStatementCacheSize() > 0 && !isNullText(poolConfig.getPreparedStatementWarmUpFile())) {
+                    hotStatementFile = new HotStatementFile(poolConfig.getPreparedStatementWarmUpFile());
+                    int loadedSize = hotStatementFile.read(sqlRegistry);
+                    log.info("BeeCP({})loaded {} hot statements from file:{}", poolName, loadedSize, poolConfig.getPreparedStatementWarmUpFile());
+                }
+                createInitConnections(poolConfig.getInitialSize());
 
-            if (poolConfig.isFairMode()) {
-                poolMode = "fair";
-                transferPolicy = new FairTransferPolicy();
-                conUnCatchStateCode = transferPolicy.getCheckStateCode();
-            } else {
-                poolMode = "compete";
-                transferPolicy = new CompeteTransferPolicy();
-                conUnCatchStateCode = transferPolicy.getCheckStateCode();
-            }
+                if (poolConfig.isFairMode()) {
+                    poolMode = "fair";
+                    transferPolicy = new FairTransferPolicy();
+                    conUnCatchStateCode = transferPolicy.getCheckStateCode();
+                } else {
+                    poolMode = "compete";
+                    transferPolicy = new CompeteTransferPolicy();
+                    conUnCatchStateCode = transferPolicy.getCheckStateCode();
+                }
 
-            exitHook = new ConnectionPoolHook();
-            Runtime.getRuntime().addShutdownHook(exitHook);
-            borrowSemaphore = new Semaphore(poolConfig.getBorrowSemaphoreSize(), poolConfig.isFairMode());
-            networkTimeoutExecutor.allowCoreThreadTimeOut(true);
-            idleCheckSchFuture = idleSchExecutor.scheduleAtFixedRate(new Runnable() {
-                public void run() {// check idle connection
-                    closeIdleTimeoutConnection();
+                exitHook = new ConnectionPoolHook();
+                Runtime.getRuntime().addShutdownHook(exitHook);
+                borrowSemaphore = new Semaphore(poolConfig.getBorrowSemaphoreSize(), poolConfig.isFairMode());
+                idleCheckTask = scheduler.schedule(new Runnable() {
+                    public void run() {// check idle connection
+                        closeIdleTimeoutConnection();
+                    }
+                }, config.getIdleCheckTimeInitDelay(), config.getIdleCheckTimeInterval(), TimeUnit.MILLISECONDS, false);
+                if (hotStatementFile != null) {
+                    long interval = config.getPreparedStatementWarmUpFileInterval();
+                    hotStatementTask = scheduler.schedule(new Runnable() {
+                        public void run() {// write hot statements
+                            writeHotStatementFile();
+                        }
+                    }, interval, interval, TimeUnit.MILLISECONDS, false);
                 }
-            }, config.getIdleCheckTimeInitDelay(), config.getIdleCheckTimeInterval(), TimeUnit.MILLISECONDS);
-
-            registerJMX();
-            log.info("BeeCP({})has startup{mode:{},init size:{},max size:{},concurrent size:{},max wait:{}ms,driver:{}}",
-                    poolName,
-                    poolMode,
-                    connArray.length,
-                    config.getMaxActive(),
-                    poolConfig.getBorrowSemaphoreSize(),
-                    poolConfig.getMaxWait(),
-                    poolConfig.getDriverClassName());
-
-            poolState.set(POOL_NORMAL);
-            this.setDaemon(true);
-            this.setName("PooledConnectionAdd");
-            this.start();
+
+                registerJMX();
+                OpenMetricsWriter.register(this);
+                int metricsPort = poolConfig.getMetricsPort();
+                if (metricsPort > 0) {
+                    try {
+                        metricsServer = MetricsHttpServer.acquire(poolConfig.getMetricsHost(), metricsPort);
+                    } catch (IOException e) {
+                        log.warn("BeeCP({})failed to start metrics endpoint on {}:{}", poolName, poolConfig.getMetricsHost(), metricsPort, e);
+                    }
+                }
+                log.info("BeeCP({})has startup{mode:{},init size:{},max size:{},concurrent size:{},max wait:{}ms,driver:{}}",
+                        poolName,
+                        poolMode,
+                        connArray.length,
+                        config.getMaxActive(),
+                        poolConfig.getBorrowSemaphoreSize(),
+                        poolConfig.getMaxWait(),
+                        poolConfig.getDriverClassName());
+
+                poolState.set(POOL_NORMAL);
+                this.setDaemon(true);
+                this.setName("PooledConnectionAdd");
+                this.start();
+                started = true;
+            } finally {
+                if (!started) cleanOnInitFailure();
+            }
         } else {
             throw new SQLException("Pool has initialized");
         }
     }
 
     /**
-     * check some proxy classes whether exists
+     * undo steps done by initialization when it fails after scheduler acquired,steps not done are skipped
      */
-    private void checkProxyClasses() throws SQLException {
+    private void cleanOnInitFailure() {
+        poolState.set(POOL_UNINIT);
         try {
-            ClassLoader classLoader = getClass().getClassLoader();
-            Class.forName("cn.beecp.pool.ProxyConnection", false, classLoader);
-            Class.forName("cn.beecp.pool.ProxyStatement", false, classLoader);
-            Class.forName("cn.beecp.pool.ProxyPsStatement", false, classLoader);
-            Class.forName("cn.beecp.pool.ProxyCsStatement", false, classLoader);
-            Class.forName("cn.beecp.pool.ProxyDatabaseMetaData", false, classLoader);
-            Class.forName("cn.beecp.pool.ProxyResultSet", false, classLoader);
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("Jdbc proxy class missed", e);
+            if (metricsServer != null) MetricsHttpServer.release(metricsServer);
+            OpenMetricsWriter.unregister(this);
+            unregisterJMX();
+            if (exitHook != null) Runtime.getRuntime().removeShutdownHook(exitHook);
+            if (hotStatementTask != null) hotStatementTask.cancel();
+            if (idleCheckTask != null) idleCheckTask.cancel();
+            for (PooledConnection pConn : connArray)
+                removePooledConn(pConn, DESC_REMOVE_INIT);
+            if (heapPressureMonitor != null) heapPressureMonitor.stop();
+            if (poolClock != null) poolClock.stop();
+        } catch (Throwable e) {
+            log.warn("BeeCP({})failed to clean after initialization failure", poolName, e);
+        } finally {
+            SharedScheduler.release(scheduler);
         }
     }
 
@@ -204,7 +294,36 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
     }
 
     ThreadPoolExecutor getNetworkTimeoutExecutor() {
-        return networkTimeoutExecutor;
+        return scheduler.getWorkerExecutor();
+    }
+
+    SharedScheduler getScheduler() {
+        return scheduler;
+    }
+
+    SqlIdentityRegistry getSqlRegistry() {
+        return sqlRegistry;
+    }
+
+    SqlLatencyRegistry getSqlLatencyRegistry() {
+        return sqlLatencyRegistry;
+    }
+
+    PoolLatencyRecorder getLatencyRecorder() {
+        return latencyRecorder;
+    }
+
+    StatementCacheBudget getStatementCacheBudget() {
+        return stmCacheBudget;
+    }
+
+    PoolClock getPoolClock() {
+        return poolClock;
+    }
+
+    //fair share bytes of statement cache budget for one connection
+    long getStatementCacheShare() {
+        return stmCacheBudget.getShare(connArray.length);
     }
 
     private boolean existBorrower() {
@@ -216,9 +335,28 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
         synchronized (connArrayLock) {
             int arrayLen = connArray.length;
             if (arrayLen < poolMaxSize) {
-                Connection con = connFactory.create();
-                setDefaultOnRawConn(con);
-                PooledConnection pConn = new PooledConnection(con, connState, this, poolConfig);// add
+                Connection con;
+                long beginTime = latencyRecorder != null ? nanoTime() : 0L;
+                Object event = eventRecorder != null ? eventRecorder.beginCreate() : null;
+                try {
+                    con = connFactory.create();
+                } catch (SQLException e) {
+                    counters.createFail.incrementAndGet();
+                    if (event != null) eventRecorder.endCreate(event, false);
+                    throw e;
+                }
+                if (latencyRecorder != null) latencyRecorder.creation.record(nanoTime() - beginTime);
+                if (event != null) eventRecorder.endCreate(event, true);
+                counters.create.incrementAndGet();
+                PooledConnection pConn;
+                try {
+                    if (proxyClassModeCode == ProxyClassMode.CODE_DRIVER) resolveDriverProxyFactory(con);
+                    setDefaultOnRawConn(con);
+                    pConn = new PooledConnection(con, connState, this, poolConfig);// add
+                } catch (Throwable e) {//raw connection not in array,close it here
+                    oclose(con);
+                    throw e;
+                }
                 PooledConnection[] arrayNew = new PooledConnection[arrayLen + 1];
                 arraycopy(connArray, 0, arrayNew, 0, arrayLen);
                 arrayNew[arrayLen] = pConn;// tail
@@ -230,10 +368,61 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
         }
     }
 
+    /**
+     * driver specialized proxy classes are generated with class of first connection,
+     * interface proxy classes are used if class of later connection is different(called in connArrayLock)
+     */
+    private void resolveDriverProxyFactory(Connection con) throws SQLException {
+        Class<?> conClass = con.getClass();
+        if (proxyDriverClass == conClass || proxyDriverClass == Connection.class) return;
+        try {
+            if (proxyDriverClass == null) {
+                proxyFactory = ProxyObjectFactory.getDriverInstance(con);
+                proxyDriverClass = conClass;
+            } else {
+                log.warn("BeeCP({})connection class changed from {} to {},driver proxy classes not used", poolName, proxyDriverClass.getName(), conClass.getName());
+                proxyFactory = ProxyObjectFactory.getInstance(ProxyClassMode.CODE_AUTO);
+                proxyDriverClass = Connection.class;
+            }
+        } catch (SQLException e) {
+            oclose(con);
+            throw e;
+        }
+    }
+
+    /**
+     * pre-prepare hottest statements of pool on new idle connection(out of connection array lock),
+     * connections created on demand are handed to borrowers without warm-up,waiters are not delayed by it
+     *
+     * @param pConn new created idle connection,not reached borrowers
+     */
+    private void warmUpStatementCache(PooledConnection pConn) {
+        if (stmWarmUpSize > 0 && pConn != null && pConn.stmCacheValid) {
+            SqlIdentity[] identities = sqlRegistry.getHottest(stmWarmUpSize);
+            if (identities.length > 0) {
+                int count = pConn.warmUpStatementCache(identities, nanoTime() + stmWarmUpTimeoutNanos);
+                log.debug("BeeCP({})pre-prepared {} statements on new connection", poolName, count);
+            }
+        }
+    }
+
+    //write hottest statements of pool to local file,then age access counts,so saved counts don't grow across restarts
+    private void writeHotStatementFile() {
+        try {
+            hotStatementFile.write(sqlRegistry.getHottest(poolConfig.getPreparedStatementCacheSize()));
+            sqlRegistry.age();
+        } catch (Throwable e) {
+            log.warn("BeeCP({})failed to write hot statement file:{}", poolName, poolConfig.getPreparedStatementWarmUpFile(), e);
+        }
+    }
+
     //remove Pooled connection
     private void removePooledConn(PooledConnection pConn, String removeType) {
+        counters.removed(removeType);
         pConn.state = CONNECTION_CLOSED;
+        Object event = eventRecorder != null ? eventRecorder.beginClose() : null;
         pConn.closeRawConn();
+        if (event != null) eventRecorder.endClose(event, removeType);
         synchronized (connArrayLock) {
             int oldLen = connArray.length;
             PooledConnection[] arrayNew = new PooledConnection[oldLen - 1];
@@ -334,7 +523,7 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
      * false if false then close it
      */
     private boolean testOnBorrow(PooledConnection pConn) {
-        if (currentTimeMillis() - pConn.lastAccessTime - connectionTestInterval < 0 || testPolicy.isActive(pConn))
+        if (poolClock.currentTimeMillis() - pConn.lastAccessTime - connectionTestInterval < 0 || testConnection(pConn))
             return true;
 
         removePooledConn(pConn, DESC_REMOVE_BAD);
@@ -342,6 +531,20 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
         return false;
     }
 
+    //test connection with policy,validation time recorded if pool latency recorded or event enabled
+    private boolean testConnection(PooledConnection pConn) {
+        if (latencyRecorder == null && eventRecorder == null) return testPolicy.isActive(pConn);
+        long beginTime = nanoTime();
+        Object event = eventRecorder != null ? eventRecorder.beginValidation() : null;
+        boolean active = false;
+        try {
+            return active = testPolicy.isActive(pConn);
+        } finally {
+            if (latencyRecorder != null) latencyRecorder.validation.record(nanoTime() - beginTime);
+            if (event != null) eventRecorder.endValidation(event, active);
+        }
+    }
+
     /**
      * create initialization connections
      *
@@ -350,7 +553,7 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
     private void createInitConnections(int initSize) throws SQLException {
         try {
             for (int i = 0; i < initSize; i++)
-                createPooledConn(CONNECTION_IDLE);
+                warmUpStatementCache(createPooledConn(CONNECTION_IDLE));
         } catch (SQLException e) {
             for (PooledConnection pConn : connArray)
                 removePooledConn(pConn, DESC_REMOVE_INIT);
@@ -358,6 +561,34 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
         }
     }
 
+    /**
+     * create borrower groups,borrowers without group name go into default group
+     *
+     * @param groupConfigMap group quota map,value:[minSize,maxSize]
+     */
+    private void createBorrowerGroups(Map<String, int[]> groupConfigMap) {
+        if (groupConfigMap == null || groupConfigMap.isEmpty()) return;
+
+        boolean hasDefault = groupConfigMap.containsKey(BorrowerGroup.DEFAULT_GROUP_NAME);
+        borrowerGroups = new BorrowerGroup[hasDefault ? groupConfigMap.size() : groupConfigMap.size() + 1];
+        borrowerGroupMap = new HashMap<String, BorrowerGroup>(borrowerGroups.length * 2);
+
+        int index = 0;
+        AtomicInteger occupiedSize = new AtomicInteger();//shared quota of groups
+        for (Map.Entry<String, int[]> entry : groupConfigMap.entrySet()) {
+            int[] sizes = entry.getValue();
+            BorrowerGroup group = new BorrowerGroup(entry.getKey(), sizes[0], sizes[1], index, borrowerGroups, occupiedSize, poolMaxSize);
+            borrowerGroups[index++] = group;
+            borrowerGroupMap.put(group.name, group);
+        }
+        if (!hasDefault) {
+            BorrowerGroup group = new BorrowerGroup(BorrowerGroup.DEFAULT_GROUP_NAME, 0, poolMaxSize, index, borrowerGroups, occupiedSize, poolMaxSize);
+            borrowerGroups[index] = group;
+            borrowerGroupMap.put(group.name, group);
+        }
+        defaultGroup = borrowerGroupMap.get(BorrowerGroup.DEFAULT_GROUP_NAME);
+    }
+
     /**
      * borrow one connection from pool
      *
@@ -366,6 +597,82 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
      * @throws SQLException if pool is closed or waiting timeout,then throw exception
      */
     public Connection getConnection() throws SQLException {
+        if (defaultGroup != null) return getConnection(defaultGroup);
+        return getConnection(defaultMaxWaitNanos, null);
+    }
+
+    /**
+     * borrow one connection from pool with quota of a borrower group
+     *
+     * @param groupName borrower group name
+     * @return If exists idle connection in pool,then return one;if not, waiting
+     * until other borrower release
+     * @throws SQLException if pool is closed or waiting timeout or group not found,then throw exception
+     */
+    public Connection getConnection(String groupName) throws SQLException {
+        BorrowerGroup group = (borrowerGroupMap != null) ? borrowerGroupMap.get(groupName) : null;
+        if (group == null) throw new SQLException("Borrower group(" + groupName + ")not found");
+        return getConnection(group);
+    }
+
+    //borrow connection after taking group quota,the quota return to group when connection released
+    private Connection getConnection(BorrowerGroup group) throws SQLException {
+        if (poolState.get() != POOL_NORMAL) throw PoolCloseException;
+
+        Object event = (eventRecorder != null) ? eventRecorder.beginBorrow() : null;//group wait in event
+        long deadline = nanoTime() + defaultMaxWaitNanos;
+        try {
+            group.acquire(deadline);
+        } catch (SQLException e) {
+            counters.borrowFailed(e);
+            if (event != null) eventRecorder.endBorrow(event, nanoTime() - (deadline - defaultMaxWaitNanos), 0L, 0L, e);
+            throw e;
+        }
+
+        long groupWaitTime = 0L;
+        try {
+            long time = nanoTime();
+            if (event != null) groupWaitTime = time - (deadline - defaultMaxWaitNanos);
+            long maxWaitNanos = deadline - time;
+            if (maxWaitNanos <= 0L) {
+                counters.borrowTimeout.incrementAndGet();
+                throw RequestTimeoutException;
+            }
+            Connection con = borrowConnection(maxWaitNanos, group);
+            if (event != null) endBorrowEvent(event, groupWaitTime, null);
+            return con;
+        } catch (SQLException e) {
+            group.release();
+            if (event != null) endBorrowEvent(event, groupWaitTime, e);
+            throw e;
+        }
+    }
+
+    private Connection getConnection(long maxWaitNanos, BorrowerGroup group) throws SQLException {
+        Object event;
+        if (eventRecorder == null || (event = eventRecorder.beginBorrow()) == null)
+            return borrowConnection(maxWaitNanos, group);
+
+        try {
+            Connection con = borrowConnection(maxWaitNanos, group);
+            endBorrowEvent(event, 0L, null);
+            return con;
+        } catch (SQLException e) {
+            endBorrowEvent(event, 0L, e);
+            throw e;
+        }
+    }
+
+    private void endBorrowEvent(Object event, long groupWaitTime, SQLException failure) {
+        WeakReference<Borrower> ref = threadLocal.get();
+        Borrower borrower = (ref != null) ? ref.get() : null;
+        if (borrower != null)
+            eventRecorder.endBorrow(event, groupWaitTime, borrower.semaphoreWaitTime, borrower.transferWaitTime, failure);
+        else
+            eventRecorder.endBorrow(event, groupWaitTime, 0L, 0L, failure);
+    }
+
+    private Connection borrowConnection(long maxWaitNanos, BorrowerGroup group) throws SQLException {
         if (poolState.get() != POOL_NORMAL) throw PoolCloseException;
 
         //0:try to get from threadLocal cache
@@ -374,7 +681,10 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
         if (borrower != null) {
             PooledConnection pConn = borrower.lastUsedConn;
             if (pConn != null && ConnStUpd.compareAndSet(pConn, CONNECTION_IDLE, CONNECTION_USING)) {
-                if (testOnBorrow(pConn)) return createProxyConnection(pConn, borrower);
+                if (testOnBorrow(pConn)) {
+                    counters.threadLocalHit.increment();
+                    return createProxyConnection(pConn, borrower, group);
+                }
 
                 borrower.lastUsedConn = null;
             }
@@ -382,15 +692,22 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
             borrower = new Borrower();
             threadLocal.set(new WeakReference<Borrower>(borrower));
         }
+        if (borrowTimed) borrower.semaphoreWaitTime = borrower.transferWaitTime = 0L;
 
-
-        long deadline = nanoTime() + defaultMaxWaitNanos;
+        long deadline = nanoTime() + maxWaitNanos;
         try {
-            if (!this.borrowSemaphore.tryAcquire(this.defaultMaxWaitNanos, NANOSECONDS))
+            if (!this.borrowSemaphore.tryAcquire(maxWaitNanos, NANOSECONDS)) {
+                counters.borrowTimeout.incrementAndGet();
                 throw RequestTimeoutException;
+            }
         } catch (InterruptedException e) {
+            counters.borrowInterrupt.incrementAndGet();
             throw RequestInterruptException;
         }
+        if (borrowTimed) {
+            borrower.semaphoreWaitTime = nanoTime() - (deadline - maxWaitNanos);
+            if (latencyRecorder != null) latencyRecorder.semaphoreWait.record(borrower.semaphoreWaitTime);
+        }
 
         try {//borrowSemaphore acquired
             //1:try to search one from array
@@ -398,14 +715,14 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
             for (int i = 0, l = connections.length; i < l; i++) {
                 PooledConnection pConn = connections[i];
                 if (ConnStUpd.compareAndSet(pConn, CONNECTION_IDLE, CONNECTION_USING) && testOnBorrow(pConn)) {
-                    return createProxyConnection(pConn, borrower);
+                    return createProxyConnection(pConn, borrower, group);
                 }
             }
 
             //2:try to create one directly
             PooledConnection pConn;
             if (connArray.length < poolMaxSize && (pConn = createPooledConn(CONNECTION_USING)) != null)
-                return createProxyConnection(pConn, borrower);
+                return createProxyConnection(pConn, borrower, group);
 
             //3:try to get one transferred connection
             boolean isFailed = false;
@@ -413,44 +730,53 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
             Thread bThread = borrower.thread;
             borrower.state = BORROWER_NORMAL;
 
+            long transferBeginTime = borrowTimed ? nanoTime() : 0L;
             waitQueue.offer(borrower);
             int spinSize = (waitQueue.peek() == borrower) ? maxTimedSpins : 0;
-            while (true) {
-                Object state = borrower.state;
-                if (state instanceof PooledConnection) {
-                    pConn = (PooledConnection) state;
-                    if (transferPolicy.tryCatch(pConn) && this.testOnBorrow(pConn)) {
+            try {
+                while (true) {
+                    Object state = borrower.state;
+                    if (state instanceof PooledConnection) {
+                        pConn = (PooledConnection) state;
+                        if (transferPolicy.tryCatch(pConn) && this.testOnBorrow(pConn)) {
+                            waitQueue.remove(borrower);
+                            return createProxyConnection(pConn, borrower, group);
+                        }
+
+                        borrower.state = BORROWER_NORMAL;
+                        yield();
+                    } else if (state instanceof SQLException) {
                         waitQueue.remove(borrower);
-                        return createProxyConnection(pConn, borrower);
+                        counters.borrowFailed((SQLException) state);
+                        throw (SQLException) state;
                     }
 
-                    borrower.state = BORROWER_NORMAL;
-                    yield();
-                } else if (state instanceof SQLException) {
-                    waitQueue.remove(borrower);
-                    throw (SQLException) state;
-                }
-
-                if (isFailed) {
-                    BwrStUpd.compareAndSet(borrower, state, failedCause);
-                } else {
-                    long timeout;
-                    if ((timeout = deadline - nanoTime()) > 0L) {
-                        if (spinSize > 0) {
-                            --spinSize;
-                        } else if (timeout > spinForTimeoutThreshold && BwrStUpd.compareAndSet(borrower, state, BORROWER_WAITING)) {
-                            parkNanos(this, timeout);
-                            if (bThread.isInterrupted()) {
-                                isFailed = true;
-                                failedCause = RequestInterruptException;
+                    if (isFailed) {
+                        BwrStUpd.compareAndSet(borrower, state, failedCause);
+                    } else {
+                        long timeout;
+                        if ((timeout = deadline - nanoTime()) > 0L) {
+                            if (spinSize > 0) {
+                                --spinSize;
+                            } else if (timeout > spinForTimeoutThreshold && BwrStUpd.compareAndSet(borrower, state, BORROWER_WAITING)) {
+                                parkNanos(this, timeout);
+                                if (bThread.isInterrupted()) {
+                                    isFailed = true;
+                                    failedCause = RequestInterruptException;
+                                }
                             }
+                        } else {//timeout
+                            isFailed = true;
+                            failedCause = RequestTimeoutException;
                         }
-                    } else {//timeout
-                        isFailed = true;
-                        failedCause = RequestTimeoutException;
                     }
+                }//while
+            } finally {
+                if (borrowTimed) {
+                    borrower.transferWaitTime = nanoTime() - transferBeginTime;
+                    if (latencyRecorder != null) latencyRecorder.transferWait.record(borrower.transferWaitTime);
                 }
-            }//while
+            }
         } finally {
             borrowSemaphore.release();
         }
@@ -514,24 +840,123 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
                 PooledConnection pConn = array[i];
                 int state = pConn.state;
                 if (state == CONNECTION_IDLE && !existBorrower()) {
-                    boolean isTimeoutInIdle = (currentTimeMillis() - pConn.lastAccessTime - poolConfig.getIdleTimeout() >= 0);
+                    boolean isTimeoutInIdle = (poolClock.currentTimeMillis() - pConn.lastAccessTime - poolConfig.getIdleTimeout() >= 0);
                     if (isTimeoutInIdle && ConnStUpd.compareAndSet(pConn, state, CONNECTION_CLOSED)) {//need close idle
                         removePooledConn(pConn, DESC_REMOVE_IDLE);
                         tryToCreateNewConnByAsyn();
                     }
                 } else if (state == CONNECTION_USING) {
                     ProxyConnectionBase proxyConn = pConn.proxyConn;
-                    boolean isHoldTimeoutInNotUsing = currentTimeMillis() - pConn.lastAccessTime - poolConfig.getHoldTimeout() >= 0;
+                    boolean isHoldTimeoutInNotUsing = poolClock.currentTimeMillis() - pConn.lastAccessTime - poolConfig.getHoldTimeout() >= 0;
                     if (isHoldTimeoutInNotUsing && proxyConn != null && proxyConn.setAsClosed()) {//recycle connection
                         pConn.proxyConn = null;
-                        removePooledConn(pConn, DESC_REMOVE_HOLDTIMEOUT);
-                        tryToCreateNewConnByAsyn();
+                        pConn.releaseBorrowerGroup();
+                        Object event = eventRecorder != null ? eventRecorder.beginHoldTimeout() : null;
+                        if (holdTimeoutRecovery) {
+                            recoverHoldTimeoutConnection(pConn, proxyConn, event);
+                        } else {
+                            removePooledConn(pConn, DESC_REMOVE_HOLDTIMEOUT);
+                            endHoldTimeoutEvent(event, pConn, false);
+                            tryToCreateNewConnByAsyn();
+                        }
                     }
                 } else if (state == CONNECTION_CLOSED) {
                     removePooledConn(pConn, DESC_REMOVE_CLOSED);
                     tryToCreateNewConnByAsyn();
                 }
             }
+
+            if (stmCacheBudget != null) trimStatementCaches();
+            if (poolConfig.getPreparedStatementCacheSize() > 0) sqlRegistry.refreshTopStatements();
+        }
+    }
+
+    /**
+     * salvage hold timeout connection on scheduler salvage executor,cancel and reset may block on driver;
+     * connection keeps in using state until it is returned to pool or removed,it is removed when
+     * salvage executor is full,or cancelled execution not returned in connection test timeout
+     */
+    private void recoverHoldTimeoutConnection(final PooledConnection pConn, final ProxyConnectionBase proxyConn, final Object event) {
+        try {
+            scheduler.getSalvageExecutor().execute(new Runnable() {
+                public void run() {
+                    salvageHoldTimeoutConnection(pConn, proxyConn, event);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            removePooledConn(pConn, DESC_REMOVE_HOLDTIMEOUT);
+            endHoldTimeoutEvent(event, pConn, false);
+            tryToCreateNewConnByAsyn();
+        }
+    }
+
+    private void salvageHoldTimeoutConnection(PooledConnection pConn, ProxyConnectionBase proxyConn, Object event) {
+        try {
+            pConn.resetOnHoldTimeout(proxyConn, SECONDS.toNanos(connectionTestTimeout));
+            if (poolState.get() == POOL_NORMAL && testConnection(pConn)) {
+                counters.holdTimeoutSalvaged.incrementAndGet();
+                endHoldTimeoutEvent(event, pConn, true);
+                recycle(pConn);
+                return;
+            }
+        } catch (Throwable e) {
+            log.warn("BeeCP({})failed to salvage hold timeout connection", poolName, e);
+        }
+        removePooledConn(pConn, DESC_REMOVE_HOLDTIMEOUT);
+        endHoldTimeoutEvent(event, pConn, false);
+        tryToCreateNewConnByAsyn();
+    }
+
+    private void endHoldTimeoutEvent(Object event, PooledConnection pConn, boolean salvaged) {
+        if (event != null)
+            eventRecorder.endHoldTimeout(event, poolClock.currentTimeMillis() - pConn.lastAccessTime, salvaged);
+    }
+
+    /**
+     * load event recorder on Java Flight Recorder,which is not present before JDK11(JDK8u262),
+     * so loaded by reflection to keep pool runnable on old JDK
+     */
+    private PoolEventRecorder createEventRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            Class<?> recorderClass = Class.forName("cn.beecp.pool.JfrEventRecorder");
+            return (PoolEventRecorder) recorderClass.getConstructor(String.class).newInstance(poolName);
+        } catch (Throwable e) {
+            log.warn("BeeCP({})Java Flight Recorder not available,pool events disabled", poolName, e);
+            return null;
+        }
+    }
+
+    PoolEventRecorder getEventRecorder() {
+        return eventRecorder;
+    }
+
+    PoolCounters getCounters() {
+        return counters;
+    }
+
+    String getPoolName() {
+        return poolName;
+    }
+
+    int getPoolMaxSize() {
+        return poolMaxSize;
+    }
+
+    /**
+     * coordinated eviction:while statement cache budget exceeded,evict statements of
+     * idle connections down to their fair share
+     */
+    private void trimStatementCaches() {
+        if (heapPressureMonitor != null) heapPressureMonitor.checkPressure();
+        PooledConnection[] array = connArray;
+        long share = stmCacheBudget.getShare(array.length);
+        for (int i = 0, len = array.length; i < len && stmCacheBudget.isOverLimit(); i++) {
+            PooledConnection pConn = array[i];
+            if (ConnStUpd.compareAndSet(pConn, CONNECTION_IDLE, CONNECTION_USING)) {
+                pConn.trimStatementCache(share, null);
+                recycle(pConn);
+            }
         }
     }
 
@@ -543,15 +968,19 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
         while (true) {
             if (poolState.compareAndSet(POOL_NORMAL, POOL_CLOSED)) {
                 log.info("BeeCP({})begin to shutdown", poolName);
-                removeAllConnections(poolConfig.isForceCloseConnection(), DESC_REMOVE_DESTROY);
-                while (!idleCheckSchFuture.isCancelled() && !idleCheckSchFuture.isDone()) {
-                    idleCheckSchFuture.cancel(true);
+                if (hotStatementFile != null) {
+                    hotStatementTask.cancel();
+                    writeHotStatementFile();
                 }
-
-                idleSchExecutor.shutdownNow();
-                networkTimeoutExecutor.shutdownNow();
+                removeAllConnections(poolConfig.isForceCloseConnection(), DESC_REMOVE_DESTROY);
+                if (heapPressureMonitor != null) heapPressureMonitor.stop();
+                poolClock.stop();
+                idleCheckTask.cancel();
+                SharedScheduler.release(scheduler);
                 shutdownCreateConnThread();
                 unregisterJMX();
+                OpenMetricsWriter.unregister(this);
+                if (metricsServer != null) MetricsHttpServer.release(metricsServer);
 
                 try {
                     Runtime.getRuntime().removeShutdownHook(exitHook);
@@ -593,12 +1022,14 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
                     if (force) {
                         if (proxyConn != null && proxyConn.setAsClosed()) {
                             pConn.proxyConn = null;
+                            pConn.releaseBorrowerGroup();
                             removePooledConn(pConn, source);
                         }
                     } else {
-                        boolean isTimeout = (currentTimeMillis() - pConn.lastAccessTime - poolConfig.getHoldTimeout() >= 0);
+                        boolean isTimeout = (poolClock.currentTimeMillis() - pConn.lastAccessTime - poolConfig.getHoldTimeout() >= 0);
                         if (isTimeout && proxyConn != null && proxyConn.setAsClosed()) {
                             pConn.proxyConn = null;
+                            pConn.releaseBorrowerGroup();
                             removePooledConn(pConn, source);
                         }
                     }
@@ -607,7 +1038,6 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
 
             if (connArray.length > 0) parkNanos(parkNanoSeconds);
         } // while
-        idleSchExecutor.getQueue().clear();
     }
 
     // notify to create connections to pool
@@ -704,20 +1134,108 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
         return waitQueue.size();
     }
 
+    /**
+     * @return a new snapshot of pool,sizes are counted from same connection array
+     */
     public ConnectionPoolMonitorVo getMonitorVo() {
-        int totSize = getConnTotalSize();
-        int idleSize = getConnIdleSize();
+        PooledConnection[] array = connArray;
+        int idleSize = 0;
+        for (PooledConnection pConn : array) {
+            if (pConn.state == CONNECTION_IDLE) idleSize++;
+        }
+        ConnectionPoolMonitorVo monitorVo = new ConnectionPoolMonitorVo();
         monitorVo.setPoolName(poolName);
         monitorVo.setPoolMode(poolMode);
         monitorVo.setPoolState(poolState.get());
         monitorVo.setMaxActive(poolMaxSize);
         monitorVo.setIdleSize(idleSize);
-        monitorVo.setUsingSize(totSize - idleSize);
+        monitorVo.setUsingSize(array.length - idleSize);
         monitorVo.setSemaphoreWaiterSize(getSemaphoreWaitingSize());
         monitorVo.setTransferWaiterSize(getTransferWaitingSize());
+        if (borrowerGroups != null) {
+            BorrowerGroupMonitorVo[] groupMonitorVos = new BorrowerGroupMonitorVo[borrowerGroups.length];
+            for (int i = 0; i < borrowerGroups.length; i++)
+                groupMonitorVos[i] = borrowerGroups[i].getMonitorVo();
+            monitorVo.setBorrowerGroupMonitorVos(groupMonitorVos);
+        }
+        sqlRegistry.fillMonitorVo(monitorVo);
+        if (stmCacheBudget != null) {
+            monitorVo.setStatementCacheBytes(stmCacheBudget.getUsedBytes());
+            monitorVo.setStatementCacheLimitBytes(stmCacheBudget.getLimitBytes());
+        }
+        counters.fillMonitorVo(monitorVo);
+        if (latencyRecorder != null) latencyRecorder.fillMonitorVo(monitorVo);
         return monitorVo;
     }
 
+    public long getHoldTimeoutSalvagedCount() {
+        return counters.holdTimeoutSalvaged.get();
+    }
+
+    public long getBorrowCount() {
+        return counters.borrow.sum();
+    }
+
+    public long getThreadLocalHitCount() {
+        return counters.threadLocalHit.sum();
+    }
+
+    public long getBorrowTimeoutCount() {
+        return counters.borrowTimeout.get();
+    }
+
+    public long getCreateCount() {
+        return counters.create.get();
+    }
+
+    public SqlLatencyMonitorVo[] getSlowestStatements() {
+        return sqlLatencyRegistry != null ? sqlLatencyRegistry.getSlowestStatements() : new SqlLatencyMonitorVo[0];
+    }
+
+    public LatencyMonitorVo getSemaphoreWaitLatency() {
+        return latencyRecorder != null ? PoolLatencyRecorder.getMonitorVo(latencyRecorder.semaphoreWait) : null;
+    }
+
+    public LatencyMonitorVo getTransferWaitLatency() {
+        return latencyRecorder != null ? PoolLatencyRecorder.getMonitorVo(latencyRecorder.transferWait) : null;
+    }
+
+    public LatencyMonitorVo getHoldLatency() {
+        return latencyRecorder != null ? PoolLatencyRecorder.getMonitorVo(latencyRecorder.hold) : null;
+    }
+
+    public LatencyMonitorVo getCreationLatency() {
+        return latencyRecorder != null ? PoolLatencyRecorder.getMonitorVo(latencyRecorder.creation) : null;
+    }
+
+    public LatencyMonitorVo getValidationLatency() {
+        return latencyRecorder != null ? PoolLatencyRecorder.getMonitorVo(latencyRecorder.validation) : null;
+    }
+
+    public long getSavedRoundTripCount() {
+        return counters.savedRoundTrip.sum();
+    }
+
+    public long getStatementCacheHitCount() {
+        return sqlRegistry.getHitCount();
+    }
+
+    public long getStatementCacheMissCount() {
+        return sqlRegistry.getMissCount();
+    }
+
+    public long getStatementCacheEvictCount() {
+        return sqlRegistry.getEvictCount();
+    }
+
+    public StatementMonitorVo[] getMostPreparedStatements() {
+        return sqlRegistry.getMostPrepared();
+    }
+
+    public StatementMonitorVo[] getMostEvictedStatements() {
+        return sqlRegistry.getMostEvicted();
+    }
+
     // register JMX
     private void registerJMX() {
         if (poolConfig.isEnableJMX()) {
@@ -793,6 +1311,8 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
         volatile Object state;
         PooledConnection lastUsedConn;
         Thread thread = Thread.currentThread();
+        long semaphoreWaitTime;//nanoseconds,measured on last borrow when borrow timed
+        long transferWaitTime;//nanoseconds,measured on last borrow when borrow timed
     }
 
     static final class CompeteTransferPolicy implements TransferPolicy {
@@ -871,13 +1391,8 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
 
     // SQL check Policy
     class SQLQueryTestPolicy implements ConnectionTestPolicy {
-        private boolean AutoCommit;
-
-        public SQLQueryTestPolicy(boolean autoCommit) {
-            this.AutoCommit = autoCommit;
-        }
-
         public boolean isActive(PooledConnection pConn) {
+            boolean AutoCommit = pConn.curAutoCommit;//not default value when reset deferred
             boolean autoCommitChged = false;
             Statement st = null;
             Connection con = pConn.rawConn;
@@ -890,7 +1405,8 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
                 }
 
                 st = con.createStatement();
-                pConn.lastAccessTime = currentTimeMillis();
+                pConn.lastAccessTime = poolClock.currentTimeMillis();
+                pConn.warningDirtyInd = true;
                 if (supportQueryTimeout) {
                     try {
                         st.setQueryTimeout(connectionTestTimeout);
@@ -925,7 +1441,8 @@ public final class FastConnectionPool extends Thread implements ConnectionPool,
             Connection con = pConn.rawConn;
             try {
                 if (con.isValid(connectionTestTimeout)) {
-                    pConn.lastAccessTime = currentTimeMillis();
+                    pConn.lastAccessTime = poolClock.currentTimeMillis();
+                    pConn.warningDirtyInd = true;
                     return true;
                 }
             } catch (Throwable e) {
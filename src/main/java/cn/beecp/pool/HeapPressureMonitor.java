@@ -0,0 +1,132 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heap pressure monitor,which listens usage threshold notifications of heap memory pools
+ * (collection usage:heap usage after GC),pressure is cleared by polling when usage
+ * of all pools fall below threshold. Thresholds are JVM wide,so they are shared by monitors
+ * of all pools,set by the first started monitor and cleared by the last stopped one.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class HeapPressureMonitor implements NotificationListener {
+    private static final Logger log = LoggerFactory.getLogger(HeapPressureMonitor.class);
+    //thresholds set by monitors(memory pool name -> threshold),guarded by class lock
+    private static final Map<String, Long> SetThresholds = new HashMap<String, Long>(4);
+    private static int startedCount;//guarded by class lock
+    private final int thresholdPercent;
+    private final List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>(4);
+    private final StatementCacheBudget budget;
+    private volatile boolean underPressure;
+    private boolean started;
+
+    HeapPressureMonitor(int thresholdPercent, StatementCacheBudget budget) {
+        this.thresholdPercent = thresholdPercent;
+        this.budget = budget;
+    }
+
+    void start() {
+        synchronized (HeapPressureMonitor.class) {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+                    long max = pool.getUsage().getMax();
+                    if (max <= 0) continue;
+                    heapPools.add(pool);
+                    //not to override threshold set by others
+                    if (pool.getCollectionUsageThreshold() == 0) {
+                        long threshold = max / 100 * thresholdPercent;
+                        pool.setCollectionUsageThreshold(threshold);
+                        SetThresholds.put(pool.getName(), threshold);
+                    }
+                }
+            }
+            startedCount++;
+            started = true;
+        }
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(this, null, null);
+    }
+
+    //remove listener,last stopped monitor restores thresholds set by monitors(can be called repeatedly)
+    void stop() {
+        synchronized (HeapPressureMonitor.class) {
+            if (!started) return;
+            started = false;
+            if (--startedCount == 0) {
+                for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                    Long threshold = SetThresholds.remove(pool.getName());
+                    //restore if not changed by others
+                    if (threshold != null && pool.getCollectionUsageThreshold() == threshold)
+                        pool.setCollectionUsageThreshold(0);
+                }
+            }
+        }
+        try {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(this);
+        } catch (ListenerNotFoundException e) {
+            //do nothing
+        }
+    }
+
+    public void handleNotification(Notification notification, Object handback) {
+        if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType()) && isOverThreshold()) {
+            underPressure = true;
+            if (budget.setHeapPressure(true))
+                log.info("Heap under pressure,statement cache budget shrink to {} bytes", budget.getLimitBytes());
+        }
+    }
+
+    /**
+     * re-check heap usage,clear pressure and restore budget if heap usage fall below threshold
+     *
+     * @return true if heap under pressure
+     */
+    boolean checkPressure() {
+        if (underPressure && !isOverThreshold()) {
+            underPressure = false;
+            if (budget.setHeapPressure(false))
+                log.info("Heap pressure cleared,statement cache budget restore to {} bytes", budget.getLimitBytes());
+        }
+        return underPressure;
+    }
+
+    private boolean isOverThreshold() {
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null && usage.getMax() > 0 && usage.getUsed() >= usage.getMax() / 100 * thresholdPercent)
+                return true;
+        }
+        return false;
+    }
+}
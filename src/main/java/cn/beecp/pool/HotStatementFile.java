@@ -0,0 +1,127 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Local file of pool hottest statements(SQL with statement options and access count),
+ * written on pool shutdown and at intervals,read at pool startup to warm up
+ * statement caches of connections before traffic arrives.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class HotStatementFile {
+    private static final int MAGIC = 0x42454543;//'BEEC'
+    private static final int VERSION = 2;
+    private static final Logger log = LoggerFactory.getLogger(HotStatementFile.class);
+
+    private final File file;
+
+    HotStatementFile(String path) {
+        this.file = new File(path);
+    }
+
+    /**
+     * register statements of file into registry
+     *
+     * @param registry pool sql registry
+     * @return loaded count
+     */
+    int read(SqlIdentityRegistry registry) {
+        if (!file.isFile()) return 0;
+
+        int count = 0;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("Ignored unknown hot statement file:{}", file);
+                return 0;
+            }
+            int size = in.readInt();
+            if (size < 0 || size > SqlIdentityRegistry.MAX_SIZE)
+                throw new IOException("Invalid statement count:" + size);
+            for (int i = 0; i < size; i++) {
+                CacheKey key = CacheKey.readFrom(in);
+                long accessCount = in.readLong();
+                if (accessCount < 0) throw new IOException("Invalid access count:" + accessCount);
+                SqlIdentity identity = registry.register(key);
+                if (identity == null) break;
+                identity.setSeedCount(accessCount);
+                count++;
+            }
+        } catch (Exception e) {//corrupt file must not fail pool initialization
+            log.warn("Failed to read hot statement file:{}", file, e);
+        } finally {
+            close(in);
+        }
+        return count;
+    }
+
+    /**
+     * write statements to a temporary file,then replace target file with it
+     *
+     * @param identities hottest statements
+     */
+    synchronized void write(SqlIdentity[] identities) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs())
+            throw new IOException("Failed to create directory:" + parent);
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(identities.length);
+            for (SqlIdentity identity : identities) {
+                identity.key.writeTo(out);
+                out.writeLong(identity.getAccessCount());
+            }
+            out.close();//flush error must not be ignored
+            out = null;
+        } finally {
+            close(out);
+        }
+
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(), REPLACE_EXISTING);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                log.warn("Failed to close hot statement file", e);
+            }
+        }
+    }
+}
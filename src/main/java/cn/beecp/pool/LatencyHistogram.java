@@ -0,0 +1,203 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.Long.numberOfLeadingZeros;
+
+/**
+ * Lock-free log-linear histogram of latency(nanoseconds),each power of two range is split
+ * into 8 linear sub buckets(relative error below 12.5%),values above 2^40 nanoseconds(about
+ * 18 minutes) fall into last bucket.Counts are striped by thread to reduce contention,
+ * recording is allocation free.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 39;
+    static final int BUCKET_COUNT = ((MAX_EXPONENT - SUB_BITS + 2) << SUB_BITS);
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int SUM_PADDING = 8;//sum slots of stripes not on same cache line
+
+    private final int stripeMask;
+    private final AtomicLongArray counts;//stripe * BUCKET_COUNT + bucket
+    private final AtomicLongArray sums;//stripe * SUM_PADDING
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param stripes count of stripes,rounded up to power of two
+     */
+    LatencyHistogram(int stripes) {
+        int size = 1;
+        while (size < stripes) size <<= 1;
+        this.stripeMask = size - 1;
+        this.counts = new AtomicLongArray(size * BUCKET_COUNT);
+        this.sums = new AtomicLongArray(size * SUM_PADDING);
+    }
+
+    //stripes for pool level histograms
+    static int defaultStripes() {
+        return Math.min(Runtime.getRuntime().availableProcessors(), 8);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_COUNT) return value < 0L ? 0 : (int) value;
+        if (value > MAX_VALUE) value = MAX_VALUE;
+        int exponent = 63 - numberOfLeadingZeros(value);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + (int) ((value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1));
+    }
+
+    //lowest value of bucket
+    static long bucketLowValue(int index) {
+        if (index < SUB_COUNT) return index;
+        int exponent = (index >>> SUB_BITS) + SUB_BITS - 1;
+        return (long) (SUB_COUNT + (index & (SUB_COUNT - 1))) << (exponent - SUB_BITS);
+    }
+
+    //highest value of bucket
+    static long bucketHighValue(int index) {
+        return index == BUCKET_COUNT - 1 ? MAX_VALUE : bucketLowValue(index + 1) - 1;
+    }
+
+    /**
+     * record one latency
+     *
+     * @param nanos latency in nanoseconds
+     */
+    void record(long nanos) {
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        counts.incrementAndGet(stripe * BUCKET_COUNT + bucketIndex(nanos));
+        sums.addAndGet(stripe * SUM_PADDING, nanos);
+        long curMax;
+        while (nanos > (curMax = max.get()) && !max.compareAndSet(curMax, nanos)) ;
+    }
+
+    //sum of recorded values in nanoseconds
+    long sum() {
+        long sum = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++)
+            sum += sums.get(stripe * SUM_PADDING);
+        return sum;
+    }
+
+    /**
+     * add values of a snapshot into first stripe,used to keep values of a removed histogram
+     *
+     * @param snapshot snapshot of other histogram
+     */
+    void add(Snapshot snapshot) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (snapshot.bucketCounts[i] != 0L) counts.addAndGet(i, snapshot.bucketCounts[i]);
+        }
+        sums.addAndGet(0, snapshot.sum);
+        long curMax;
+        while (snapshot.max > (curMax = max.get()) && !max.compareAndSet(curMax, snapshot.max)) ;
+    }
+
+    /**
+     * merge stripes to a snapshot,recording is not blocked,so a snapshot taken
+     * in recording may be off by the values in flight
+     */
+    Snapshot snapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        long count = 0, sum = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            int offset = stripe * BUCKET_COUNT;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long bucketCount = counts.get(offset + i);
+                if (bucketCount != 0L) {
+                    bucketCounts[i] += bucketCount;
+                    count += bucketCount;
+                }
+            }
+            sum += sums.get(stripe * SUM_PADDING);
+        }
+        return new Snapshot(bucketCounts, count, sum, max.get());
+    }
+
+    /**
+     * merge stripes to cumulative counts at upper bounds without allocation,values of a bucket
+     * crossing a bound are counted under next bound
+     *
+     * @param bounds ascending upper bounds in nanoseconds
+     * @param boundCounts cumulative count of each bound,length is bounds length plus one(total count)
+     * @return sum of values in nanoseconds
+     */
+    long fillCumulativeCounts(long[] bounds, long[] boundCounts) {
+        long sum = 0, total = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++)
+            sum += sums.get(stripe * SUM_PADDING);
+
+        int boundIndex = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long highValue = bucketHighValue(i);
+            while (boundIndex < bounds.length && highValue > bounds[boundIndex])
+                boundCounts[boundIndex++] = total;
+            for (int stripe = 0; stripe <= stripeMask; stripe++)
+                total += counts.get(stripe * BUCKET_COUNT + i);
+        }
+        while (boundIndex < bounds.length)
+            boundCounts[boundIndex++] = total;
+        boundCounts[bounds.length] = total;
+        return sum;
+    }
+
+    /**
+     * Immutable merged view of histogram
+     */
+    static final class Snapshot {
+        private final long[] bucketCounts;
+        final long count;
+        final long sum;//nanoseconds
+        final long max;//nanoseconds
+
+        Snapshot(long[] bucketCounts, long count, long sum, long max) {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @param percentile value in range(0,100]
+         * @return high value of bucket where the percentile falls,not above max;0 if empty
+         */
+        long getPercentile(double percentile) {
+            if (count == 0L) return 0L;
+            long rank = (long) Math.ceil(count * percentile / 100D);
+            if (rank < 1L) rank = 1L;
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += bucketCounts[i];
+                if (seen >= rank) return Math.min(bucketHighValue(i), max);
+            }
+            return max;
+        }
+
+        void fillMonitorVo(LatencyMonitorVo vo) {
+            vo.setCount(count);
+            vo.setTotalTime(sum / 1000L);
+            vo.setP50Time(getPercentile(50D) / 1000L);
+            vo.setP99Time(getPercentile(99D) / 1000L);
+            vo.setMaxTime(max / 1000L);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+/**
+ * Latency Monitor Vo,times are in microseconds
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+
+public class LatencyMonitorVo {
+    private long count;
+    private long totalTime;
+    private long p50Time;
+    private long p99Time;
+    private long maxTime;
+
+    public long getCount() {
+        return count;
+    }
+
+    void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    void setTotalTime(long totalTime) {
+        this.totalTime = totalTime;
+    }
+
+    public long getP50Time() {
+        return p50Time;
+    }
+
+    void setP50Time(long p50Time) {
+        this.p50Time = p50Time;
+    }
+
+    public long getP99Time() {
+        return p99Time;
+    }
+
+    void setP99Time(long p99Time) {
+        this.p99Time = p99Time;
+    }
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    void setMaxTime(long maxTime) {
+        this.maxTime = maxTime;
+    }
+}
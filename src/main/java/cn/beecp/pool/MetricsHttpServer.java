@@ -0,0 +1,177 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Metrics endpoint on JDK bundled http server,path '/metrics' exposes all running pools in
+ * OpenMetrics text format.A server is shared by pools configured with same address,started
+ * by first pool and stopped after last pool released it;scrapes are served one by one on
+ * dispatcher thread with reused buffers.Server binds loopback address if host not configured,
+ * its dispatcher thread is daemon,so it can't keep JVM alive.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class MetricsHttpServer implements HttpHandler {
+    static final String METRICS_PATH = "/metrics";
+    private static final Logger log = LoggerFactory.getLogger(MetricsHttpServer.class);
+    private static final Map<String, MetricsHttpServer> serverMap = new HashMap<String, MetricsHttpServer>(2);//guarded by class
+
+    private final String address;//host:port
+    private final HttpServer server;
+    private int referenceCount;//guarded by class
+
+    private final OpenMetricsWriter writer = new OpenMetricsWriter();
+    private final StringBuilder textBuf = new StringBuilder(8192);
+    private byte[] byteBuf = new byte[8192];
+
+    private MetricsHttpServer(String address, InetSocketAddress socketAddress) throws IOException {
+        this.address = address;
+        this.server = HttpServer.create(socketAddress, 0);
+        server.createContext(METRICS_PATH, this);
+        startInDaemonThread(server);
+    }
+
+    /**
+     * called by pool on initialization
+     *
+     * @param host bind address,null for loopback address
+     * @param port listen port
+     * @return server shared by pools of same address
+     * @throws IOException if failed to bind address
+     */
+    static synchronized MetricsHttpServer acquire(String host, int port) throws IOException {
+        String address = (host != null ? host : "loopback") + ":" + port;
+        MetricsHttpServer metricsServer = serverMap.get(address);
+        if (metricsServer == null) {
+            InetSocketAddress socketAddress = host != null ? new InetSocketAddress(host, port) : new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+            metricsServer = new MetricsHttpServer(address, socketAddress);
+            serverMap.put(address, metricsServer);
+            log.info("BeeCP metrics endpoint started on address:{}", socketAddress);
+        }
+        metricsServer.referenceCount++;
+        return metricsServer;
+    }
+
+    //called by pool on close,server stops when not referred by any pool
+    static synchronized void release(MetricsHttpServer metricsServer) {
+        if (--metricsServer.referenceCount == 0) {
+            serverMap.remove(metricsServer.address);
+            metricsServer.server.stop(0);
+        }
+    }
+
+    //dispatcher thread of JDK server is created in start and inherits daemon state of current thread
+    private static void startInDaemonThread(final HttpServer server) throws IOException {
+        final Throwable[] failure = new Throwable[1];
+        Thread starter = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    server.start();
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }
+        }, "BeeCP-MetricsStarter");
+        starter.setDaemon(true);
+        starter.start();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                starter.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (failure[0] != null) {
+            server.stop(0);
+            throw new IOException("Failed to start metrics endpoint", failure[0]);
+        }
+    }
+
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", OpenMetricsWriter.CONTENT_TYPE);
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            synchronized (this) {//buffers reused by scrapes
+                textBuf.setLength(0);
+                writer.write(textBuf);
+                int length = encodeUTF8();
+                exchange.sendResponseHeaders(200, length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(byteBuf, 0, length);
+                out.flush();
+            }
+        } catch (Throwable e) {
+            log.warn("BeeCP metrics endpoint failed to write metrics", e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    //encode text buffer to reused byte buffer,return byte length
+    private int encodeUTF8() {
+        int textLen = textBuf.length();
+        if (byteBuf.length < textLen * 3) byteBuf = new byte[textLen * 3];
+        byte[] bytes = byteBuf;
+        int pos = 0;
+        for (int i = 0; i < textLen; i++) {
+            char c = textBuf.charAt(i);
+            if (c < 0x80) {
+                bytes[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[pos++] = (byte) (0xC0 | (c >> 6));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < textLen && Character.isLowSurrogate(textBuf.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, textBuf.charAt(++i));
+                bytes[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                bytes[pos++] = (byte) (0xE0 | (c >> 12));
+                bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+}
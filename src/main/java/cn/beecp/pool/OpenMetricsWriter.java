@@ -0,0 +1,235 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+/**
+ * Writer of gauges,counters and latency histograms of all running pools in OpenMetrics text
+ * format(compatible with Prometheus),samples are appended to a buffer reused by caller,so a
+ * scrape allocates nothing except buffer growth.A writer keeps scratch arrays,not thread safe.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public final class OpenMetricsWriter {
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    //upper bounds of exported histogram buckets
+    private static final long[] BUCKET_BOUNDS = {
+            100000L, 500000L, 1000000L, 5000000L, 10000000L, 50000000L,
+            100000000L, 500000000L, 1000000000L, 5000000000L, 10000000000L};
+    private static final String[] BUCKET_LABELS = {
+            "0.0001", "0.0005", "0.001", "0.005", "0.01", "0.05",
+            "0.1", "0.5", "1.0", "5.0", "10.0", "+Inf"};
+
+    private static final String[] REASON_LABELS = new String[FastConnectionPool.REMOVE_REASONS.length];
+    private static final Object registryLock = new Object();
+    private static volatile PoolEntry[] poolEntries = new PoolEntry[0];
+
+    private final long[] bucketCounts = new long[BUCKET_LABELS.length];
+
+    static {
+        for (int i = 0; i < REASON_LABELS.length; i++)
+            REASON_LABELS[i] = toLabel("reason", FastConnectionPool.REMOVE_REASONS[i]);
+    }
+
+    //called by pool after initialization
+    static void register(FastConnectionPool pool) {
+        synchronized (registryLock) {
+            PoolEntry[] entries = poolEntries;
+            PoolEntry[] newEntries = new PoolEntry[entries.length + 1];
+            System.arraycopy(entries, 0, newEntries, 0, entries.length);
+            newEntries[entries.length] = new PoolEntry(pool);
+            poolEntries = newEntries;
+        }
+    }
+
+    //called by pool on close
+    static void unregister(FastConnectionPool pool) {
+        synchronized (registryLock) {
+            PoolEntry[] entries = poolEntries;
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].pool == pool) {
+                    PoolEntry[] newEntries = new PoolEntry[entries.length - 1];
+                    System.arraycopy(entries, 0, newEntries, 0, i);
+                    System.arraycopy(entries, i + 1, newEntries, i, newEntries.length - i);
+                    poolEntries = newEntries;
+                    return;
+                }
+            }
+        }
+    }
+
+    //escape label value:backslash,double quote and line feed
+    private static String toLabel(String name, String value) {
+        StringBuilder buf = new StringBuilder(name.length() + value.length() + 3);
+        buf.append(name).append("=\"");
+        for (int i = 0, l = value.length(); i < l; i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                buf.append('\\').append(c);
+            } else if (c == '\n') {
+                buf.append("\\n");
+            } else {
+                buf.append(c);
+            }
+        }
+        return buf.append('"').toString();
+    }
+
+    /**
+     * append metrics of all pools to buffer,ended with '# EOF'
+     *
+     * @param buf output buffer
+     */
+    public void write(StringBuilder buf) {
+        PoolEntry[] entries = poolEntries;
+
+        //gauges
+        writeFamily(buf, "beecp_connections", "gauge", "Pooled connections by state");
+        for (PoolEntry entry : entries) {
+            int idleSize = entry.pool.getConnIdleSize();
+            int totalSize = entry.pool.getConnTotalSize();
+            writeSample(buf, "beecp_connections", entry.label, "state=\"idle\"", idleSize);
+            writeSample(buf, "beecp_connections", entry.label, "state=\"using\"", Math.max(totalSize - idleSize, 0));
+        }
+        writeFamily(buf, "beecp_connections_max", "gauge", "Max size of pool");
+        for (PoolEntry entry : entries)
+            writeSample(buf, "beecp_connections_max", entry.label, null, entry.pool.getPoolMaxSize());
+        writeFamily(buf, "beecp_semaphore_waiting", "gauge", "Borrowers waiting for borrow semaphore");
+        for (PoolEntry entry : entries)
+            writeSample(buf, "beecp_semaphore_waiting", entry.label, null, entry.pool.getSemaphoreWaitingSize());
+        writeFamily(buf, "beecp_transfer_waiting", "gauge", "Borrowers waiting for released connections");
+        for (PoolEntry entry : entries)
+            writeSample(buf, "beecp_transfer_waiting", entry.label, null, entry.pool.getTransferWaitingSize());
+
+        //counters
+        writeFamily(buf, "beecp_borrows", "counter", "Connections borrowed");
+        for (PoolEntry entry : entries)
+            writeSample(buf, "beecp_borrows_total", entry.label, null, entry.counters.borrow.sum());
+        writeFamily(buf, "beecp_borrow_thread_local_hits", "counter", "Borrows of last used connection of thread");
+        for (PoolEntry entry : entries)
+            writeSample(buf, "beecp_borrow_thread_local_hits_total", entry.label, null, entry.counters.threadLocalHit.sum());
+        writeFamily(buf, "beecp_borrow_timeouts", "counter", "Borrows failed by wait timeout");
+        for (PoolEntry entry : entries)
+            writeSample(buf, "beecp_borrow_timeouts_total", entry.label, null, entry.counters.borrowTimeout.get());
+        writeFamily(buf, "beecp_borrow_interrupts", "counter", "Borrows failed by interruption");
+        for (PoolEntry entry : entries)
+            writeSample(buf, "beecp_borrow_interrupts_total", entry.label, null, entry.counters.borrowInterrupt.get());
+        writeFamily(buf, "beecp_connection_creates", "counter", "Connections created");
+        for (PoolEntry entry : entries)
+            writeSample(buf, "beecp_connection_creates_total", entry.label, null, entry.counters.create.get());
+        writeFamily(buf, "beecp_connection_create_failures", "counter", "Connection creations failed");
+        for (PoolEntry entry : entries)
+            writeSample(buf, "beecp_connection_create_failures_total", entry.label, null, entry.counters.createFail.get());
+        writeFamily(buf, "beecp_connection_removes", "counter", "Connections removed from pool by reason");
+        for (PoolEntry entry : entries) {
+            for (int i = 0; i < FastConnectionPool.REMOVE_REASONS.length; i++)
+                writeSample(buf, "beecp_connection_removes_total", entry.label, REASON_LABELS[i],
+                        entry.counters.getRemoveCount(FastConnectionPool.REMOVE_REASONS[i]));
+        }
+        writeFamily(buf, "beecp_hold_timeout_salvages", "counter", "Hold timeout connections returned to pool");
+        for (PoolEntry entry : entries)
+            writeSample(buf, "beecp_hold_timeout_salvages_total", entry.label, null, entry.counters.holdTimeoutSalvaged.get());
+
+        //histograms,only of pools recording latency
+        writeHistogramFamily(buf, entries, "beecp_borrow_semaphore_wait_seconds", "Borrow wait time for semaphore", 0);
+        writeHistogramFamily(buf, entries, "beecp_borrow_transfer_wait_seconds", "Borrow wait time for released connection", 1);
+        writeHistogramFamily(buf, entries, "beecp_connection_hold_seconds", "Connection hold time from borrow to return", 2);
+        writeHistogramFamily(buf, entries, "beecp_connection_create_seconds", "Connection creation time", 3);
+        writeHistogramFamily(buf, entries, "beecp_connection_validation_seconds", "Connection validation time", 4);
+        buf.append("# EOF\n");
+    }
+
+    private void writeHistogramFamily(StringBuilder buf, PoolEntry[] entries, String name, String help, int histogramIndex) {
+        boolean familyWritten = false;
+        for (PoolEntry entry : entries) {
+            PoolLatencyRecorder recorder = entry.pool.getLatencyRecorder();
+            if (recorder == null) continue;
+            if (!familyWritten) {
+                writeFamily(buf, name, "histogram", help);
+                familyWritten = true;
+            }
+
+            LatencyHistogram histogram;
+            switch (histogramIndex) {
+                case 0:
+                    histogram = recorder.semaphoreWait;
+                    break;
+                case 1:
+                    histogram = recorder.transferWait;
+                    break;
+                case 2:
+                    histogram = recorder.hold;
+                    break;
+                case 3:
+                    histogram = recorder.creation;
+                    break;
+                default:
+                    histogram = recorder.validation;
+            }
+
+            long sum = histogram.fillCumulativeCounts(BUCKET_BOUNDS, bucketCounts);
+            for (int i = 0; i < BUCKET_LABELS.length; i++) {
+                buf.append(name).append("_bucket{").append(entry.label).append(",le=\"")
+                        .append(BUCKET_LABELS[i]).append("\"} ").append(bucketCounts[i]).append('\n');
+            }
+            buf.append(name).append("_count{").append(entry.label).append("} ")
+                    .append(bucketCounts[BUCKET_LABELS.length - 1]).append('\n');
+            buf.append(name).append("_sum{").append(entry.label).append("} ");
+            appendSeconds(buf, sum);
+            buf.append('\n');
+        }
+    }
+
+    private static void writeFamily(StringBuilder buf, String name, String type, String help) {
+        buf.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        buf.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    private static void writeSample(StringBuilder buf, String name, String poolLabel, String label, long value) {
+        buf.append(name).append('{').append(poolLabel);
+        if (label != null) buf.append(',').append(label);
+        buf.append("} ").append(value).append('\n');
+    }
+
+    //nanoseconds to decimal seconds,no floating point formatting
+    static void appendSeconds(StringBuilder buf, long nanos) {
+        buf.append(nanos / 1000000000L).append('.');
+        long fraction = nanos % 1000000000L;
+        if (fraction == 0L) {
+            buf.append('0');
+            return;
+        }
+        long divisor = 100000000L;
+        while (fraction > 0L) {
+            buf.append((char) ('0' + fraction / divisor));
+            fraction %= divisor;
+            divisor /= 10L;
+        }
+    }
+
+    private static final class PoolEntry {
+        final FastConnectionPool pool;
+        final PoolCounters counters;
+        final String label;//pool label,escaped once on registration
+
+        PoolEntry(FastConnectionPool pool) {
+            this.pool = pool;
+            this.counters = pool.getCounters();
+            this.label = toLabel("pool", pool.getPoolName());
+        }
+    }
+}
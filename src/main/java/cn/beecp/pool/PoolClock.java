@@ -0,0 +1,59 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Coarse clock of pool,time is refreshed by a ticker task at configured resolution,so
+ * reading time on statement execution is a volatile read instead of system call.Clock
+ * lags behind system time at most one resolution,zero resolution means system time.
+ * Ticker runs in timer thread of shared scheduler,resolution is rounded up to its tick.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class PoolClock implements Runnable {
+    private final long resolution;//milliseconds
+    private volatile long currentTime;
+    private SharedScheduler.ScheduledTask tickTask;
+
+    PoolClock(long resolution) {
+        this.resolution = resolution;
+        this.currentTime = System.currentTimeMillis();
+    }
+
+    /**
+     * @return milliseconds,same to System.currentTimeMillis() when resolution is zero
+     */
+    long currentTimeMillis() {
+        return resolution > 0L ? currentTime : System.currentTimeMillis();
+    }
+
+    //ticker task
+    public void run() {
+        currentTime = System.currentTimeMillis();
+    }
+
+    void start(SharedScheduler scheduler) {
+        if (resolution > 0L)
+            tickTask = scheduler.schedule(this, resolution, resolution, MILLISECONDS, true);
+    }
+
+    void stop() {
+        if (tickTask != null) tickTask.cancel();
+    }
+}
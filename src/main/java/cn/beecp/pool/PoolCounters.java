@@ -0,0 +1,88 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cn.beecp.pool.PoolExceptionList.RequestInterruptException;
+import static cn.beecp.pool.PoolExceptionList.RequestTimeoutException;
+
+/**
+ * Cumulative counters of pool,counters on borrow path are striped,others are plain
+ * atomic counters(updated in rare case)
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class PoolCounters {
+    final StripedCounter borrow = new StripedCounter();
+    final StripedCounter threadLocalHit = new StripedCounter();//borrowed last used connection of thread
+    final StripedCounter savedRoundTrip = new StripedCounter();//driver calls skipped on return path
+    final AtomicLong borrowTimeout = new AtomicLong();
+    final AtomicLong borrowInterrupt = new AtomicLong();
+    final AtomicLong create = new AtomicLong();
+    final AtomicLong createFail = new AtomicLong();
+    final AtomicLong holdTimeoutSalvaged = new AtomicLong();//hold timeout connections returned to pool
+    private final ConcurrentHashMap<String, AtomicLong> removeCounts = new ConcurrentHashMap<String, AtomicLong>(8);
+
+    //count borrow failed by timeout or interruption
+    void borrowFailed(SQLException e) {
+        if (e == RequestTimeoutException)
+            borrowTimeout.incrementAndGet();
+        else if (e == RequestInterruptException)
+            borrowInterrupt.incrementAndGet();
+    }
+
+    /**
+     * count connection removal
+     *
+     * @param reason remove description of pool
+     */
+    void removed(String reason) {
+        AtomicLong count = removeCounts.get(reason);
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong();
+            count = removeCounts.putIfAbsent(reason, newCount);
+            if (count == null) count = newCount;
+        }
+        count.incrementAndGet();
+    }
+
+    long getRemoveCount(String reason) {
+        AtomicLong count = removeCounts.get(reason);
+        return count != null ? count.get() : 0L;
+    }
+
+    void fillMonitorVo(ConnectionPoolMonitorVo vo) {
+        vo.setBorrowCount(borrow.sum());
+        vo.setThreadLocalHitCount(threadLocalHit.sum());
+        vo.setSavedRoundTripCount(savedRoundTrip.sum());
+        vo.setBorrowTimeoutCount(borrowTimeout.get());
+        vo.setBorrowInterruptCount(borrowInterrupt.get());
+        vo.setCreateCount(create.get());
+        vo.setCreateFailCount(createFail.get());
+        vo.setHoldTimeoutSalvagedCount(holdTimeoutSalvaged.get());
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : removeCounts.entrySet())
+            counts.put(entry.getKey(), entry.getValue().get());
+        vo.setRemoveCounts(Collections.unmodifiableMap(counts));
+    }
+}
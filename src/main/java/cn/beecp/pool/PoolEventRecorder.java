@@ -0,0 +1,63 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+/**
+ * Recorder of pool activity events,implementation is loaded only when enabled,so pool classes
+ * not depend on event framework.A begin method returns null if the event type is not enabled,
+ * the end method is called only with a non-null event.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+interface PoolEventRecorder {
+
+    Object beginBorrow();
+
+    /**
+     * @param groupWaitTime     nanoseconds,time waiting for borrower group quota
+     * @param semaphoreWaitTime nanoseconds,time waiting for borrow semaphore
+     * @param transferWaitTime  nanoseconds,time waiting in queue for released connection
+     * @param failure           borrow failure,null if success
+     */
+    void endBorrow(Object event, long groupWaitTime, long semaphoreWaitTime, long transferWaitTime, Throwable failure);
+
+    Object beginReturn();
+
+    //holdTime:nanoseconds from borrow to return
+    void endReturn(Object event, long holdTime);
+
+    Object beginCreate();
+
+    void endCreate(Object event, boolean success);
+
+    Object beginClose();
+
+    void endClose(Object event, String reason);
+
+    Object beginValidation();
+
+    void endValidation(Object event, boolean active);
+
+    Object beginHoldTimeout();
+
+    //inactiveTime:milliseconds since last access,salvaged:true if connection returned to pool
+    void endHoldTimeout(Object event, long inactiveTime, boolean salvaged);
+
+    Object beginStatementEvict();
+
+    void endStatementEvict(Object event, String sql);
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+/**
+ * Latency histograms of pool operations:borrow wait(semaphore phase and transfer phase),
+ * connection hold time,connection creation time and connection validation time.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class PoolLatencyRecorder {
+    final LatencyHistogram semaphoreWait;//wait for borrow semaphore
+    final LatencyHistogram transferWait;//wait in queue until a released connection caught
+    final LatencyHistogram hold;//from borrow to return
+    final LatencyHistogram creation;
+    final LatencyHistogram validation;
+
+    PoolLatencyRecorder() {
+        int stripes = LatencyHistogram.defaultStripes();
+        semaphoreWait = new LatencyHistogram(stripes);
+        transferWait = new LatencyHistogram(stripes);
+        hold = new LatencyHistogram(stripes);
+        creation = new LatencyHistogram(1);//created in lock
+        validation = new LatencyHistogram(stripes);
+    }
+
+    static LatencyMonitorVo getMonitorVo(LatencyHistogram histogram) {
+        LatencyMonitorVo vo = new LatencyMonitorVo();
+        histogram.snapshot().fillMonitorVo(vo);
+        return vo;
+    }
+
+    void fillMonitorVo(ConnectionPoolMonitorVo vo) {
+        vo.setSemaphoreWaitLatency(getMonitorVo(semaphoreWait));
+        vo.setTransferWaitLatency(getMonitorVo(transferWait));
+        vo.setHoldLatency(getMonitorVo(hold));
+        vo.setCreationLatency(getMonitorVo(creation));
+        vo.setValidationLatency(getMonitorVo(validation));
+    }
+}
@@ -19,17 +19,17 @@ import cn.beecp.BeeDataSourceConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.sql.Statement;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import static cn.beecp.util.BeecpUtil.oclose;
 import static java.lang.System.arraycopy;
-import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
 
 /**
  * Pooled Connection
@@ -37,7 +37,7 @@ import static java.lang.System.currentTimeMillis;
  * @author Chris.Liao
  * @version 1.0
  */
-class PooledConnection extends LinkedHashMap<Object, PreparedStatement> {
+class PooledConnection {
     private static final boolean[] DEFAULT_IND = new boolean[6];
     private static Logger log = LoggerFactory.getLogger(PooledConnection.class);
 
@@ -45,25 +45,63 @@ class PooledConnection extends LinkedHashMap<Object, PreparedStatement> {
     boolean stmCacheValid;
     Connection rawConn;
     ProxyConnectionBase proxyConn;
+    volatile BorrowerGroup borrowerGroup;//set before proxy published,released by owner or idle scan on hold timeout
+    ProxyObjectFactory proxyFactory;//set by pool on borrow,factory of proxy connection
+    final boolean reuseProxyObject;
     volatile long lastAccessTime;
+    final PoolClock clock;
     boolean commitDirtyInd;
+    boolean warningDirtyInd;//connection level driver call since last clear,connection warnings may exist
+    private final StripedCounter savedRoundTrips;//driver calls skipped on return,shared counter of pool
     boolean curAutoCommit;
+    //known session state,driver is not called by proxy for unchanged setting and known reading,
+    //isolation,readOnly,catalog and schema are known only after reading from driver
+    final boolean cacheSessionState;
+    int curTransactionIsolation;
+    boolean curReadOnly;
+    String curCatalog;
+    String curSchema;
+    boolean curTransactionIsolationKnown;
+    boolean curReadOnlyKnown;
+    boolean curCatalogKnown;//known only after reading,some drivers ignore setting
+    boolean curSchemaKnown;
+    //deferred reset,changed session state is reset when connection used by other thread or not set by borrower
+    final boolean deferredSessionReset;
+    int resetPendingCount;
+    long lastBorrowThreadId;
+    private boolean[] resetPendingInd = new boolean[6];
+    final RequestBoundary requestBoundary;//null if not enabled or driver not support JDBC4.3 request boundary
     boolean defaultAutoCommit;
     int defaultTransactionIsolationCode;
     boolean defaultReadOnly;
     String defaultCatalog;
     String defaultSchema;
     int defaultNetworkTimeout;
+    final int defaultQueryTimeout;//seconds,enforced by cancel from shared scheduler
+    final boolean holdTimeoutRecovery;
+    final SqlLatencyRegistry sqlLatencyRegistry;//null if SQL latency not recorded
+    final PoolLatencyRecorder latencyRecorder;//null if pool latency not recorded
+    final PoolEventRecorder eventRecorder;//null if pool events not enabled
+    long borrowNanoTime;//set on borrow when pool latency recorded or events enabled
     private int stmCacheSize;
     private ThreadPoolExecutor defaultNetworkTimeoutExecutor;
     private FastConnectionPool pool;
     private short changedCount;
     //changed indicator
     private boolean[] changedInd = new boolean[6];
+    //reusable lookup key of statement cache
+    private final CacheKey cacheKey = new CacheKey();
+    private SqlIdentity cacheIdentity;//identity of last lookup
+    private StatementCache.Entry checkedOutEntry;//entry found or put by last lookup,taken by its statement proxy
+    private long prepareStartTime;//nanoseconds,set on cache miss
+    private SqlIdentityRegistry sqlRegistry;
+    private StatementCache stmCache;
+    private StatementCacheBudget stmCacheBudget;
 
     public PooledConnection(Connection rawConn, int connState, FastConnectionPool connPool, BeeDataSourceConfig config) throws SQLException {
-        super(config.getPreparedStatementCacheSize() * 2, 0.75f, true);
         pool = connPool;
+        clock = pool.getPoolClock();
+        savedRoundTrips = pool.getCounters().savedRoundTrip;
         state = connState;
         this.rawConn = rawConn;
 
@@ -75,16 +113,31 @@ class PooledConnection extends LinkedHashMap<Object, PreparedStatement> {
         defaultSchema = config.getDefaultSchema();
         defaultNetworkTimeout = pool.getNetworkTimeout();
         defaultNetworkTimeoutExecutor = pool.getNetworkTimeoutExecutor();
+        defaultQueryTimeout = config.getDefaultQueryTimeout();
+        holdTimeoutRecovery = config.isHoldTimeoutRecovery();
+        sqlLatencyRegistry = pool.getSqlLatencyRegistry();
+        latencyRecorder = pool.getLatencyRecorder();
+        eventRecorder = pool.getEventRecorder();
 
         stmCacheSize = config.getPreparedStatementCacheSize();
+        sqlRegistry = pool.getSqlRegistry();
         stmCacheValid = stmCacheSize > 0;
+        if (stmCacheValid) {
+            stmCacheBudget = pool.getStatementCacheBudget();
+            stmCache = StatementCache.create(config.getPreparedStatementCachePolicyCode(), stmCacheSize, stmCacheBudget, sqlRegistry);
+            stmCache.eventRecorder = eventRecorder;
+        }
         curAutoCommit = defaultAutoCommit;
-        lastAccessTime = currentTimeMillis();
+        reuseProxyObject = config.isReuseProxyObject();
+        cacheSessionState = config.isCacheSessionState();
+        deferredSessionReset = config.isDeferredSessionReset();
+        requestBoundary = config.isEnableRequestBoundary() ? RequestBoundary.lookup(rawConn.getClass()) : null;
+        lastAccessTime = clock.currentTimeMillis();
     }
 
     void closeRawConn() {//called by pool
         try {
-            this.clear();
+            if (stmCache != null) stmCache.clear();
             resetRawConnOnReturn();
         } catch (SQLException e) {
             log.error("Connection close error", e);
@@ -95,22 +148,84 @@ class PooledConnection extends LinkedHashMap<Object, PreparedStatement> {
 
     //***************called by connection proxy ********//
     void returnToPoolBySelf() throws SQLException {
+        Object event = eventRecorder != null ? eventRecorder.beginReturn() : null;
         try {
             proxyConn = null;
-            resetRawConnOnReturn();
+            long holdTime = (latencyRecorder != null || event != null) ? nanoTime() - borrowNanoTime : 0L;
+            if (latencyRecorder != null) latencyRecorder.hold.record(holdTime);
+            releaseBorrowerGroup();
+            resetOnEndRequest();
             pool.recycle(this);
+            if (event != null) eventRecorder.endReturn(event, holdTime);
         } catch (SQLException e) {
             pool.abandonOnReturn(this);
             throw e;
         }
     }
 
+    /**
+     * salvage connection after hold timeout,called by pool on a salvage worker;running statement of closed
+     * proxy is cancelled,reset is done only after the execution returned,which may write this connection
+     *
+     * @param proxyConn proxy closed on hold timeout
+     * @param waitNanos max wait time of cancelled execution
+     * @throws SQLException if failed to cancel or reset,or execution not returned in wait time
+     */
+    void resetOnHoldTimeout(ProxyConnectionBase proxyConn, long waitNanos) throws SQLException {
+        if (!proxyConn.cancelRunningStatement(waitNanos))
+            throw new SQLException("Cancelled statement not returned in wait time");
+        if (!curAutoCommit) commitDirtyInd = true;//cancelled statement may have changed data
+        resetOnEndRequest();
+    }
+
+    //reset connection and end request,reset of pool is skipped if it is done by driver in endRequest
+    private void resetOnEndRequest() throws SQLException {
+        if (requestBoundary == null) {
+            resetRawConnOnReturn();
+        } else if (requestBoundary.driverReset) {
+            resetByDriverOnEndRequest();
+        } else {
+            resetRawConnOnReturn();
+            requestBoundary.end(rawConn);
+        }
+    }
+
+    /**
+     * driver rolls back,restores autoCommit,isolation,catalog and networkTimeout,clears warnings
+     * and closes statements in endRequest,readOnly and schema are reset by pool
+     */
+    private void resetByDriverOnEndRequest() throws SQLException {
+        if (stmCache != null) stmCache.clear();//closed by driver
+        requestBoundary.end(rawConn);
+        commitDirtyInd = false;
+        warningDirtyInd = false;
+        curAutoCommit = defaultAutoCommit;
+        curTransactionIsolationKnown = false;
+        curCatalogKnown = false;
+        if (changedCount > 0) {
+            if (changedInd[2]) resetChangedState(2);
+            if (changedInd[4]) resetChangedState(4);
+            changedCount = 0;
+            arraycopy(DEFAULT_IND, 0, changedInd, 0, 6);
+        }
+    }
+
+    //return quota to borrower group
+    void releaseBorrowerGroup() {
+        BorrowerGroup group = borrowerGroup;
+        if (group != null) {
+            borrowerGroup = null;
+            group.release();
+        }
+    }
+
     void updateAccessTimeWithCommitDirty() {
         commitDirtyInd = !curAutoCommit;
-        lastAccessTime = currentTimeMillis();
+        lastAccessTime = clock.currentTimeMillis();
     }
 
     void setChangedInd(int pos, boolean changed) {
+        warningDirtyInd = true;
         if (!changedInd[pos] && changed)//false ->true       +1
             changedCount++;
         else if (changedInd[pos] && !changed)//true-->false  -1
@@ -119,6 +234,57 @@ class PooledConnection extends LinkedHashMap<Object, PreparedStatement> {
         //lastAccessTime=currentTimeMillis();
     }
 
+    //***************called by proxies to create statement and result set ********//
+    ProxyStatementBase createProxyStatement(Statement s, ProxyConnectionBase proxyConn) {
+        warningDirtyInd = true;
+        ProxyStatementBase p = proxyConn.reusableStatement;
+        if (p == null) return proxyFactory.createProxyStatement(s, proxyConn, this);
+        proxyConn.reusableStatement = null;
+        p.reopen(s, proxyConn, true);
+        return p;
+    }
+
+    ProxyStatementBase createProxyPsStatement(PreparedStatement s, String sql, ProxyConnectionBase proxyConn, boolean closeDlg) {
+        if (closeDlg) warningDirtyInd = true;//not from cache
+        ProxyStatementBase p = proxyConn.reusablePsStatement;
+        if (p == null) {
+            p = proxyFactory.createProxyPsStatement(s, proxyConn, this, closeDlg);
+        } else {
+            proxyConn.reusablePsStatement = null;
+            p.reopen(s, proxyConn, closeDlg);
+        }
+        p.cacheEntry = closeDlg ? null : takeCheckedOutEntry();
+        if (sqlLatencyRegistry != null) p.setPreparedLatency(sqlLatencyRegistry.get(sql));
+        return p;
+    }
+
+    ProxyStatementBase createProxyCsStatement(CallableStatement s, String sql, ProxyConnectionBase proxyConn, boolean closeDlg) {
+        if (closeDlg) warningDirtyInd = true;//not from cache
+        ProxyStatementBase p = proxyConn.reusableCsStatement;
+        if (p == null) {
+            p = proxyFactory.createProxyCsStatement(s, proxyConn, this, closeDlg);
+        } else {
+            proxyConn.reusableCsStatement = null;
+            p.reopen(s, proxyConn, closeDlg);
+        }
+        p.cacheEntry = closeDlg ? null : takeCheckedOutEntry();
+        if (sqlLatencyRegistry != null) p.setPreparedLatency(sqlLatencyRegistry.get(sql));
+        return p;
+    }
+
+    ProxyResultSetBase createProxyResultSet(ResultSet rs, ProxyStatementBase proxyStatement) {
+        ProxyConnectionBase proxyConn = proxyStatement.proxyConn;
+        ProxyResultSetBase r = proxyConn.reusableResultSet;
+        if (r == null) return proxyFactory.createProxyResultSet(rs, proxyStatement, this);
+        proxyConn.reusableResultSet = null;
+        r.reopen(rs, proxyStatement);
+        return r;
+    }
+
+    SharedScheduler getScheduler() {
+        return pool.getScheduler();
+    }
+
     boolean isSupportValidTest() {
         return pool.isSupportValidTest();
     }
@@ -131,106 +297,223 @@ class PooledConnection extends LinkedHashMap<Object, PreparedStatement> {
         return pool.isSupportNetworkTimeout();
     }
 
+    /**
+     * rollback and clearWarnings are called only when transaction or warnings may exist,
+     * skipped clearWarnings calls are counted as saved round trips.Statement execution
+     * is not tracked for warnings,which are reported on statement(JDBC spec).In deferred
+     * reset mode,changed session state is marked as pending and not reset here
+     */
     void resetRawConnOnReturn() throws SQLException {
+        if (stmCache != null) stmCache.removeCheckedOut();//state of statements in unclosed proxies is unknown
         if (!curAutoCommit && commitDirtyInd) {//Roll back when commit dirty
             rawConn.rollback();
             commitDirtyInd = false;
+            warningDirtyInd = true;
         }
         //reset begin
         if (changedCount > 0) {
-            if (changedInd[0]) {//reset autoCommit
+            if (deferredSessionReset) {
+                arraycopy(changedInd, 0, resetPendingInd, 0, 6);
+                resetPendingCount = changedCount;
+            } else {
+                warningDirtyInd = true;
+                for (int i = 0; i < 6; i++)
+                    if (changedInd[i]) resetChangedState(i);
+
+                changedCount = 0;
+                arraycopy(DEFAULT_IND, 0, changedInd, 0, 6);
+            }
+        }//reset end
+
+        //clear warnings
+        if (warningDirtyInd) {
+            rawConn.clearWarnings();
+            warningDirtyInd = false;
+        } else {
+            savedRoundTrips.increment();
+        }
+    }
+
+    private void resetChangedState(int pos) throws SQLException {
+        switch (pos) {
+            case 0: {//reset autoCommit
                 rawConn.setAutoCommit(defaultAutoCommit);
                 curAutoCommit = defaultAutoCommit;
+                break;
             }
-            if (changedInd[1])
+            case 1: {//reset transactionIsolation
                 rawConn.setTransactionIsolation(defaultTransactionIsolationCode);
-            if (changedInd[2]) //reset readonly
+                curTransactionIsolationKnown = false;
+                break;
+            }
+            case 2: {//reset readonly
                 rawConn.setReadOnly(defaultReadOnly);
-            if (changedInd[3]) //reset catalog
+                curReadOnlyKnown = false;
+                break;
+            }
+            case 3: {//reset catalog
                 rawConn.setCatalog(defaultCatalog);
-
+                curCatalogKnown = false;
+                break;
+            }
             //for JDK1.7 begin
-            if (changedInd[4]) //reset schema
+            case 4: {//reset schema
                 rawConn.setSchema(defaultSchema);
-            if (changedInd[5]) //reset networkTimeout
+                curSchemaKnown = false;
+                break;
+            }
+            case 5: {//reset networkTimeout
                 rawConn.setNetworkTimeout(defaultNetworkTimeoutExecutor, defaultNetworkTimeout);
+                break;
+            }
             //for JDK1.7 end
+        }
+    }
 
-            changedCount = 0;
-            arraycopy(DEFAULT_IND, 0, changedInd, 0, 6);
-        }//reset end
+    /*********************************** Deferred reset ********************/
+    boolean isResetPending(int pos) {
+        return resetPendingInd[pos];
+    }
 
-        //clear warnings
-        rawConn.clearWarnings();
+    //borrower sets the state,pending reset of it is not needed
+    void cancelResetPending(int pos) {
+        if (resetPendingInd[pos]) {
+            resetPendingInd[pos] = false;
+            resetPendingCount--;
+            savedRoundTrips.increment();
+        }
     }
 
-    /*********************************** PreparedStatement Cache********************/
-    public boolean removeEldestEntry(Map.Entry<Object, PreparedStatement> eldest) {
-        if ((size() > stmCacheSize)) {
-            oclose(eldest.getValue());
-            return true;
+    void resetPendingState(int pos) throws SQLException {
+        if (resetPendingInd[pos]) {
+            resetPendingInd[pos] = false;
+            resetPendingCount--;
+            resetChangedState(pos);
+            setChangedInd(pos, false);
         }
-        return false;
     }
 
-    public void clear() {
-        Iterator<PreparedStatement> itor = this.values().iterator();
-        while (itor.hasNext()) oclose(itor.next());
-        super.clear();
+    //reset all pending state,called before connection used or claimed by other thread
+    void resetPendingState() throws SQLException {
+        for (int i = 0; i < 6 && resetPendingCount > 0; i++)
+            resetPendingState(i);
     }
-}
 
-final class CacheKey {
-    private int h;
-    private Object[] v;
+    /*********************************** PreparedStatement Cache********************/
+    PreparedStatement getStatement(int type, String sql) {
+        return getStatement(cacheKey.set(type, CacheKey.ARGS_SQL, sql, 0, 0, 0, null, null));
+    }
+
+    PreparedStatement getStatement(int type, String sql, int autoGeneratedKeys) {
+        return getStatement(cacheKey.set(type, CacheKey.ARGS_AUTO_KEYS, sql, autoGeneratedKeys, 0, 0, null, null));
+    }
+
+    PreparedStatement getStatement(int type, String sql, int[] columnIndexes) {
+        return getStatement(cacheKey.set(type, CacheKey.ARGS_COLUMN_INDEXES, sql, 0, 0, 0, columnIndexes, null));
+    }
+
+    PreparedStatement getStatement(int type, String sql, String[] columnNames) {
+        return getStatement(cacheKey.set(type, CacheKey.ARGS_COLUMN_NAMES, sql, 0, 0, 0, null, columnNames));
+    }
 
-    public CacheKey(int type, String sql) {
-        v = new Object[]{type, sql};
-        h = hashCode(v);
+    PreparedStatement getStatement(int type, String sql, int resultSetType, int resultSetConcurrency) {
+        return getStatement(cacheKey.set(type, CacheKey.ARGS_RESULT_SET, sql, resultSetType, resultSetConcurrency, 0, null, null));
     }
 
-    public CacheKey(int type, String sql, int autoGeneratedKeys) {
-        v = new Object[]{type, sql, autoGeneratedKeys};
-        h = hashCode(v);
+    PreparedStatement getStatement(int type, String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) {
+        return getStatement(cacheKey.set(type, CacheKey.ARGS_RESULT_SET_HOLD, sql, resultSetType, resultSetConcurrency, resultSetHoldability, null, null));
     }
 
-    public CacheKey(int type, String sql, int[] columnIndexes) {
-        v = new Object[]{type, sql, columnIndexes};
-        h = hashCode(v);
+    private PreparedStatement getStatement(CacheKey key) {
+        SqlIdentity identity = sqlRegistry.get(key);
+        cacheIdentity = identity;
+        if (identity == null) {
+            prepareStartTime = nanoTime();
+            return null;
+        }
+        StatementCache.Entry entry = stmCache.get(identity);
+        if (entry == null) {
+            prepareStartTime = nanoTime();
+            return null;
+        }
+        checkedOutEntry = entry;
+        return entry.statement;
     }
 
-    public CacheKey(int type, String sql, String[] columnNames) {
-        v = new Object[]{type, sql, columnNames};
-        h = hashCode(v);
+    /**
+     * put statement with key of last lookup(called after getStatement missed)
+     *
+     * @param statement new created statement
+     * @return true if statement cached,false if its identity can't be registered,rejected by cache policy
+     * or statement of same identity in use by other proxy
+     */
+    boolean putStatement(PreparedStatement statement) {
+        warningDirtyInd = true;//prepared by driver
+        SqlIdentity identity = cacheIdentity;
+        if (identity == null || identity.retired) {//retired identity removed from registry after lookup
+            if ((identity = sqlRegistry.register(cacheKey)) == null) return false;
+            stmCache.access(identity);
+        }
+
+        sqlRegistry.miss(identity, nanoTime() - prepareStartTime);
+        StatementCache.Entry entry = stmCache.put(identity, statement);
+        if (entry == null) return false;
+        checkedOutEntry = stmCache.checkOut(entry);
+        if (stmCacheBudget != null && stmCacheBudget.isOverLimit())
+            trimStatementCache(pool.getStatementCacheShare(), identity);
+        return true;
     }
 
-    public CacheKey(int type, String sql, int resultSetType, int resultSetConcurrency) {
-        v = new Object[]{type, sql, resultSetType, resultSetConcurrency};
-        h = hashCode(v);
+    private StatementCache.Entry takeCheckedOutEntry() {
+        StatementCache.Entry entry = checkedOutEntry;
+        checkedOutEntry = null;
+        return entry;
     }
 
-    public CacheKey(int type, String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) {
-        v = new Object[]{type, sql, resultSetType, resultSetConcurrency, resultSetHoldability};
-        h = hashCode(v);
+    //called by statement proxy on close,statement can be found by lookup again
+    void releaseStatement(StatementCache.Entry entry) {
+        stmCache.release(entry);
     }
 
-    private static final int hashCode(Object a[]) {
-        int h = 1;
-        for (Object e : a)
-            h = 31 * h + e.hashCode();
-        return h;
+    //remove statement from cache and close it(statement can't be reused)
+    void removeStatement(PreparedStatement statement) {
+        if (stmCache != null) stmCache.remove(statement);
+        oclose(statement);
     }
 
-    public int hashCode() {
-        return h;
+    /**
+     * evict statements while pool-wide budget exceeded and cached bytes of this connection over its share
+     *
+     * @param share    fair share bytes of one connection
+     * @param excluded statement not to be evicted,may be null
+     */
+    void trimStatementCache(long share, SqlIdentity excluded) {
+        while (stmCacheBudget.isOverLimit() && stmCache.getCachedBytes() > share) {
+            if (!stmCache.evictOne(excluded)) break;
+        }
     }
 
-    public boolean equals(Object obj) {
-        Object[] ov = ((CacheKey) obj).v;
-        for (int i = 0, l = v.length; i < l; i++) {
-            if (!v[i].equals(ov[i]))
-                return false;
+    /**
+     * pre-prepare statements into cache before connection reaches borrowers
+     *
+     * @param identities statements to prepare,hottest first
+     * @param deadline   nanoseconds,time point to stop warm-up
+     * @return count of prepared statements
+     */
+    int warmUpStatementCache(SqlIdentity[] identities, long deadline) {
+        int count = 0;
+        for (SqlIdentity identity : identities) {
+            if (nanoTime() - deadline >= 0L) break;
+            try {
+                PreparedStatement statement = identity.key.prepare(rawConn);
+                if (stmCache.put(identity, statement) != null)
+                    count++;
+                else
+                    oclose(statement);
+            } catch (SQLException e) {
+                log.debug("Failed to pre-prepare statement:{}", identity.getSql(), e);
+            }
         }
-        return true;
+        return count;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,915 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Class file writer of JDBC proxy classes,which works at pool initialization without
+ * bytecode library,also used by {@link ProxyClassGenerator} to write pre-generated classes,output
+ * bytes are stable for same pool classes,so pre-generated classes can be checked against them
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class ProxyClassWriter {
+    private static final int CLASS_VERSION = 51;//java 7
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int ICONST_1 = 0x04;
+    private static final int BIPUSH = 0x10;
+    private static final int ILOAD = 0x15;
+    private static final int LLOAD = 0x16;
+    private static final int FLOAD = 0x17;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD = 0x19;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ISTORE = 0x36;
+    private static final int ASTORE = 0x3a;
+    private static final int DUP = 0x59;
+    private static final int SWAP = 0x5f;
+    private static final int IOR = 0x80;
+    private static final int IXOR = 0x82;
+    private static final int IFEQ = 0x99;
+    private static final int IRETURN = 0xac;
+    private static final int LRETURN = 0xad;
+    private static final int FRETURN = 0xae;
+    private static final int DRETURN = 0xaf;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int ATHROW = 0xbf;
+    private static final int NEW = 0xbb;
+    private static final int CHECKCAST = 0xc0;
+    private static final int IFNONNULL = 0xc7;
+
+    private static final String POOLED_CONNECTION = "cn/beecp/pool/PooledConnection";
+    private static final String POOLED_CONNECTION_DESC = "Lcn/beecp/pool/PooledConnection;";
+    private static final String PROXY_CONNECTION_BASE_DESC = "Lcn/beecp/pool/ProxyConnectionBase;";
+    private static final String PROXY_STATEMENT_BASE_DESC = "Lcn/beecp/pool/ProxyStatementBase;";
+    private static final String PROXY_RESULT_SET_BASE_DESC = "Lcn/beecp/pool/ProxyResultSetBase;";
+
+    final String connectionClassName;
+    final String statementClassName;
+    final String psStatementClassName;
+    final String csStatementClassName;
+    final String metaDataClassName;
+    final String resultSetClassName;
+    final String factoryClassName;
+    //driver classes called by proxies directly,null means call by JDBC interface
+    private Class<?> connectionType;
+    private Class<?> statementType;
+    private Class<?> psStatementType;
+    private Class<?> csStatementType;
+    private Class<?> metaDataType;
+    private Class<?> resultSetType;
+
+    /**
+     * @param suffix      appended to names of proxy classes,empty for names of pre-generated classes
+     * @param factoryName full name of generated factory class
+     */
+    ProxyClassWriter(String suffix, String factoryName) {
+        connectionClassName = "cn.beecp.pool.ProxyConnection" + suffix;
+        statementClassName = "cn.beecp.pool.ProxyStatement" + suffix;
+        psStatementClassName = "cn.beecp.pool.ProxyPsStatement" + suffix;
+        csStatementClassName = "cn.beecp.pool.ProxyCsStatement" + suffix;
+        metaDataClassName = "cn.beecp.pool.ProxyDatabaseMetaData" + suffix;
+        resultSetClassName = "cn.beecp.pool.ProxyResultSet" + suffix;
+        factoryClassName = factoryName;
+    }
+
+    /**
+     * set driver classes,which must be public and visible to class loader of pool,
+     * proxies generated after call are only for objects of these classes(or sub classes)
+     */
+    void setDriverTypes(Class<?> connectionType, Class<?> statementType, Class<?> psStatementType,
+                        Class<?> csStatementType, Class<?> metaDataType, Class<?> resultSetType) {
+        this.connectionType = connectionType;
+        this.statementType = statementType;
+        this.psStatementType = psStatementType;
+        this.csStatementType = csStatementType;
+        this.metaDataType = metaDataType;
+        this.resultSetType = resultSetType;
+    }
+
+    //***************************************************************************************************************//
+    //                                       1: proxy classes                                                        //
+    //***************************************************************************************************************//
+    byte[] writeConnectionClass() {
+        String thisName = internalName(connectionClassName);
+        ClassBuffer cb = new ClassBuffer(thisName, "cn/beecp/pool/ProxyConnectionBase", "java/sql/Connection");
+        Code c = cb.newCode(2);
+        c.op(ALOAD_0).op(ALOAD_1);
+        c.op(INVOKESPECIAL).u2(cb.methodRef("cn/beecp/pool/ProxyConnectionBase", "<init>", "(" + POOLED_CONNECTION_DESC + ")V", false));
+        c.op(RETURN);
+        cb.addMethod("<init>", "(" + POOLED_CONNECTION_DESC + ")V", c, null);
+
+        String metaDataName = internalName(metaDataClassName);
+        for (Method method : resolveProxyMethods(Connection.class, ProxyConnectionBase.class)) {
+            String methodName = method.getName();
+            String desc = descriptor(method);
+            Class<?> returnType = method.getReturnType();
+            Class<?>[] paramTypes = method.getParameterTypes();
+            c = cb.newCode(slots(paramTypes) + 1);
+            checkClosed(cb, c);
+
+            if (returnType == Statement.class) {
+                loadPooledConnection(cb, c);
+                invokeDelegate(cb, c, "Ljava/sql/Connection;", "java/sql/Connection", methodName, desc, paramTypes, connectionType);
+                c.op(ALOAD_0);
+                c.op(INVOKEVIRTUAL).u2(cb.methodRef(POOLED_CONNECTION, "createProxyStatement", "(Ljava/sql/Statement;" + PROXY_CONNECTION_BASE_DESC + ")" + PROXY_STATEMENT_BASE_DESC, false));
+                c.op(CHECKCAST).u2(cb.classRef("java/sql/Statement"));
+                c.op(ARETURN);
+            } else if (returnType == PreparedStatement.class || returnType == CallableStatement.class) {
+                writePrepareMethod(cb, c, returnType == CallableStatement.class, method);
+            } else if (returnType == DatabaseMetaData.class) {
+                c.op(NEW).u2(cb.classRef(metaDataName)).op(DUP);
+                invokeDelegate(cb, c, "Ljava/sql/Connection;", "java/sql/Connection", methodName, desc, paramTypes, connectionType);
+                c.op(ALOAD_0);
+                loadPooledConnection(cb, c);
+                c.op(INVOKESPECIAL).u2(cb.methodRef(metaDataName, "<init>", "(Ljava/sql/DatabaseMetaData;L" + thisName + ";" + POOLED_CONNECTION_DESC + ")V", false));
+                c.op(ARETURN);
+            } else if (methodName.equals("close")) {
+                c.op(RETURN);
+            } else if (methodName.equals("setSavepoint")) {//transaction opened
+                invokeDelegate(cb, c, "Ljava/sql/Connection;", "java/sql/Connection", methodName, desc, paramTypes, connectionType);
+                updateAccessTimeWithCommitDirty(cb, c);//return value kept on operand stack
+                c.op(ARETURN);
+            } else {
+                //warnings may be produced by driver calls except getters
+                if (!methodName.startsWith("get") && !methodName.startsWith("is")) {
+                    loadPooledConnection(cb, c);
+                    c.op(ICONST_1).op(PUTFIELD).u2(cb.fieldRef(POOLED_CONNECTION, "warningDirtyInd", "Z"));
+                }
+                invokeDelegate(cb, c, "Ljava/sql/Connection;", "java/sql/Connection", methodName, desc, paramTypes, connectionType);
+                c.op(returnOpcode(returnType));
+            }
+            cb.addMethod(methodName, desc, c, method.getExceptionTypes());
+        }
+        return cb.toByteArray();
+    }
+
+    /**
+     * prepare method with statement cache lookup,same to source code:
+     * <pre>
+     * checkClosed();
+     * if(pConn.stmCacheValid){
+     *   PreparedStatement s=pConn.getStatement(type,$$);
+     *   boolean cached=true;
+     *   if(s==null){
+     *     s=delegate.prepareStatement($$);
+     *     cached=pConn.putStatement(s);
+     *   }
+     *   return (PreparedStatement)pConn.createProxyPsStatement(s,$1,this,!cached);
+     * }
+     * return (PreparedStatement)pConn.createProxyPsStatement(delegate.prepareStatement($$),$1,this,true);
+     * </pre>
+     */
+    private void writePrepareMethod(ClassBuffer cb, Code c, boolean callable, Method method) {
+        String desc = descriptor(method);
+        Class<?>[] paramTypes = method.getParameterTypes();
+        String statementName = callable ? "java/sql/CallableStatement" : "java/sql/PreparedStatement";
+        int createIndex = cb.methodRef(POOLED_CONNECTION, callable ? "createProxyCsStatement" : "createProxyPsStatement",
+                "(L" + statementName + ";Ljava/lang/String;" + PROXY_CONNECTION_BASE_DESC + "Z)" + PROXY_STATEMENT_BASE_DESC, false);
+        int sLocal = slots(paramTypes) + 1;
+        int cachedLocal = sLocal + 1;
+        c.maxLocals = cachedLocal + 1;
+
+        loadPooledConnection(cb, c);
+        c.op(GETFIELD).u2(cb.fieldRef(POOLED_CONNECTION, "stmCacheValid", "Z"));
+        int noCacheJump = c.jump(IFEQ);
+
+        loadPooledConnection(cb, c);
+        c.op(BIPUSH).u1(CacheKey.cacheType(callable, desc));
+        loadArgs(c, paramTypes);
+        String lookupDesc = "(I" + desc.substring(1, desc.indexOf(')') + 1) + "Ljava/sql/PreparedStatement;";
+        c.op(INVOKEVIRTUAL).u2(cb.methodRef(POOLED_CONNECTION, "getStatement", lookupDesc, false));
+        if (callable) c.op(CHECKCAST).u2(cb.classRef(statementName));
+        c.op(ASTORE).u1(sLocal);
+        c.op(ICONST_1).op(ISTORE).u1(cachedLocal);
+        c.op(ALOAD).u1(sLocal);
+        int wrapJump = c.jump(IFNONNULL);
+        invokeDelegate(cb, c, "Ljava/sql/Connection;", "java/sql/Connection", method.getName(), desc, paramTypes, connectionType);
+        c.op(ASTORE).u1(sLocal);
+        loadPooledConnection(cb, c);
+        c.op(ALOAD).u1(sLocal);
+        c.op(INVOKEVIRTUAL).u2(cb.methodRef(POOLED_CONNECTION, "putStatement", "(Ljava/sql/PreparedStatement;)Z", false));
+        c.op(ISTORE).u1(cachedLocal);
+
+        c.label(wrapJump);
+        c.frame(cb, paramTypes, new String[]{statementName, "I"});
+        loadPooledConnection(cb, c);
+        c.op(ALOAD).u1(sLocal).op(ALOAD_1).op(ALOAD_0);
+        c.op(ILOAD).u1(cachedLocal).op(ICONST_1).op(IXOR);
+        c.op(INVOKEVIRTUAL).u2(createIndex);
+        c.op(CHECKCAST).u2(cb.classRef(statementName));
+        c.op(ARETURN);
+
+        c.label(noCacheJump);
+        c.frame(cb, paramTypes, new String[0]);
+        loadPooledConnection(cb, c);
+        invokeDelegate(cb, c, "Ljava/sql/Connection;", "java/sql/Connection", method.getName(), desc, paramTypes, connectionType);
+        c.op(ALOAD_1).op(ALOAD_0);
+        c.op(ICONST_1);
+        c.op(INVOKEVIRTUAL).u2(createIndex);
+        c.op(CHECKCAST).u2(cb.classRef(statementName));
+        c.op(ARETURN);
+    }
+
+    /**
+     * @param intf Statement,PreparedStatement or CallableStatement
+     */
+    byte[] writeStatementClass(Class<?> intf) {
+        Class<?> driverType = statementType;
+        String className, delegateCast = null, initDesc, superInitDesc = "(Ljava/sql/Statement;Lcn/beecp/pool/ProxyConnectionBase;" + POOLED_CONNECTION_DESC + "Z)V";
+        String connectionName = internalName(connectionClassName);
+        if (intf == PreparedStatement.class) {
+            className = psStatementClassName;
+            driverType = psStatementType;
+            delegateCast = "java/sql/PreparedStatement";
+            initDesc = "(Ljava/sql/PreparedStatement;L" + connectionName + ";" + POOLED_CONNECTION_DESC + "Z)V";
+        } else if (intf == CallableStatement.class) {
+            className = csStatementClassName;
+            driverType = csStatementType;
+            delegateCast = "java/sql/CallableStatement";
+            initDesc = "(Ljava/sql/CallableStatement;L" + connectionName + ";" + POOLED_CONNECTION_DESC + "Z)V";
+        } else {
+            className = statementClassName;
+            initDesc = "(Ljava/sql/Statement;L" + connectionName + ";" + POOLED_CONNECTION_DESC + ")V";
+        }
+
+        String thisName = internalName(className);
+        String intfName = internalName(intf.getName());
+        ClassBuffer cb = new ClassBuffer(thisName, "cn/beecp/pool/ProxyStatementBase", intfName);
+        Code c = cb.newCode(5);
+        c.op(ALOAD_0).op(ALOAD_1).op(ALOAD).u1(2).op(ALOAD).u1(3);
+        if (intf == Statement.class)
+            c.op(ICONST_1);
+        else
+            c.op(ILOAD).u1(4);
+        c.op(INVOKESPECIAL).u2(cb.methodRef("cn/beecp/pool/ProxyStatementBase", "<init>", superInitDesc, false));
+        c.op(RETURN);
+        cb.addMethod("<init>", initDesc, c, null);
+
+        int createResultSetIndex = cb.methodRef(POOLED_CONNECTION, "createProxyResultSet", "(Ljava/sql/ResultSet;" + PROXY_STATEMENT_BASE_DESC + ")" + PROXY_RESULT_SET_BASE_DESC, false);
+        for (Method method : resolveProxyMethods(intf, ProxyStatementBase.class)) {
+            String methodName = method.getName();
+            String desc = descriptor(method);
+            Class<?> returnType = method.getReturnType();
+            Class<?>[] paramTypes = method.getParameterTypes();
+            c = cb.newCode(slots(paramTypes) + 2);
+            checkClosed(cb, c);
+
+            //mark changed properties,which are reset when proxy of cached statement closed
+            Class<?> declaringClass = method.getDeclaringClass();
+            if ((methodName.startsWith("set") || methodName.equals("registerOutParameter")) && (declaringClass == PreparedStatement.class || declaringClass == CallableStatement.class))
+                markChanged(cb, c, ProxyStatementBase.CHG_PARAMETERS);
+            else if (methodName.equals("addBatch") && paramTypes.length == 0)
+                markChanged(cb, c, ProxyStatementBase.CHG_BATCH);
+
+            boolean isExecute = methodName.startsWith("execute");
+            if (isExecute) {//beginExecute();try{delegate.executeXXX($$)}catch(Throwable e){throw endExecute(e);};endExecute();
+                if (paramTypes.length > 0 && paramTypes[0] == String.class)//latency recorded by SQL
+                    c.op(ALOAD_0).op(ALOAD_1).op(INVOKEVIRTUAL).u2(cb.methodRef(cb.thisName, "beginExecute", "(Ljava/lang/String;)V", false));
+                else
+                    c.op(ALOAD_0).op(INVOKEVIRTUAL).u2(cb.methodRef(cb.thisName, "beginExecute", "()V", false));
+                int tryStart = c.offset();
+                invokeDelegate(cb, c, "Ljava/sql/Statement;", delegateCast != null ? delegateCast : intfName, methodName, desc, paramTypes, delegateCast, driverType);
+                c.handler(tryStart, c.offset());
+                c.op(ALOAD_0).op(INVOKEVIRTUAL).u2(cb.methodRef(cb.thisName, "endExecute", "()V", false));
+            }
+            if (returnType == ResultSet.class) {
+                if (isExecute) {
+                    int reLocal = slots(paramTypes) + 1;
+                    c.op(ASTORE).u1(reLocal);
+                    loadPooledConnection(cb, c);
+                    c.op(ALOAD).u1(reLocal);
+                } else {
+                    loadPooledConnection(cb, c);
+                    invokeDelegate(cb, c, "Ljava/sql/Statement;", delegateCast != null ? delegateCast : intfName, methodName, desc, paramTypes, delegateCast, driverType);
+                }
+                c.op(ALOAD_0);
+                c.op(INVOKEVIRTUAL).u2(createResultSetIndex);
+                c.op(ARETURN);
+            } else {
+                if (!isExecute)//access time updated in endExecute,return value kept on operand stack
+                    invokeDelegate(cb, c, "Ljava/sql/Statement;", delegateCast != null ? delegateCast : intfName, methodName, desc, paramTypes, delegateCast, driverType);
+                c.op(returnOpcode(returnType));
+            }
+            if (isExecute) {//exception handler
+                c.handlerFrame(cb, paramTypes);
+                c.op(ALOAD_0).op(SWAP);
+                c.op(INVOKEVIRTUAL).u2(cb.methodRef(cb.thisName, "endExecute", "(Ljava/lang/Throwable;)Ljava/lang/Throwable;", false));
+                c.op(ATHROW);
+            }
+            cb.addMethod(methodName, desc, c, method.getExceptionTypes());
+        }
+        return cb.toByteArray();
+    }
+
+    byte[] writeDatabaseMetaDataClass() {
+        String thisName = internalName(metaDataClassName);
+        String initDesc = "(Ljava/sql/DatabaseMetaData;L" + internalName(connectionClassName) + ";" + POOLED_CONNECTION_DESC + ")V";
+        ClassBuffer cb = new ClassBuffer(thisName, "cn/beecp/pool/ProxyDatabaseMetaDataBase", "java/sql/DatabaseMetaData");
+        Code c = cb.newCode(4);
+        c.op(ALOAD_0).op(ALOAD_1).op(ALOAD).u1(2).op(ALOAD).u1(3);
+        c.op(INVOKESPECIAL).u2(cb.methodRef("cn/beecp/pool/ProxyDatabaseMetaDataBase", "<init>", "(Ljava/sql/DatabaseMetaData;Lcn/beecp/pool/ProxyConnectionBase;" + POOLED_CONNECTION_DESC + ")V", false));
+        c.op(RETURN);
+        cb.addMethod("<init>", initDesc, c, null);
+
+        String resultSetName = internalName(resultSetClassName);
+        for (Method method : resolveProxyMethods(DatabaseMetaData.class, ProxyDatabaseMetaDataBase.class)) {
+            String methodName = method.getName();
+            String desc = descriptor(method);
+            Class<?> returnType = method.getReturnType();
+            Class<?>[] paramTypes = method.getParameterTypes();
+            c = cb.newCode(slots(paramTypes) + 1);
+            checkClosed(cb, c);
+            if (returnType == ResultSet.class) {//metadata query may open transaction
+                c.op(NEW).u2(cb.classRef(resultSetName)).op(DUP);
+                invokeDelegate(cb, c, "Ljava/sql/DatabaseMetaData;", "java/sql/DatabaseMetaData", methodName, desc, paramTypes, metaDataType);
+                updateAccessTimeWithCommitDirty(cb, c);
+                c.op(ACONST_NULL);
+                loadPooledConnection(cb, c);
+                c.op(ICONST_0);
+                c.op(INVOKESPECIAL).u2(cb.methodRef(resultSetName, "<init>", "(Ljava/sql/ResultSet;Lcn/beecp/pool/ProxyStatementBase;" + POOLED_CONNECTION_DESC + "Z)V", false));
+                c.op(ARETURN);
+            } else {
+                invokeDelegate(cb, c, "Ljava/sql/DatabaseMetaData;", "java/sql/DatabaseMetaData", methodName, desc, paramTypes, metaDataType);
+                c.op(returnOpcode(returnType));
+            }
+            cb.addMethod(methodName, desc, c, method.getExceptionTypes());
+        }
+        return cb.toByteArray();
+    }
+
+    byte[] writeResultSetClass() {
+        String thisName = internalName(resultSetClassName);
+        String initDesc = "(Ljava/sql/ResultSet;Lcn/beecp/pool/ProxyStatementBase;" + POOLED_CONNECTION_DESC + "Z)V";
+        ClassBuffer cb = new ClassBuffer(thisName, "cn/beecp/pool/ProxyResultSetBase", "java/sql/ResultSet");
+        Code c = cb.newCode(5);
+        c.op(ALOAD_0).op(ALOAD_1).op(ALOAD).u1(2).op(ALOAD).u1(3).op(ILOAD).u1(4);
+        c.op(INVOKESPECIAL).u2(cb.methodRef("cn/beecp/pool/ProxyResultSetBase", "<init>", initDesc, false));
+        c.op(RETURN);
+        cb.addMethod("<init>", initDesc, c, null);
+
+        for (Method method : resolveProxyMethods(ResultSet.class, ProxyResultSetBase.class)) {
+            String methodName = method.getName();
+            String desc = descriptor(method);
+            Class<?>[] paramTypes = method.getParameterTypes();
+            c = cb.newCode(slots(paramTypes) + 1);
+            checkClosed(cb, c);
+            if (methodName.equals("close")) {
+                c.op(RETURN);
+            } else {
+                invokeDelegate(cb, c, "Ljava/sql/ResultSet;", "java/sql/ResultSet", methodName, desc, paramTypes, resultSetType);
+                if (methodName.startsWith("insertRow") || methodName.startsWith("updateRow") || methodName.startsWith("deleteRow"))
+                    updateAccessTimeWithCommitDirty(cb, c);
+                c.op(returnOpcode(method.getReturnType()));
+            }
+            cb.addMethod(methodName, desc, c, method.getExceptionTypes());
+        }
+        return cb.toByteArray();
+    }
+
+    //factory implementation:return new ProxyConnection(pConn),return new ProxyPsStatement(s,(ProxyConnection)proxyConn,pConn,closeDlg)...
+    byte[] writeFactoryClass() {
+        String connectionName = internalName(connectionClassName);
+        ClassBuffer cb = new ClassBuffer(internalName(factoryClassName), "cn/beecp/pool/ProxyObjectFactory", null);
+        Code c = cb.newCode(1);
+        c.op(ALOAD_0).op(INVOKESPECIAL).u2(cb.methodRef("cn/beecp/pool/ProxyObjectFactory", "<init>", "()V", false));
+        c.op(RETURN);
+        cb.addMethod("<init>", "()V", c, null);
+
+        c = cb.newCode(2);
+        c.op(NEW).u2(cb.classRef(connectionName)).op(DUP).op(ALOAD_1);
+        c.op(INVOKESPECIAL).u2(cb.methodRef(connectionName, "<init>", "(" + POOLED_CONNECTION_DESC + ")V", false));
+        c.op(ARETURN);
+        cb.addMethod("createProxyConnection", "(" + POOLED_CONNECTION_DESC + ")Ljava/sql/Connection;", c, null);
+
+        writeFactoryStatementMethod(cb, "createProxyStatement", statementClassName, "java/sql/Statement", false);
+        writeFactoryStatementMethod(cb, "createProxyPsStatement", psStatementClassName, "java/sql/PreparedStatement", true);
+        writeFactoryStatementMethod(cb, "createProxyCsStatement", csStatementClassName, "java/sql/CallableStatement", true);
+
+        String resultSetName = internalName(resultSetClassName);
+        String resultSetInitDesc = "(Ljava/sql/ResultSet;" + PROXY_STATEMENT_BASE_DESC + POOLED_CONNECTION_DESC + "Z)V";
+        c = cb.newCode(4);
+        c.op(NEW).u2(cb.classRef(resultSetName)).op(DUP);
+        c.op(ALOAD_1).op(ALOAD).u1(2).op(ALOAD).u1(3).op(ICONST_1);
+        c.op(INVOKESPECIAL).u2(cb.methodRef(resultSetName, "<init>", resultSetInitDesc, false));
+        c.op(ARETURN);
+        cb.addMethod("createProxyResultSet", "(Ljava/sql/ResultSet;" + PROXY_STATEMENT_BASE_DESC + POOLED_CONNECTION_DESC + ")" + PROXY_RESULT_SET_BASE_DESC, c, null);
+        return cb.toByteArray();
+    }
+
+    private void writeFactoryStatementMethod(ClassBuffer cb, String name, String proxyClassName, String statementName, boolean closeDlgParam) {
+        String proxyName = internalName(proxyClassName);
+        String connectionName = internalName(connectionClassName);
+        String paramDesc = "L" + statementName + ";" + PROXY_CONNECTION_BASE_DESC + POOLED_CONNECTION_DESC + (closeDlgParam ? "Z" : "");
+        String initDesc = "(L" + statementName + ";L" + connectionName + ";" + POOLED_CONNECTION_DESC + (closeDlgParam ? "Z" : "") + ")V";
+        Code c = cb.newCode(closeDlgParam ? 5 : 4);
+        c.op(NEW).u2(cb.classRef(proxyName)).op(DUP);
+        c.op(ALOAD_1).op(ALOAD).u1(2).op(CHECKCAST).u2(cb.classRef(connectionName)).op(ALOAD).u1(3);
+        if (closeDlgParam) c.op(ILOAD).u1(4);
+        c.op(INVOKESPECIAL).u2(cb.methodRef(proxyName, "<init>", initDesc, false));
+        c.op(ARETURN);
+        cb.addMethod(name, "(" + paramDesc + ")" + PROXY_STATEMENT_BASE_DESC, c, null);
+    }
+
+    //***************************************************************************************************************//
+    //                                       2: code snippets                                                        //
+    //***************************************************************************************************************//
+    private static void checkClosed(ClassBuffer cb, Code c) {
+        c.op(ALOAD_0).op(INVOKEVIRTUAL).u2(cb.methodRef(cb.thisName, "checkClosed", "()V", false));
+    }
+
+    private static void loadPooledConnection(ClassBuffer cb, Code c) {
+        c.op(ALOAD_0).op(GETFIELD).u2(cb.fieldRef(cb.thisName, "pConn", POOLED_CONNECTION_DESC));
+    }
+
+    private static void updateAccessTimeWithCommitDirty(ClassBuffer cb, Code c) {
+        loadPooledConnection(cb, c);
+        c.op(INVOKEVIRTUAL).u2(cb.methodRef(POOLED_CONNECTION, "updateAccessTimeWithCommitDirty", "()V", false));
+    }
+
+    //changedFlags|=flag;
+    private static void markChanged(ClassBuffer cb, Code c, int flag) {
+        int fieldIndex = cb.fieldRef(cb.thisName, "changedFlags", "I");
+        c.op(ALOAD_0).op(DUP).op(GETFIELD).u2(fieldIndex);
+        c.op(BIPUSH).u1(flag).op(IOR);
+        c.op(PUTFIELD).u2(fieldIndex);
+    }
+
+    private static void invokeDelegate(ClassBuffer cb, Code c, String fieldDesc, String owner, String name, String desc, Class<?>[] paramTypes, Class<?> driverType) {
+        invokeDelegate(cb, c, fieldDesc, owner, name, desc, paramTypes, null, driverType);
+    }
+
+    /**
+     * delegate.method($$) or ((cast)delegate).method($$),call is made on driver class
+     * when driver type is given and method is implemented by class(not interface default)
+     */
+    private static void invokeDelegate(ClassBuffer cb, Code c, String fieldDesc, String owner, String name, String desc, Class<?>[] paramTypes, String cast, Class<?> driverType) {
+        c.op(ALOAD_0).op(GETFIELD).u2(cb.fieldRef(cb.thisName, "delegate", fieldDesc));
+        if (driverType != null && isClassMethod(driverType, name, paramTypes)) {
+            String driverName = internalName(driverType.getName());
+            c.op(CHECKCAST).u2(cb.classRef(driverName));
+            loadArgs(c, paramTypes);
+            c.op(INVOKEVIRTUAL).u2(cb.methodRef(driverName, name, desc, false));
+        } else {
+            if (cast != null) c.op(CHECKCAST).u2(cb.classRef(cast));
+            int argSlots = loadArgs(c, paramTypes);
+            c.op(INVOKEINTERFACE).u2(cb.methodRef(owner, name, desc, true)).u1(argSlots + 1).u1(0);
+        }
+    }
+
+    private static boolean isClassMethod(Class<?> driverType, String name, Class<?>[] paramTypes) {
+        try {
+            return !driverType.getMethod(name, paramTypes).getDeclaringClass().isInterface();
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static int loadArgs(Code c, Class<?>[] paramTypes) {
+        int slot = 1;
+        for (Class<?> type : paramTypes) {
+            if (type == long.class) {
+                c.op(LLOAD).u1(slot);
+                slot += 2;
+            } else if (type == double.class) {
+                c.op(DLOAD).u1(slot);
+                slot += 2;
+            } else {
+                c.op(type == float.class ? FLOAD : type.isPrimitive() ? ILOAD : ALOAD).u1(slot);
+                slot++;
+            }
+        }
+        return slot - 1;
+    }
+
+    private static int returnOpcode(Class<?> type) {
+        if (type == void.class) return RETURN;
+        if (type == long.class) return LRETURN;
+        if (type == double.class) return DRETURN;
+        if (type == float.class) return FRETURN;
+        if (type.isPrimitive()) return IRETURN;
+        return ARETURN;
+    }
+
+    private static int slots(Class<?>[] paramTypes) {
+        int size = 0;
+        for (Class<?> type : paramTypes)
+            size += (type == long.class || type == double.class) ? 2 : 1;
+        return size;
+    }
+
+    private static String internalName(String className) {
+        return className.replace('.', '/');
+    }
+
+    private static String descriptor(Method method) {
+        StringBuilder buf = new StringBuilder("(");
+        for (Class<?> type : method.getParameterTypes())
+            buf.append(descriptor(type));
+        return buf.append(')').append(descriptor(method.getReturnType())).toString();
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type == void.class) return "V";
+        if (type == boolean.class) return "Z";
+        if (type == byte.class) return "B";
+        if (type == char.class) return "C";
+        if (type == short.class) return "S";
+        if (type == int.class) return "I";
+        if (type == long.class) return "J";
+        if (type == float.class) return "F";
+        if (type == double.class) return "D";
+        if (type.isArray()) return internalName(type.getName());
+        return "L" + internalName(type.getName()) + ";";
+    }
+
+    //order of methods returned by reflection is unspecified,sorted to write stable class bytes
+    private static final Comparator<Method> METHOD_ORDER = new Comparator<Method>() {
+        public int compare(Method m1, Method m2) {
+            int cmp = m1.getName().compareTo(m2.getName());
+            return cmp != 0 ? cmp : descriptor(m1).compareTo(descriptor(m2));
+        }
+    };
+
+    //interface methods not implemented in super class
+    private static List<Method> resolveProxyMethods(Class<?> intf, Class<?> superClass) {
+        HashSet<String> existSignatureSet = new HashSet<String>();
+        for (Class<?> clazz = superClass; clazz != null; clazz = clazz.getSuperclass()) {
+            for (Method method : clazz.getDeclaredMethods()) {
+                int modifiers = method.getModifiers();
+                if ((!Modifier.isAbstract(modifiers) && (Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers)))
+                        || Modifier.isFinal(modifiers) || Modifier.isStatic(modifiers) || Modifier.isNative(modifiers)) {
+                    existSignatureSet.add(method.getName() + descriptor(method));
+                }
+            }
+        }
+        LinkedList<Method> linkedList = new LinkedList<Method>();
+        resolveInterfaceMethods(intf, linkedList, existSignatureSet);
+        return linkedList;
+    }
+
+    private static void resolveInterfaceMethods(Class<?> intf, LinkedList<Method> linkedList, HashSet<String> existSignatureSet) {
+        Method[] methods = intf.getDeclaredMethods();
+        Arrays.sort(methods, METHOD_ORDER);
+        for (Method method : methods) {
+            int modifiers = method.getModifiers();
+            String signature = method.getName() + descriptor(method);
+            if (Modifier.isAbstract(modifiers) && Modifier.isPublic(modifiers)
+                    && !Modifier.isStatic(modifiers) && !existSignatureSet.contains(signature)) {
+                linkedList.add(method);
+                existSignatureSet.add(signature);
+            }
+        }
+        for (Class<?> superIntf : intf.getInterfaces())
+            resolveInterfaceMethods(superIntf, linkedList, existSignatureSet);
+    }
+
+    //***************************************************************************************************************//
+    //                                       3: class file buffers                                                   //
+    //***************************************************************************************************************//
+    private static final class ByteVector {
+        private byte[] data = new byte[256];
+        private int length;
+
+        ByteVector u1(int b) {
+            ensure(1);
+            data[length++] = (byte) b;
+            return this;
+        }
+
+        ByteVector u2(int s) {
+            ensure(2);
+            data[length++] = (byte) (s >>> 8);
+            data[length++] = (byte) s;
+            return this;
+        }
+
+        ByteVector u4(int i) {
+            ensure(4);
+            data[length++] = (byte) (i >>> 24);
+            data[length++] = (byte) (i >>> 16);
+            data[length++] = (byte) (i >>> 8);
+            data[length++] = (byte) i;
+            return this;
+        }
+
+        ByteVector bytes(byte[] b, int len) {
+            ensure(len);
+            System.arraycopy(b, 0, data, length, len);
+            length += len;
+            return this;
+        }
+
+        ByteVector bytes(ByteVector v) {
+            return bytes(v.data, v.length);
+        }
+
+        //modified UTF-8 of class file
+        ByteVector utf(String s) {
+            int start = length;
+            u2(0);
+            for (int i = 0, l = s.length(); i < l; i++) {
+                char ch = s.charAt(i);
+                if (ch >= 0x01 && ch <= 0x7F) {
+                    u1(ch);
+                } else if (ch <= 0x7FF) {
+                    u1(0xC0 | (ch >> 6)).u1(0x80 | (ch & 0x3F));
+                } else {
+                    u1(0xE0 | (ch >> 12)).u1(0x80 | ((ch >> 6) & 0x3F)).u1(0x80 | (ch & 0x3F));
+                }
+            }
+            int size = length - start - 2;
+            data[start] = (byte) (size >>> 8);
+            data[start + 1] = (byte) size;
+            return this;
+        }
+
+        void put2(int pos, int s) {
+            data[pos] = (byte) (s >>> 8);
+            data[pos + 1] = (byte) s;
+        }
+
+        private void ensure(int size) {
+            if (length + size > data.length) {
+                byte[] newData = new byte[Math.max(data.length * 2, length + size)];
+                System.arraycopy(data, 0, newData, 0, length);
+                data = newData;
+            }
+        }
+    }
+
+    private static final class ClassBuffer {
+        final String thisName;
+        private final String superName;
+        private final String intfName;
+        private final ByteVector pool = new ByteVector();
+        private final HashMap<String, Integer> poolIndexMap = new HashMap<String, Integer>();
+        private int poolCount = 1;
+        private final ByteVector methods = new ByteVector();
+        private int methodCount;
+
+        ClassBuffer(String thisName, String superName, String intfName) {
+            this.thisName = thisName;
+            this.superName = superName;
+            this.intfName = intfName;
+        }
+
+        Code newCode(int maxLocals) {
+            return new Code(maxLocals);
+        }
+
+        int utf8(String value) {
+            String key = "1:" + value;
+            Integer index = poolIndexMap.get(key);
+            if (index == null) {
+                pool.u1(1).utf(value);
+                index = addPoolEntry(key);
+            }
+            return index;
+        }
+
+        int classRef(String name) {
+            String key = "7:" + name;
+            Integer index = poolIndexMap.get(key);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                pool.u1(7).u2(nameIndex);
+                index = addPoolEntry(key);
+            }
+            return index;
+        }
+
+        private int nameAndType(String name, String desc) {
+            String key = "12:" + name + ":" + desc;
+            Integer index = poolIndexMap.get(key);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                int descIndex = utf8(desc);
+                pool.u1(12).u2(nameIndex).u2(descIndex);
+                index = addPoolEntry(key);
+            }
+            return index;
+        }
+
+        int fieldRef(String owner, String name, String desc) {
+            return memberRef(9, owner, name, desc);
+        }
+
+        int methodRef(String owner, String name, String desc, boolean isInterface) {
+            return memberRef(isInterface ? 11 : 10, owner, name, desc);
+        }
+
+        private int memberRef(int tag, String owner, String name, String desc) {
+            String key = tag + ":" + owner + "." + name + ":" + desc;
+            Integer index = poolIndexMap.get(key);
+            if (index == null) {
+                int classIndex = classRef(owner);
+                int natIndex = nameAndType(name, desc);
+                pool.u1(tag).u2(classIndex).u2(natIndex);
+                index = addPoolEntry(key);
+            }
+            return index;
+        }
+
+        private Integer addPoolEntry(String key) {
+            Integer index = poolCount++;
+            poolIndexMap.put(key, index);
+            return index;
+        }
+
+        void addMethod(String name, String desc, Code code, Class<?>[] exceptionTypes) {
+            methodCount++;
+            methods.u2(ACC_PUBLIC).u2(utf8(name)).u2(utf8(desc));
+            int attributeCount = 1;
+            if (exceptionTypes != null && exceptionTypes.length > 0) attributeCount++;
+            methods.u2(attributeCount);
+
+            //Code attribute
+            int frameLength = code.frames.length;
+            int codeAttributeLength = 12 + code.code.length + 8 * code.handlerCount + (code.frameCount > 0 ? 8 + frameLength : 0);
+            methods.u2(utf8("Code")).u4(codeAttributeLength);
+            methods.u2(code.maxLocals + 8).u2(code.maxLocals);//max stack:new,dup,arguments and three more
+            methods.u4(code.code.length).bytes(code.code);
+            methods.u2(code.handlerCount);//exception table
+            if (code.handlerCount > 0) {
+                int throwableIndex = classRef("java/lang/Throwable");
+                for (int i = 0; i < code.handlerCount; i++) {
+                    int[] handler = code.handlers[i];
+                    methods.u2(handler[0]).u2(handler[1]).u2(handler[2]).u2(throwableIndex);
+                }
+            }
+            if (code.frameCount > 0) {
+                methods.u2(1);
+                methods.u2(utf8("StackMapTable")).u4(2 + frameLength).u2(code.frameCount).bytes(code.frames);
+            } else {
+                methods.u2(0);
+            }
+
+            if (attributeCount > 1) {
+                methods.u2(utf8("Exceptions")).u4(2 + 2 * exceptionTypes.length).u2(exceptionTypes.length);
+                for (Class<?> type : exceptionTypes)
+                    methods.u2(classRef(internalName(type.getName())));
+            }
+        }
+
+        byte[] toByteArray() {
+            int thisIndex = classRef(thisName);
+            int superIndex = classRef(superName);
+            int intfIndex = intfName != null ? classRef(intfName) : 0;
+
+            ByteVector out = new ByteVector();
+            out.u4(0xCAFEBABE).u2(0).u2(CLASS_VERSION);
+            out.u2(poolCount).bytes(pool);
+            out.u2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER).u2(thisIndex).u2(superIndex);
+            if (intfIndex > 0)
+                out.u2(1).u2(intfIndex);
+            else
+                out.u2(0);
+            out.u2(0);//fields
+            out.u2(methodCount).bytes(methods);
+            out.u2(0);//attributes
+
+            byte[] bytes = new byte[out.length];
+            System.arraycopy(out.data, 0, bytes, 0, out.length);
+            return bytes;
+        }
+    }
+
+    private static final class Code {
+        private final ByteVector code = new ByteVector();
+        private final ByteVector frames = new ByteVector();
+        private int frameCount;
+        private int lastFrameOffset = -1;
+        private int[][] handlers = new int[1][];//start,end,handler(set by handler frame)
+        private int handlerCount;
+        int maxLocals;
+
+        Code(int maxLocals) {
+            this.maxLocals = maxLocals;
+        }
+
+        Code op(int opcode) {
+            code.u1(opcode);
+            return this;
+        }
+
+        Code u1(int b) {
+            code.u1(b);
+            return this;
+        }
+
+        Code u2(int s) {
+            code.u2(s);
+            return this;
+        }
+
+        //write a jump instruction,return its position to be bound by label
+        int jump(int opcode) {
+            int pos = code.length;
+            code.u1(opcode).u2(0);
+            return pos;
+        }
+
+        //bind jump target to current position
+        void label(int jumpPos) {
+            code.put2(jumpPos + 1, code.length - jumpPos);
+        }
+
+        int offset() {
+            return code.length;
+        }
+
+        //add a Throwable handler of code range,handler position is bound by next handler frame
+        void handler(int start, int end) {
+            if (handlerCount == handlers.length) {
+                int[][] newHandlers = new int[handlerCount * 2][];
+                System.arraycopy(handlers, 0, newHandlers, 0, handlerCount);
+                handlers = newHandlers;
+            }
+            handlers[handlerCount++] = new int[]{start, end, -1};
+        }
+
+        //add frame of exception handler at current position,Throwable on stack
+        void handlerFrame(ClassBuffer cb, Class<?>[] paramTypes) {
+            handlers[handlerCount - 1][2] = code.length;
+            frame(cb, paramTypes, new String[0], "java/lang/Throwable");
+        }
+
+        /**
+         * add a full frame at current position,locals are 'this',method parameters and extra locals
+         *
+         * @param extraLocals "I" for int local,others are internal name of class
+         */
+        void frame(ClassBuffer cb, Class<?>[] paramTypes, String[] extraLocals) {
+            frame(cb, paramTypes, extraLocals, null);
+        }
+
+        //frame with one object on stack if stack item given
+        void frame(ClassBuffer cb, Class<?>[] paramTypes, String[] extraLocals, String stackItem) {
+            int offset = code.length;
+            frames.u1(255).u2(lastFrameOffset < 0 ? offset : offset - lastFrameOffset - 1);
+            lastFrameOffset = offset;
+            frames.u2(1 + paramTypes.length + extraLocals.length);
+            frames.u1(7).u2(cb.classRef(cb.thisName));
+            for (Class<?> type : paramTypes) {
+                if (type == long.class)
+                    frames.u1(4);
+                else if (type == double.class)
+                    frames.u1(3);
+                else if (type == float.class)
+                    frames.u1(2);
+                else if (type.isPrimitive())
+                    frames.u1(1);
+                else
+                    frames.u1(7).u2(cb.classRef(internalName(type.getName())));
+            }
+            for (String local : extraLocals) {
+                if ("I".equals(local))
+                    frames.u1(1);
+                else
+                    frames.u1(7).u2(cb.classRef(local));
+            }
+            if (stackItem != null)
+                frames.u2(1).u1(7).u2(cb.classRef(stackItem));
+            else
+                frames.u2(0);//empty stack
+            frameCount++;
+        }
+    }
+}
@@ -15,13 +15,18 @@
  */
 package cn.beecp.pool;
 
+import java.sql.CallableStatement;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.concurrent.Executor;
 
 import static cn.beecp.pool.PoolExceptionList.*;
 import static cn.beecp.util.BeecpUtil.equalsText;
-import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static java.util.concurrent.locks.LockSupport.unpark;
 
 /**
  * raw connection wrapper
@@ -39,6 +44,15 @@ abstract class ProxyConnectionBase implements Connection {
     protected Connection delegate;
     protected PooledConnection pConn;//called by subclass to update time
     private volatile boolean closedInd;
+    //raw statement in execution,tracked in hold timeout recovery mode;kept in proxy of a borrow,so
+    //borrower of a salvaged connection can't change it for next borrower
+    private volatile Statement runningStatement;
+    private volatile Thread salvageThread;//worker waiting end of running statement
+    //closed proxies waiting for reuse in this borrow(reuse mode),one per type,dropped with this proxy
+    ProxyStatementBase reusableStatement;
+    ProxyStatementBase reusablePsStatement;
+    ProxyStatementBase reusableCsStatement;
+    ProxyResultSetBase reusableResultSet;
 
     public ProxyConnectionBase(PooledConnection pConn) {
         this.pConn = pConn;
@@ -52,12 +66,79 @@ abstract class ProxyConnectionBase implements Connection {
 
     protected void checkClosed() throws SQLException {
         if (closedInd) throw ConnectionClosedException;
+        if (pConn.resetPendingCount > 0) pConn.resetPendingState();
+    }
+
+    //check before setting session state,the setting replaces deferred reset of same state
+    private void checkClosedOnSet(int pos) throws SQLException {
+        if (closedInd) throw ConnectionClosedException;
+        if (pConn.resetPendingCount > 0) pConn.cancelResetPending(pos);
+    }
+
+    //check before reading session state,return true if reset of the state is deferred
+    private boolean checkClosedOnGet(int pos) throws SQLException {
+        if (closedInd) throw ConnectionClosedException;
+        return pConn.resetPendingCount > 0 && pConn.isResetPending(pos);
     }
 
     synchronized boolean setAsClosed() {
         return closedInd ? false : (closedInd = true);
     }
 
+    //called by statement before execution in hold timeout recovery mode,closed check after mark,so salvage
+    //either sees the execution or the execution sees closed
+    void beginExecute(Statement statement) throws SQLException {
+        runningStatement = statement;
+        if (closedInd) {
+            endExecute();
+            throw ConnectionClosedException;
+        }
+    }
+
+    //called by statement after execution and its last write to pooled connection
+    void endExecute() {
+        runningStatement = null;
+        Thread thread = salvageThread;
+        if (thread != null) unpark(thread);
+    }
+
+    /**
+     * cancel running statement after this proxy closed on hold timeout,then wait the execution returned,
+     * called by pool on a salvage worker
+     *
+     * @param timeoutNanos max wait time
+     * @return true if no execution running
+     * @throws SQLException if failed to cancel
+     */
+    boolean cancelRunningStatement(long timeoutNanos) throws SQLException {
+        Statement statement = runningStatement;
+        if (statement == null) return true;
+        salvageThread = Thread.currentThread();
+        statement.cancel();
+
+        long deadline = nanoTime() + timeoutNanos;
+        while (runningStatement != null) {
+            long parkNanos = deadline - nanoTime();
+            if (parkNanos <= 0L || Thread.currentThread().isInterrupted()) return false;
+            parkNanos(this, parkNanos);
+        }
+        return true;
+    }
+
+    //keep closed proxy for reuse in this borrow,called by proxies in reuse mode
+    void recycleStatement(ProxyStatementBase p) {
+        if (p instanceof CallableStatement)
+            reusableCsStatement = p;
+        else if (p instanceof PreparedStatement)
+            reusablePsStatement = p;
+        else
+            reusableStatement = p;
+    }
+
+    void recycleResultSet(ProxyResultSetBase r) {
+        reusableResultSet = r;
+    }
+
     public void close() throws SQLException {
         if (setAsClosed()) {
             pConn.returnToPoolBySelf();
@@ -67,9 +148,10 @@ abstract class ProxyConnectionBase implements Connection {
     }
 
     public void setAutoCommit(boolean autoCommit) throws SQLException {
-        checkClosed();
+        checkClosedOnSet(Pos_AutoCommitInd);
         if (!pConn.curAutoCommit && pConn.commitDirtyInd)
             throw AutoCommitChangeForbiddenException;
+        if (pConn.cacheSessionState && autoCommit == pConn.curAutoCommit) return;
 
         delegate.setAutoCommit(autoCommit);
         pConn.curAutoCommit = autoCommit;
@@ -77,24 +159,69 @@ abstract class ProxyConnectionBase implements Connection {
         pConn.setChangedInd(Pos_AutoCommitInd, autoCommit != pConn.defaultAutoCommit);
     }
 
+    public boolean getAutoCommit() throws SQLException {
+        if (checkClosedOnGet(Pos_AutoCommitInd)) return pConn.defaultAutoCommit;
+        return pConn.cacheSessionState ? pConn.curAutoCommit : delegate.getAutoCommit();
+    }
+
     public void setTransactionIsolation(int level) throws SQLException {
-        checkClosed();
+        checkClosedOnSet(Pos_TransactionIsolationInd);
+        if (pConn.cacheSessionState && pConn.curTransactionIsolationKnown && level == pConn.curTransactionIsolation)
+            return;
+
+        pConn.curTransactionIsolationKnown = false;//read again from driver,which may adjust level
         delegate.setTransactionIsolation(level);
         pConn.setChangedInd(Pos_TransactionIsolationInd, level != pConn.defaultTransactionIsolationCode);
     }
 
+    public int getTransactionIsolation() throws SQLException {
+        if (checkClosedOnGet(Pos_TransactionIsolationInd)) return pConn.defaultTransactionIsolationCode;
+        if (!pConn.cacheSessionState) return delegate.getTransactionIsolation();
+        if (!pConn.curTransactionIsolationKnown) {
+            pConn.curTransactionIsolation = delegate.getTransactionIsolation();
+            pConn.curTransactionIsolationKnown = true;
+        }
+        return pConn.curTransactionIsolation;
+    }
+
     public void setReadOnly(boolean readOnly) throws SQLException {
-        checkClosed();
+        checkClosedOnSet(Pos_ReadOnlyInd);
+        if (pConn.cacheSessionState && pConn.curReadOnlyKnown && readOnly == pConn.curReadOnly) return;
+
+        pConn.curReadOnlyKnown = false;//read again from driver,some drivers ignore setting
         delegate.setReadOnly(readOnly);
         pConn.setChangedInd(Pos_ReadOnlyInd, readOnly != pConn.defaultReadOnly);
     }
 
+    public boolean isReadOnly() throws SQLException {
+        if (checkClosedOnGet(Pos_ReadOnlyInd)) return pConn.defaultReadOnly;
+        if (!pConn.cacheSessionState) return delegate.isReadOnly();
+        if (!pConn.curReadOnlyKnown) {
+            pConn.curReadOnly = delegate.isReadOnly();
+            pConn.curReadOnlyKnown = true;
+        }
+        return pConn.curReadOnly;
+    }
+
     public void setCatalog(String catalog) throws SQLException {
-        checkClosed();
+        checkClosedOnSet(Pos_CatalogInd);
+        if (pConn.cacheSessionState && pConn.curCatalogKnown && equalsText(catalog, pConn.curCatalog)) return;
+
+        pConn.curCatalogKnown = false;//read again from driver
         delegate.setCatalog(catalog);
         pConn.setChangedInd(Pos_CatalogInd, !equalsText(catalog, pConn.defaultCatalog));
     }
 
+    public String getCatalog() throws SQLException {
+        if (checkClosedOnGet(Pos_CatalogInd)) pConn.resetPendingState(Pos_CatalogInd);
+        if (!pConn.cacheSessionState) return delegate.getCatalog();
+        if (!pConn.curCatalogKnown) {
+            pConn.curCatalog = delegate.getCatalog();
+            pConn.curCatalogKnown = true;
+        }
+        return pConn.curCatalog;
+    }
+
     public boolean isValid(int timeout) throws SQLException {
         checkClosed();
         return delegate.isValid(timeout);
@@ -102,11 +229,24 @@ abstract class ProxyConnectionBase implements Connection {
 
     //for JDK1.7 begin
     public void setSchema(String schema) throws SQLException {
-        checkClosed();
+        checkClosedOnSet(Pos_SchemaInd);
+        if (pConn.cacheSessionState && pConn.curSchemaKnown && equalsText(schema, pConn.curSchema)) return;
+
+        pConn.curSchemaKnown = false;//read again from driver
         delegate.setSchema(schema);
         pConn.setChangedInd(Pos_SchemaInd, !equalsText(schema, pConn.defaultSchema));
     }
 
+    public String getSchema() throws SQLException {
+        if (checkClosedOnGet(Pos_SchemaInd)) pConn.resetPendingState(Pos_SchemaInd);
+        if (!pConn.cacheSessionState) return delegate.getSchema();
+        if (!pConn.curSchemaKnown) {
+            pConn.curSchema = delegate.getSchema();
+            pConn.curSchemaKnown = true;
+        }
+        return pConn.curSchema;
+    }
+
     public void abort(Executor executor) throws SQLException {
         checkClosed();
         if (executor == null) throw new SQLException("executor can't be null");
@@ -122,12 +262,12 @@ abstract class ProxyConnectionBase implements Connection {
     }
 
     public int getNetworkTimeout() throws SQLException {
-        checkClosed();
+        if (checkClosedOnGet(Pos_NetworkTimeoutInd)) return pConn.defaultNetworkTimeout;
         return delegate.getNetworkTimeout();
     }
 
     public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
-        checkClosed();
+        checkClosedOnSet(Pos_NetworkTimeoutInd);
         if (pConn.isSupportNetworkTimeout()) {
             delegate.setNetworkTimeout(executor, milliseconds);
             pConn.setChangedInd(Pos_NetworkTimeoutInd, milliseconds != pConn.defaultNetworkTimeout);
@@ -140,15 +280,17 @@ abstract class ProxyConnectionBase implements Connection {
     public void commit() throws SQLException {
         checkClosed();
         delegate.commit();
-        pConn.lastAccessTime = currentTimeMillis();
+        pConn.lastAccessTime = pConn.clock.currentTimeMillis();
         pConn.commitDirtyInd = false;
+        pConn.warningDirtyInd = true;
     }
 
     public void rollback() throws SQLException {
         checkClosed();
         delegate.rollback();
-        pConn.lastAccessTime = currentTimeMillis();
+        pConn.lastAccessTime = pConn.clock.currentTimeMillis();
         pConn.commitDirtyInd = false;
+        pConn.warningDirtyInd = true;
     }
 
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
@@ -0,0 +1,277 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static cn.beecp.ProxyClassMode.CODE_AUTO;
+import static cn.beecp.ProxyClassMode.CODE_PREGENERATED;
+import static cn.beecp.ProxyClassMode.CODE_RUNTIME;
+
+/**
+ * Factory to create proxy objects,implementation class is generated together
+ * with JDBC proxy classes,so proxy objects are created without reflection.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+abstract class ProxyObjectFactory {
+    private static final Logger log = LoggerFactory.getLogger(ProxyObjectFactory.class);
+    private static final String PREGENERATED_FACTORY_NAME = "cn.beecp.pool.ProxyObjectFactoryImpl";
+    private static final String RUNTIME_SUFFIX = "Runtime";
+    private static final String DRIVER_SUFFIX = "Driver";
+    private static final int PREGENERATED_CURRENT = 0;
+    private static final int PREGENERATED_MISSED = 1;
+    private static final int PREGENERATED_STALE = 2;
+    //guarded by class lock,created once in class loader
+    private static ProxyObjectFactory pregeneratedFactory;
+    private static ProxyObjectFactory runtimeFactory;
+    //factories of driver classes visible to pool class loader,which are not unloaded before pool classes
+    private static final Map<Class<?>, ProxyObjectFactory> driverFactoryMap = new HashMap<Class<?>, ProxyObjectFactory>(2);
+
+    /**
+     * create proxy connection
+     *
+     * @param pConn pooled connection to be wrapped
+     * @return proxy connection
+     * @throws SQLException if failed to create
+     */
+    abstract Connection createProxyConnection(PooledConnection pConn) throws SQLException;
+
+    abstract ProxyStatementBase createProxyStatement(Statement s, ProxyConnectionBase proxyConn, PooledConnection pConn);
+
+    abstract ProxyStatementBase createProxyPsStatement(PreparedStatement s, ProxyConnectionBase proxyConn, PooledConnection pConn, boolean closeDlg);
+
+    abstract ProxyStatementBase createProxyCsStatement(CallableStatement s, ProxyConnectionBase proxyConn, PooledConnection pConn, boolean closeDlg);
+
+    abstract ProxyResultSetBase createProxyResultSet(ResultSet rs, ProxyStatementBase proxyStatement, PooledConnection pConn);
+
+    /**
+     * get factory of proxy classes
+     *
+     * @param modeCode code of {@link cn.beecp.ProxyClassMode}
+     * @return factory matched mode
+     * @throws SQLException if pre-generated classes missed or stale in 'pregenerated' mode or failed to define classes
+     */
+    static synchronized ProxyObjectFactory getInstance(int modeCode) throws SQLException {
+        if (modeCode != CODE_RUNTIME) {
+            if (pregeneratedFactory != null) return pregeneratedFactory;
+            ProxyClassWriter writer = createPregeneratedWriter();
+            int state = checkPregeneratedClasses(writer);
+            if (state == PREGENERATED_CURRENT)
+                return pregeneratedFactory = newFactory(writer, writer.writeFactoryClass());
+            if (modeCode == CODE_PREGENERATED) {
+                if (state == PREGENERATED_MISSED)
+                    throw new SQLException("Jdbc proxy class missed,please execute 'ProxyClassGenerator' after compile");
+                throw new SQLException("Jdbc proxy class out of date,please execute 'ProxyClassGenerator' after compile");
+            }
+            if (state == PREGENERATED_STALE)
+                log.warn("BeeCP ignored out of date pre-generated JDBC proxy classes,please execute 'ProxyClassGenerator' after compile");
+        }
+
+        if (runtimeFactory == null)
+            runtimeFactory = generateFactory(new ProxyClassWriter(RUNTIME_SUFFIX, PREGENERATED_FACTORY_NAME + RUNTIME_SUFFIX));
+        return runtimeFactory;
+    }
+
+    /**
+     * get factory of proxy classes specialized to driver of connection,forwarded calls of
+     * these proxies are made on driver classes(monomorphic call sites).Proxy classes are defined
+     * in pool class loader,so they are generated only for a connection class visible to that loader
+     * (not unloaded before pool classes),then cached and shared by all pools;factory of interface
+     * proxy classes is returned for an invisible connection class,which is not pinned by pool.
+     *
+     * @param con first physical connection of pool
+     * @return factory matched connection class
+     * @throws SQLException if failed to define classes
+     */
+    static ProxyObjectFactory getDriverInstance(Connection con) throws SQLException {
+        Class<?> conClass = con.getClass();
+        if (!isVisible(conClass)) {
+            log.info("BeeCP used interface proxy classes for driver connection:{},which is invisible to pool class loader", conClass.getName());
+            return getInstance(CODE_AUTO);
+        }
+        return getDriverInstance(conClass);
+    }
+
+    private static synchronized ProxyObjectFactory getDriverInstance(Class<?> connectionType) throws SQLException {
+        ProxyObjectFactory factory = driverFactoryMap.get(connectionType);
+        if (factory == null) {
+            String suffix = DRIVER_SUFFIX + (driverFactoryMap.size() + 1);
+            ProxyClassWriter writer = new ProxyClassWriter(suffix, PREGENERATED_FACTORY_NAME + suffix);
+
+            //statement and other classes are resolved from covariant return types of driver methods
+            Class<?> statementType = returnType(connectionType, Connection.class, Statement.class);
+            Class<?> psStatementType = returnType(connectionType, Connection.class, PreparedStatement.class);
+            Class<?> csStatementType = returnType(connectionType, Connection.class, CallableStatement.class);
+            Class<?> metaDataType = returnType(connectionType, Connection.class, DatabaseMetaData.class);
+            Class<?> resultSetType = returnType(statementType, Statement.class, ResultSet.class);
+            Class<?>[] resultSetSources = {psStatementType, PreparedStatement.class, csStatementType, CallableStatement.class, metaDataType, DatabaseMetaData.class};
+            for (int i = 0; i < resultSetSources.length && resultSetType != null; i += 2) {
+                if (returnType(resultSetSources[i], resultSetSources[i + 1], ResultSet.class) != resultSetType)
+                    resultSetType = null;
+            }
+            writer.setDriverTypes(connectionType, statementType, psStatementType, csStatementType, metaDataType, resultSetType);
+
+            factory = generateFactory(writer);
+            driverFactoryMap.put(connectionType, factory);
+            log.info("BeeCP generated JDBC proxy classes for driver connection:{},statement:{},preparedStatement:{},callableStatement:{},databaseMetaData:{},resultSet:{}",
+                    connectionType, statementType, psStatementType, csStatementType, metaDataType, resultSetType);
+        }
+        return factory;
+    }
+
+    //writer of classes pre-generated by ProxyClassGenerator
+    static ProxyClassWriter createPregeneratedWriter() {
+        return new ProxyClassWriter("", PREGENERATED_FACTORY_NAME);
+    }
+
+    /**
+     * write proxy classes(factory class excluded),which are single model of pre-generated classes
+     * and classes generated at pool initialization
+     *
+     * @param writer class file writer
+     * @return map of class name to class bytes,ordered by dependency
+     */
+    static Map<String, byte[]> writeProxyClasses(ProxyClassWriter writer) {
+        Map<String, byte[]> classMap = new LinkedHashMap<String, byte[]>(8);
+        classMap.put(writer.connectionClassName, writer.writeConnectionClass());
+        classMap.put(writer.statementClassName, writer.writeStatementClass(Statement.class));
+        classMap.put(writer.psStatementClassName, writer.writeStatementClass(PreparedStatement.class));
+        classMap.put(writer.csStatementClassName, writer.writeStatementClass(CallableStatement.class));
+        classMap.put(writer.metaDataClassName, writer.writeDatabaseMetaDataClass());
+        classMap.put(writer.resultSetClassName, writer.writeResultSetClass());
+        return classMap;
+    }
+
+    private static ProxyObjectFactory generateFactory(ProxyClassWriter writer) throws SQLException {
+        long startTime = System.nanoTime();
+        for (byte[] bytes : writeProxyClasses(writer).values())
+            defineClass(bytes);
+        ProxyObjectFactory factory = newFactory(writer, writer.writeFactoryClass());
+        log.info("BeeCP generated JDBC proxy classes in {}ms", (System.nanoTime() - startTime) / 1000000L);
+        return factory;
+    }
+
+    /**
+     * common class declared as return type by all methods of driver class,which implement interface methods
+     * returning 'returnIntf',null if one of them is declared to return interface
+     */
+    private static Class<?> returnType(Class<?> driverClass, Class<?> intf, Class<?> returnIntf) {
+        if (driverClass == null) return null;
+        Class<?> commonType = null;
+        for (Method intfMethod : intf.getMethods()) {
+            if (intfMethod.getReturnType() != returnIntf) continue;
+            Class<?> type;
+            try {
+                type = driverClass.getMethod(intfMethod.getName(), intfMethod.getParameterTypes()).getReturnType();
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+            if (type.isInterface() || (commonType != null && commonType != type)) return null;
+            commonType = type;
+        }
+        return commonType != null && isVisible(commonType) ? commonType : null;
+    }
+
+    //driver class can be called from generated classes in pool package
+    private static boolean isVisible(Class<?> driverClass) {
+        if (!Modifier.isPublic(driverClass.getModifiers())) return false;
+        try {
+            return Class.forName(driverClass.getName(), false, ProxyObjectFactory.class.getClassLoader()) == driverClass;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * compare class files in class path with classes written by current writer,class files left by
+     * an older build(or another version of pool) are stale and never loaded
+     */
+    private static int checkPregeneratedClasses(ProxyClassWriter writer) {
+        ClassLoader classLoader = ProxyObjectFactory.class.getClassLoader();
+        if (classLoader == null) classLoader = ClassLoader.getSystemClassLoader();
+        for (Map.Entry<String, byte[]> entry : writeProxyClasses(writer).entrySet()) {
+            byte[] existBytes = readClassFile(classLoader, entry.getKey());
+            if (existBytes == null) return PREGENERATED_MISSED;
+            if (!Arrays.equals(existBytes, entry.getValue())) return PREGENERATED_STALE;
+        }
+        return PREGENERATED_CURRENT;
+    }
+
+    private static byte[] readClassFile(ClassLoader classLoader, String className) {
+        InputStream in = classLoader.getResourceAsStream(className.replace('.', '/') + ".class");
+        if (in == null) return null;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+            byte[] buffer = new byte[4096];
+            for (int len = in.read(buffer); len != -1; len = in.read(buffer))
+                out.write(buffer, 0, len);
+            return out.toByteArray();
+        } catch (IOException e) {
+            return null;
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                //do nothing
+            }
+        }
+    }
+
+    private static ProxyObjectFactory newFactory(ProxyClassWriter writer, byte[] factoryBytes) throws SQLException {
+        try {
+            return (ProxyObjectFactory) defineClass(factoryBytes).newInstance();
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Failed to create proxy factory:" + writer.factoryClassName, e);
+        }
+    }
+
+    /**
+     * define class in package of pool,Lookup.defineClass(java 9+) is preferred,
+     * protected ClassLoader.defineClass is called on older java
+     */
+    private static Class<?> defineClass(byte[] bytes) throws SQLException {
+        try {
+            Method defineMethod;
+            try {
+                defineMethod = MethodHandles.Lookup.class.getMethod("defineClass", byte[].class);
+                return (Class<?>) defineMethod.invoke(MethodHandles.lookup(), new Object[]{bytes});
+            } catch (NoSuchMethodException e) {
+                defineMethod = ClassLoader.class.getDeclaredMethod("defineClass", String.class, byte[].class, int.class, int.class);
+                defineMethod.setAccessible(true);
+                return (Class<?>) defineMethod.invoke(ProxyObjectFactory.class.getClassLoader(), null, bytes, 0, bytes.length);
+            }
+        } catch (Exception e) {
+            throw new SQLException("Failed to define JDBC proxy class", e);
+        }
+    }
+}
@@ -34,12 +34,23 @@ abstract class ProxyResultSetBase implements ResultSet {
     protected PooledConnection pConn;//called by subclass to update time
     private ProxyStatementBase proxyStatement;//called by subclass to check close state
     private boolean needCheckStatement;//called by subclass to check close state
+    private int stmGeneration;
 
     public ProxyResultSetBase(ResultSet delegate, ProxyStatementBase proxyStatement, PooledConnection pConn, boolean needCheckStatement) {
         this.pConn = pConn;
         this.delegate = delegate;
         this.proxyStatement = proxyStatement;
         this.needCheckStatement = needCheckStatement;
+        if (needCheckStatement) stmGeneration = proxyStatement.generation;
+    }
+
+    //reuse closed proxy for another result set of same proxy connection(same borrow)
+    void reopen(ResultSet delegate, ProxyStatementBase proxyStatement) {
+        this.delegate = delegate;
+        this.proxyStatement = proxyStatement;
+        this.needCheckStatement = true;
+        this.stmGeneration = proxyStatement.generation;
+        this.isClosed = false;
     }
 
     public Statement getStatement() throws SQLException {
@@ -48,18 +59,25 @@ abstract class ProxyResultSetBase implements ResultSet {
     }
 
     public boolean isClosed() throws SQLException {
-        return isClosed;
+        return isClosed || (needCheckStatement && (stmGeneration != proxyStatement.generation || proxyStatement.isClosed()));
     }
 
     protected void checkClosed() throws SQLException {
         if (isClosed) throw ResultSetClosedException;
-        if (needCheckStatement) proxyStatement.checkClosed();
+        if (needCheckStatement) {
+            if (stmGeneration != proxyStatement.generation) throw ResultSetClosedException;
+            proxyStatement.checkClosed();
+        }
     }
 
     public void close() throws SQLException {
         checkClosed();
         isClosed = true;
         oclose(delegate);
+        if (pConn.reuseProxyObject && needCheckStatement) {
+            delegate = null;
+            proxyStatement.proxyConn.recycleResultSet(this);
+        }
     }
 
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
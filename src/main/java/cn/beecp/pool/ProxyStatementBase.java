@@ -16,7 +16,9 @@
 package cn.beecp.pool;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
 
 import static cn.beecp.pool.PoolExceptionList.StatementClosedException;
@@ -29,17 +31,111 @@ import static cn.beecp.util.BeecpUtil.oclose;
  * @version 1.0
  */
 class ProxyStatementBase {
+    //changed properties of cached statement,which are reset on proxy close
+    static final int CHG_PARAMETERS = 1;
+    static final int CHG_BATCH = 2;
+    static final int CHG_MAX_ROWS = 4;
+    static final int CHG_FETCH_SIZE = 8;
+    static final int CHG_QUERY_TIMEOUT = 16;
+    static final int CHG_MAX_FIELD_SIZE = 32;
+    static final int CHG_FETCH_DIRECTION = 64;
+    static final int CHG_ESCAPE_PROCESSING = 128;
+    static final int CHG_POOLABLE = 256;
+    static final int CHG_CURSOR_NAME = 512;//not resettable,statement removed from cache
+
     protected Statement delegate;
     protected PooledConnection pConn;//called by subclass to update time
     protected ProxyConnectionBase proxyConn;//called by subclass to check close state
+    protected int changedFlags;//set by subclass on parameter binding and batch adding
+    StatementCache.Entry cacheEntry;//checked out cache entry of delegate,null if delegate not cached
+    int generation;//increased when proxy reused,result sets created before see it closed
     private boolean isClosed;
     private boolean closeDlg;
+    private int defaultMaxRows;
+    private int defaultFetchSize;
+    private int defaultQueryTimeout;
+    private int defaultMaxFieldSize;
+    private int defaultFetchDirection;
+    private boolean defaultPoolable;
+    private int queryTimeout;//seconds,-1 if not known
+    private boolean poolQueryTimeout;//pool default query timeout in effect,enforced by cancel from timer
+    private QueryTimeoutTask queryTimeoutTask;//timer task reused by executions,created on first timed execution
+    private SqlLatencyRegistry.SqlLatency preparedLatency;//latency recorder of prepared SQL
+    private SqlLatencyRegistry.SqlLatency executeLatency;//latency recorder of current execution
+    private long executeStartTime;//nanoseconds
 
     public ProxyStatementBase(Statement delegate, ProxyConnectionBase proxyConn, PooledConnection pConn, boolean closeDlg) {
         this.pConn = pConn;
         this.proxyConn = proxyConn;
         this.delegate = delegate;
         this.closeDlg = closeDlg;
+        initQueryTimeout();
+    }
+
+    private void initQueryTimeout() {
+        poolQueryTimeout = pConn.defaultQueryTimeout > 0;
+        queryTimeout = poolQueryTimeout ? pConn.defaultQueryTimeout : -1;
+    }
+
+    //reuse closed proxy for another statement of same proxy connection(same borrow)
+    void reopen(Statement delegate, ProxyConnectionBase proxyConn, boolean closeDlg) {
+        this.proxyConn = proxyConn;
+        this.delegate = delegate;
+        this.closeDlg = closeDlg;
+        this.changedFlags = 0;
+        this.generation++;
+        this.isClosed = false;
+        initQueryTimeout();
+    }
+
+    //set by pooled connection after prepare,when SQL latency recorded
+    final void setPreparedLatency(SqlLatencyRegistry.SqlLatency preparedLatency) {
+        this.preparedLatency = preparedLatency;
+    }
+
+    //called by subclass before execution of prepared SQL
+    final void beginExecute() throws SQLException {
+        beginExecute(preparedLatency);
+    }
+
+    //called by subclass before execution of SQL in parameter
+    final void beginExecute(String sql) throws SQLException {
+        beginExecute(pConn.sqlLatencyRegistry != null ? pConn.sqlLatencyRegistry.get(sql) : null);
+    }
+
+    private void beginExecute(SqlLatencyRegistry.SqlLatency latency) throws SQLException {
+        if (pConn.holdTimeoutRecovery) proxyConn.beginExecute(delegate);
+        if (latency != null) {
+            executeLatency = latency;
+            executeStartTime = System.nanoTime();
+        }
+        if (poolQueryTimeout) {
+            if (queryTimeoutTask == null) queryTimeoutTask = new QueryTimeoutTask(pConn.getScheduler());
+            queryTimeoutTask.start(delegate, queryTimeout);
+        }
+    }
+
+    //called by subclass after execution,running mark cleared after last write to pooled connection
+    final void endExecute() {
+        recordLatency();
+        if (queryTimeoutTask != null) queryTimeoutTask.finish();
+        pConn.updateAccessTimeWithCommitDirty();
+        if (pConn.holdTimeoutRecovery) proxyConn.endExecute();
+    }
+
+    //called by subclass on execution failed,return the exception to be thrown
+    final Throwable endExecute(Throwable e) {
+        recordLatency();//failed execution recorded also
+        boolean cancelled = queryTimeoutTask != null && queryTimeoutTask.finish();
+        if (pConn.holdTimeoutRecovery) proxyConn.endExecute();
+        return cancelled ? new SQLTimeoutException("Statement cancelled on query timeout(" + queryTimeout + " seconds)", e) : e;
+    }
+
+    private void recordLatency() {
+        if (executeLatency != null) {
+            executeLatency.record(System.nanoTime() - executeStartTime);
+            executeLatency = null;
+        }
     }
 
     public Connection getConnection() throws SQLException {
@@ -48,7 +144,7 @@ class ProxyStatementBase {
     }
 
     public boolean isClosed() throws SQLException {
-        return isClosed;
+        return isClosed || proxyConn.isClosed();
     }
 
     protected void checkClosed() throws SQLException {
@@ -59,7 +155,131 @@ class ProxyStatementBase {
     public void close() throws SQLException {
         checkClosed();
         isClosed = true;
-        if (closeDlg) oclose(delegate);
+        if (closeDlg) {
+            oclose(delegate);
+        } else {
+            if (changedFlags != 0) resetCachedStatement();
+            pConn.releaseStatement(cacheEntry);
+            cacheEntry = null;
+        }
+        if (pConn.reuseProxyObject) {
+            delegate = null;
+            proxyConn.recycleStatement(this);
+        }
+    }
+
+    //reset changed properties of cached statement,remove it from cache if failed
+    private void resetCachedStatement() {
+        try {
+            if ((changedFlags & CHG_CURSOR_NAME) != 0)
+                throw new SQLException("Cursor name can't be reset");
+            if ((changedFlags & CHG_PARAMETERS) != 0)
+                ((PreparedStatement) delegate).clearParameters();
+            if ((changedFlags & CHG_BATCH) != 0)
+                delegate.clearBatch();
+            if ((changedFlags & CHG_MAX_ROWS) != 0)
+                delegate.setMaxRows(defaultMaxRows);
+            if ((changedFlags & CHG_FETCH_SIZE) != 0)
+                delegate.setFetchSize(defaultFetchSize);
+            if ((changedFlags & CHG_QUERY_TIMEOUT) != 0)
+                delegate.setQueryTimeout(defaultQueryTimeout);
+            if ((changedFlags & CHG_MAX_FIELD_SIZE) != 0)
+                delegate.setMaxFieldSize(defaultMaxFieldSize);
+            if ((changedFlags & CHG_FETCH_DIRECTION) != 0)
+                delegate.setFetchDirection(defaultFetchDirection);
+            if ((changedFlags & CHG_ESCAPE_PROCESSING) != 0)
+                delegate.setEscapeProcessing(true);//JDBC default,no getter
+            if ((changedFlags & CHG_POOLABLE) != 0)
+                delegate.setPoolable(defaultPoolable);
+            changedFlags = 0;
+        } catch (SQLException e) {
+            pConn.removeStatement((PreparedStatement) delegate);
+        }
+    }
+
+    public void setMaxRows(int max) throws SQLException {
+        checkClosed();
+        if (!closeDlg && (changedFlags & CHG_MAX_ROWS) == 0) {
+            defaultMaxRows = delegate.getMaxRows();
+            changedFlags |= CHG_MAX_ROWS;
+        }
+        delegate.setMaxRows(max);
+    }
+
+    public void setLargeMaxRows(long max) throws SQLException {
+        checkClosed();
+        if (!closeDlg && (changedFlags & CHG_MAX_ROWS) == 0) {
+            defaultMaxRows = delegate.getMaxRows();
+            changedFlags |= CHG_MAX_ROWS;
+        }
+        delegate.setLargeMaxRows(max);
+    }
+
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        checkClosed();
+        if (!closeDlg) changedFlags |= CHG_ESCAPE_PROCESSING;
+        delegate.setEscapeProcessing(enable);
+    }
+
+    public void setPoolable(boolean poolable) throws SQLException {
+        checkClosed();
+        if (!closeDlg && (changedFlags & CHG_POOLABLE) == 0) {
+            defaultPoolable = delegate.isPoolable();
+            changedFlags |= CHG_POOLABLE;
+        }
+        delegate.setPoolable(poolable);
+    }
+
+    public void setCursorName(String name) throws SQLException {
+        checkClosed();
+        if (!closeDlg) changedFlags |= CHG_CURSOR_NAME;
+        delegate.setCursorName(name);
+    }
+
+    public void setFetchSize(int rows) throws SQLException {
+        checkClosed();
+        if (!closeDlg && (changedFlags & CHG_FETCH_SIZE) == 0) {
+            defaultFetchSize = delegate.getFetchSize();
+            changedFlags |= CHG_FETCH_SIZE;
+        }
+        delegate.setFetchSize(rows);
+    }
+
+    public void setQueryTimeout(int seconds) throws SQLException {
+        checkClosed();
+        if (seconds == queryTimeout) return;//unchanged,pool default kept if in effect
+
+        if (!closeDlg && (changedFlags & CHG_QUERY_TIMEOUT) == 0) {
+            defaultQueryTimeout = delegate.getQueryTimeout();
+            changedFlags |= CHG_QUERY_TIMEOUT;
+        }
+        delegate.setQueryTimeout(seconds);
+        queryTimeout = seconds;
+        poolQueryTimeout = false;
+    }
+
+    public int getQueryTimeout() throws SQLException {
+        checkClosed();
+        if (queryTimeout < 0) queryTimeout = delegate.getQueryTimeout();
+        return queryTimeout;
+    }
+
+    public void setMaxFieldSize(int max) throws SQLException {
+        checkClosed();
+        if (!closeDlg && (changedFlags & CHG_MAX_FIELD_SIZE) == 0) {
+            defaultMaxFieldSize = delegate.getMaxFieldSize();
+            changedFlags |= CHG_MAX_FIELD_SIZE;
+        }
+        delegate.setMaxFieldSize(max);
+    }
+
+    public void setFetchDirection(int direction) throws SQLException {
+        checkClosed();
+        if (!closeDlg && (changedFlags & CHG_FETCH_DIRECTION) == 0) {
+            defaultFetchDirection = delegate.getFetchDirection();
+            changedFlags |= CHG_FETCH_DIRECTION;
+        }
+        delegate.setFetchDirection(direction);
     }
 
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
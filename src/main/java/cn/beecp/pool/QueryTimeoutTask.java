@@ -0,0 +1,156 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Statement;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Timer task of statement executions with pool default query timeout,statement is cancelled in
+ * cancel executor of shared scheduler when execution not finished in time,timer thread only checks
+ * deadline and hands cancel over;if the executor is full,cancel is tried again later.One task is kept by a statement proxy
+ * and reused by its executions:timer is not cancelled at execution end,it checks deadline of current
+ * execution on run and is scheduled again if that execution begun later,so a timer is scheduled at
+ * most once in a timeout period.State is execution sequence(high bits) and phase(low 2 bits),so
+ * cancel of an ended execution can't hit next one.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class QueryTimeoutTask implements Runnable {
+    private static final long FINISHED = 0L;
+    private static final long EXECUTING = 1L;
+    private static final long CANCELLING = 2L;
+    private static final long CANCELLED = 3L;
+    private static final long PHASE_MASK = 3L;
+    private static final long SEQUENCE_UNIT = 4L;
+    private static final long CANCEL_RETRY_NANOS = MILLISECONDS.toNanos(100L);//delay to retry rejected cancel
+    private static final AtomicLongFieldUpdater<QueryTimeoutTask> StateUpd = AtomicLongFieldUpdater.newUpdater(QueryTimeoutTask.class, "state");
+    private static final AtomicIntegerFieldUpdater<QueryTimeoutTask> ArmedUpd = AtomicIntegerFieldUpdater.newUpdater(QueryTimeoutTask.class, "armed");
+    private static final Logger log = LoggerFactory.getLogger(QueryTimeoutTask.class);
+
+    private final SharedScheduler scheduler;
+    private final SharedScheduler.ScheduledTask scheduledTask;
+    private final Runnable canceller;
+    private Statement statement;//statement of current execution,published by state
+    private long cancellingState;//state of execution in cancelling,published by executor
+    private volatile long deadline;//nanoseconds
+    private volatile long state;
+    private volatile int armed;//1 if timer is waiting in scheduler or running
+
+    QueryTimeoutTask(SharedScheduler scheduler) {
+        this.scheduler = scheduler;
+        this.scheduledTask = scheduler.create(this, true);
+        this.canceller = new Runnable() {
+            public void run() {
+                cancel(cancellingState);
+            }
+        };
+    }
+
+    //called before execution
+    void start(Statement statement, int seconds) {
+        this.statement = statement;
+        this.deadline = nanoTime() + SECONDS.toNanos(seconds);
+        this.state = (state & ~PHASE_MASK) + SEQUENCE_UNIT + EXECUTING;
+        if (armed == 0) arm();
+    }
+
+    //schedule timer to deadline of current execution if not scheduled
+    private void arm() {
+        if (ArmedUpd.compareAndSet(this, 0, 1))
+            scheduler.schedule(scheduledTask, deadline - nanoTime(), NANOSECONDS);
+    }
+
+    //run in timer thread on timer expired
+    public void run() {
+        long s = state;
+        if ((s & PHASE_MASK) == EXECUTING) {
+            long remainNanos = deadline - nanoTime();
+            if (remainNanos > 0L) {//execution begun after timer scheduled
+                scheduler.schedule(scheduledTask, remainNanos, NANOSECONDS);
+                return;
+            }
+            if (StateUpd.compareAndSet(this, s, s - EXECUTING + CANCELLING)) {
+                cancellingState = s;
+                try {
+                    scheduler.getCancelExecutor().execute(canceller);
+                } catch (RejectedExecutionException e) {
+                    synchronized (this) {//back to executing,waiting finish returns as not cancelled
+                        state = s;
+                        notifyAll();
+                    }
+                    log.warn("Statement cancel executor is full,query timeout cancel will be retried");
+                    scheduler.schedule(scheduledTask, CANCEL_RETRY_NANOS, NANOSECONDS);
+                    return;
+                }
+            }
+        }
+
+        armed = 0;
+        //execution begun before timer disarmed was not armed by itself
+        if ((state & PHASE_MASK) == EXECUTING) arm();
+    }
+
+    private void cancel(long s) {
+        try {
+            statement.cancel();
+        } catch (Throwable e) {
+            log.warn("Failed to cancel statement on query timeout", e);
+        } finally {
+            synchronized (this) {
+                state = s - EXECUTING + CANCELLED;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * called after execution,wait cancelling end,so next execution is not hit by it
+     *
+     * @return true if statement cancelled on timeout
+     */
+    boolean finish() {
+        long s = state;
+        if ((s & PHASE_MASK) == FINISHED) return false;
+        if ((s & PHASE_MASK) == EXECUTING && StateUpd.compareAndSet(this, s, s - EXECUTING)) return false;
+
+        boolean interrupted = false, cancelled;
+        synchronized (this) {
+            while ((state & PHASE_MASK) == CANCELLING) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            cancelled = (state & PHASE_MASK) == CANCELLED;
+            state &= ~PHASE_MASK;
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        return cancelled;
+    }
+}
@@ -44,7 +44,6 @@ import static java.util.concurrent.TimeUnit.NANOSECONDS;
 public final class RawConnectionPool implements ConnectionPool, ConnectionPoolJMXBean {
     private static AtomicInteger PoolNameIndex = new AtomicInteger(1);
     private final Logger log = LoggerFactory.getLogger(RawConnectionPool.class);
-    private final ConnectionPoolMonitorVo monitorVo = new ConnectionPoolMonitorVo();
     private long defaultMaxWait;
     private Semaphore borrowSemaphore;
     private BeeDataSourceConfig poolConfig;
@@ -104,6 +103,17 @@ public final class RawConnectionPool implements ConnectionPool, ConnectionPoolJM
         }
     }
 
+    /**
+     * borrow one connection from pool,borrower group is not supported in raw pool
+     *
+     * @param groupName borrower group name
+     * @return a raw connection
+     * @throws SQLException if pool is closed or waiting timeout,then throw exception
+     */
+    public Connection getConnection(String groupName) throws SQLException {
+        return getConnection();
+    }
+
     /**
      * return connection to pool
      *
@@ -166,9 +176,78 @@ public final class RawConnectionPool implements ConnectionPool, ConnectionPoolJM
         return 0;
     }
 
+    public long getStatementCacheHitCount() {
+        return 0;
+    }
+
+    public long getStatementCacheMissCount() {
+        return 0;
+    }
+
+    public long getStatementCacheEvictCount() {
+        return 0;
+    }
+
+    public StatementMonitorVo[] getMostPreparedStatements() {
+        return new StatementMonitorVo[0];
+    }
+
+    public StatementMonitorVo[] getMostEvictedStatements() {
+        return new StatementMonitorVo[0];
+    }
+
+    public long getSavedRoundTripCount() {
+        return 0;
+    }
+
+    public long getHoldTimeoutSalvagedCount() {
+        return 0;
+    }
+
+    public long getBorrowCount() {
+        return 0;
+    }
+
+    public long getThreadLocalHitCount() {
+        return 0;
+    }
+
+    public long getBorrowTimeoutCount() {
+        return 0;
+    }
+
+    public long getCreateCount() {
+        return 0;
+    }
+
+    public SqlLatencyMonitorVo[] getSlowestStatements() {
+        return new SqlLatencyMonitorVo[0];
+    }
+
+    public LatencyMonitorVo getSemaphoreWaitLatency() {
+        return null;
+    }
+
+    public LatencyMonitorVo getTransferWaitLatency() {
+        return null;
+    }
+
+    public LatencyMonitorVo getHoldLatency() {
+        return null;
+    }
+
+    public LatencyMonitorVo getCreationLatency() {
+        return null;
+    }
+
+    public LatencyMonitorVo getValidationLatency() {
+        return null;
+    }
+
     public ConnectionPoolMonitorVo getMonitorVo() {
         int totSize = getConnTotalSize();
         int idleSize = getConnIdleSize();
+        ConnectionPoolMonitorVo monitorVo = new ConnectionPoolMonitorVo();
         monitorVo.setPoolName(poolName);
         monitorVo.setPoolMode(poolMode);
         monitorVo.setPoolState(POOL_NORMAL);
@@ -0,0 +1,102 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * JDBC4.3 request boundary(Connection.beginRequest/endRequest),pool is compiled with JDK1.7,
+ * so methods are called by method handles resolved once(inlined by JIT as constants).Boundary
+ * is used only when connection class of driver implements the methods,default methods of
+ * interface do nothing and are not called.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class RequestBoundary {
+    private static final MethodHandle BeginHandle;
+    private static final MethodHandle EndHandle;
+    //connection classes of drivers,which roll back,restore session state(autoCommit,isolation,catalog,
+    //networkTimeout),clear warnings and close statements in endRequest
+    private static final Set<String> DriverResetConnectionClasses = new HashSet<String>(4);
+
+    static {
+        MethodHandle beginHandle = null, endHandle = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            MethodType type = MethodType.methodType(void.class);
+            beginHandle = lookup.findVirtual(Connection.class, "beginRequest", type);
+            endHandle = lookup.findVirtual(Connection.class, "endRequest", type);
+        } catch (Exception e) {//before JDK9
+            beginHandle = null;
+            endHandle = null;
+        }
+        BeginHandle = beginHandle;
+        EndHandle = endHandle;
+        DriverResetConnectionClasses.add("com.microsoft.sqlserver.jdbc.SQLServerConnection");
+        DriverResetConnectionClasses.add("com.microsoft.sqlserver.jdbc.SQLServerConnection43");
+    }
+
+    final boolean driverReset;//pool reset on return is done by driver in endRequest
+
+    private RequestBoundary(boolean driverReset) {
+        this.driverReset = driverReset;
+    }
+
+    /**
+     * @param conClass connection class of driver
+     * @return null if JDK or driver not support request boundary
+     */
+    static RequestBoundary lookup(Class<?> conClass) {
+        if (BeginHandle == null) return null;
+        try {
+            if (conClass.getMethod("beginRequest").getDeclaringClass().isInterface()
+                    || conClass.getMethod("endRequest").getDeclaringClass().isInterface())
+                return null;
+            return new RequestBoundary(DriverResetConnectionClasses.contains(conClass.getName()));
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    //called on borrow
+    void begin(Connection rawConn) throws SQLException {
+        try {
+            BeginHandle.invokeExact(rawConn);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SQLException(e);
+        }
+    }
+
+    //called on return
+    void end(Connection rawConn) throws SQLException {
+        try {
+            EndHandle.invokeExact(rawConn);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SQLException(e);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static java.util.concurrent.locks.LockSupport.unpark;
+
+/**
+ * Scheduler shared by all pools in JVM,one hashed timer wheel thread and a small worker pool.
+ * A task is put into wheel bucket of its expiration tick and run by workers when expired(tiny
+ * task can run in timer thread),workers are also the executor of network timeout.Scheduler is
+ * started by first pool and stopped after last pool released it,so per pool thread is not needed
+ * for idle scan and other timed tasks.Salvage of hold timeout connections may block on driver,so
+ * it runs in a separate executor with bounded threads and queue,not to delay timed tasks;statement
+ * cancel on query timeout is same,it runs in another bounded executor.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class SharedScheduler implements Runnable {
+    static final long TICK_MILLIS = 10L;
+    private static final long TICK_NANOS = MILLISECONDS.toNanos(TICK_MILLIS);
+    private static final int WHEEL_SIZE = 512;//power of 2
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int WORKER_SIZE = Math.min(4, Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int SALVAGE_WORKER_SIZE = 2;
+    private static final int SALVAGE_QUEUE_SIZE = 64;//salvage rejected when full
+    private static final int CANCEL_WORKER_SIZE = 2;
+    private static final int CANCEL_QUEUE_SIZE = 256;//cancel rejected when full
+    private static final Logger log = LoggerFactory.getLogger(SharedScheduler.class);
+    private static SharedScheduler instance;//guarded by class
+    private static int referenceCount;//guarded by class
+
+    private final long startTime;//nanoseconds
+    private final ScheduledTask[] wheel = new ScheduledTask[WHEEL_SIZE];//head of bucket
+    private final ConcurrentLinkedQueue<ScheduledTask> addedQueue = new ConcurrentLinkedQueue<ScheduledTask>();
+    private final ConcurrentLinkedQueue<ScheduledTask> cancelledQueue = new ConcurrentLinkedQueue<ScheduledTask>();
+    private final ThreadPoolExecutor workerExecutor;
+    private final ThreadPoolExecutor salvageExecutor;
+    private final ThreadPoolExecutor cancelExecutor;
+    private final Thread timerThread;
+    private volatile boolean stopped;
+    private long tick;//written by timer thread
+
+    private SharedScheduler() {
+        startTime = nanoTime();
+        workerExecutor = new ThreadPoolExecutor(WORKER_SIZE, WORKER_SIZE, 15, SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new FastConnectionPool.PoolThreadThreadFactory("SharedPoolWorker"));
+        workerExecutor.allowCoreThreadTimeOut(true);
+        salvageExecutor = new ThreadPoolExecutor(SALVAGE_WORKER_SIZE, SALVAGE_WORKER_SIZE, 15, SECONDS,
+                new ArrayBlockingQueue<Runnable>(SALVAGE_QUEUE_SIZE), new FastConnectionPool.PoolThreadThreadFactory("SharedPoolSalvager"));
+        salvageExecutor.allowCoreThreadTimeOut(true);
+        cancelExecutor = new ThreadPoolExecutor(CANCEL_WORKER_SIZE, CANCEL_WORKER_SIZE, 15, SECONDS,
+                new ArrayBlockingQueue<Runnable>(CANCEL_QUEUE_SIZE), new FastConnectionPool.PoolThreadThreadFactory("SharedPoolCanceller"));
+        cancelExecutor.allowCoreThreadTimeOut(true);
+        timerThread = new Thread(this, "SharedPoolTimer");
+        timerThread.setDaemon(true);
+        timerThread.start();
+    }
+
+    //called by pool on initialization
+    static synchronized SharedScheduler acquire() {
+        if (instance == null) instance = new SharedScheduler();
+        referenceCount++;
+        return instance;
+    }
+
+    //called by pool on close,scheduler stops when not referred by any pool
+    static synchronized void release(SharedScheduler scheduler) {
+        if (scheduler == instance && --referenceCount == 0) {
+            instance = null;
+            scheduler.stop();
+        }
+    }
+
+    ThreadPoolExecutor getWorkerExecutor() {
+        return workerExecutor;
+    }
+
+    //executor of hold timeout salvage,throws RejectedExecutionException when its queue is full
+    ThreadPoolExecutor getSalvageExecutor() {
+        return salvageExecutor;
+    }
+
+    //executor of statement cancel on query timeout,throws RejectedExecutionException when its queue is full
+    ThreadPoolExecutor getCancelExecutor() {
+        return cancelExecutor;
+    }
+
+    /**
+     * @param task   timed task
+     * @param delay  time to first run
+     * @param period time between two runs,zero for one time task;a run is not started before last run end
+     * @param unit   time unit of delay and period
+     * @param inline true to run task in timer thread,only for tiny task
+     * @return handle to cancel task
+     */
+    ScheduledTask schedule(Runnable task, long delay, long period, TimeUnit unit, boolean inline) {
+        long periodTicks = period > 0L ? toTicks(unit.toNanos(period)) : 0L;
+        ScheduledTask t = new ScheduledTask(this, task, periodTicks, inline);
+        t.deadlineTick = currentTick() + toTicks(unit.toNanos(delay));
+        addedQueue.offer(t);
+        return t;
+    }
+
+    /**
+     * create a task not scheduled,which is scheduled by {@link #schedule(ScheduledTask, long, TimeUnit)}
+     *
+     * @param task   one time task
+     * @param inline true to run task in timer thread,only for tiny task
+     * @return task handle,not cancelled by owner
+     */
+    ScheduledTask create(Runnable task, boolean inline) {
+        return new ScheduledTask(this, task, 0L, inline);
+    }
+
+    /**
+     * schedule a task created by {@link #create(Runnable, boolean)},it is not allowed when task waiting
+     * in scheduler,so it is scheduled again only in its run or after its run;task handle is reused,no
+     * allocation on schedule
+     */
+    void schedule(ScheduledTask t, long delay, TimeUnit unit) {
+        t.deadlineTick = currentTick() + toTicks(unit.toNanos(delay));
+        addedQueue.offer(t);
+    }
+
+    private static long toTicks(long nanos) {
+        long ticks = (nanos + TICK_NANOS - 1) / TICK_NANOS;
+        return ticks > 0L ? ticks : 1L;
+    }
+
+    private long currentTick() {
+        return (nanoTime() - startTime) / TICK_NANOS;
+    }
+
+    private void stop() {
+        stopped = true;
+        unpark(timerThread);
+        workerExecutor.shutdown();
+        salvageExecutor.shutdown();
+        cancelExecutor.shutdown();
+    }
+
+    //timer thread
+    public void run() {
+        while (!stopped) {
+            long deadline = startTime + (tick + 1) * TICK_NANOS;
+            for (long parkTime = deadline - nanoTime(); parkTime > 0L && !stopped; parkTime = deadline - nanoTime())
+                parkNanos(this, parkTime);
+            if (stopped) break;
+
+            removeCancelledTasks();
+            transferAddedTasks();
+            expireTasks((int) (tick & WHEEL_MASK));
+            tick++;
+        }
+    }
+
+    private void removeCancelledTasks() {
+        ScheduledTask t;
+        while ((t = cancelledQueue.poll()) != null) {
+            if (t.bucket >= 0) unlink(t);
+        }
+    }
+
+    private void transferAddedTasks() {
+        ScheduledTask t;
+        while ((t = addedQueue.poll()) != null) {
+            if (t.cancelled) continue;
+            int bucket = (int) ((t.deadlineTick > tick ? t.deadlineTick : tick) & WHEEL_MASK);
+            t.bucket = bucket;
+            t.prev = null;
+            t.next = wheel[bucket];
+            if (t.next != null) t.next.prev = t;
+            wheel[bucket] = t;
+        }
+    }
+
+    private void expireTasks(int bucket) {
+        ScheduledTask t = wheel[bucket];
+        while (t != null) {
+            ScheduledTask next = t.next;
+            if (t.deadlineTick <= tick) {
+                unlink(t);
+                if (!t.cancelled) {
+                    if (t.inline) {
+                        t.run();
+                    } else {
+                        try {
+                            workerExecutor.execute(t);
+                        } catch (Throwable e) {//rejected after stop
+                            log.warn("Failed to run scheduled task", e);
+                        }
+                    }
+                }
+            }
+            t = next;
+        }
+    }
+
+    private void unlink(ScheduledTask t) {
+        if (t.prev != null)
+            t.prev.next = t.next;
+        else
+            wheel[t.bucket] = t.next;
+        if (t.next != null) t.next.prev = t.prev;
+        t.prev = null;
+        t.next = null;
+        t.bucket = -1;
+    }
+
+    //called after run of periodic task
+    private void reschedule(ScheduledTask t) {
+        long nextTick = t.deadlineTick + t.periodTicks;
+        long currentTick = currentTick();
+        t.deadlineTick = nextTick > currentTick ? nextTick : currentTick + 1;
+        addedQueue.offer(t);
+    }
+
+    /**
+     * Handle of task in scheduler,bucket links are accessed by timer thread only
+     */
+    static final class ScheduledTask implements Runnable {
+        private final SharedScheduler scheduler;
+        private final Runnable task;
+        private final long periodTicks;
+        private final boolean inline;
+        private volatile boolean cancelled;
+        private long deadlineTick;
+        private int bucket = -1;
+        private ScheduledTask prev;
+        private ScheduledTask next;
+
+        ScheduledTask(SharedScheduler scheduler, Runnable task, long periodTicks, boolean inline) {
+            this.scheduler = scheduler;
+            this.task = task;
+            this.periodTicks = periodTicks;
+            this.inline = inline;
+        }
+
+        public void run() {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.warn("Failed to run scheduled task", e);
+            } finally {
+                if (periodTicks > 0L && !cancelled && !scheduler.stopped) scheduler.reschedule(this);
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                scheduler.cancelledQueue.offer(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Pool-wide identity of a cacheable statement(SQL text with statement options),
+ * identities are shared by all pooled connections as statement cache keys.
+ * Hit count is flushed from connection caches in batch,so it may lag behind.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class SqlIdentity {
+    private static final AtomicLongFieldUpdater<SqlIdentity> HitCountUpd = AtomicLongFieldUpdater.newUpdater(SqlIdentity.class, "hitCount");
+    private static final AtomicLongFieldUpdater<SqlIdentity> MissCountUpd = AtomicLongFieldUpdater.newUpdater(SqlIdentity.class, "missCount");
+    private static final AtomicLongFieldUpdater<SqlIdentity> EvictCountUpd = AtomicLongFieldUpdater.newUpdater(SqlIdentity.class, "evictCount");
+    private static final AtomicLongFieldUpdater<SqlIdentity> PrepareTimeUpd = AtomicLongFieldUpdater.newUpdater(SqlIdentity.class, "prepareTimeNanos");
+    private static final AtomicIntegerFieldUpdater<SqlIdentity> CachedCountUpd = AtomicIntegerFieldUpdater.newUpdater(SqlIdentity.class, "cachedCount");
+
+    //estimated bytes of one statement in driver,base size plus SQL text
+    private static final int STATEMENT_BASE_BYTES = 512;
+
+    final int id;
+    final CacheKey key;
+    final int weight;//estimated bytes of cached statement
+    private volatile long hitCount;
+    private volatile long missCount;
+    private volatile long evictCount;
+    private volatile long prepareTimeNanos;
+    private volatile long seedCount;//access count loaded from hot statement file or kept at last aging
+    private volatile long agedCount;//hit count plus miss count at last aging
+    private volatile int cachedCount;//count of connection caches holding statement of this identity
+    volatile boolean retired;//removed from registry
+
+    SqlIdentity(int id, CacheKey key) {
+        this.id = id;
+        this.key = key;
+        this.weight = STATEMENT_BASE_BYTES + key.getSql().length() * 2;
+    }
+
+    String getSql() {
+        return key.getSql();
+    }
+
+    long getHitCount() {
+        return hitCount;
+    }
+
+    long getMissCount() {
+        return missCount;
+    }
+
+    long getEvictCount() {
+        return evictCount;
+    }
+
+    long getPrepareTimeNanos() {
+        return prepareTimeNanos;
+    }
+
+    //hotness of statement
+    long getAccessCount() {
+        return hitCount + missCount - agedCount + seedCount;
+    }
+
+    void setSeedCount(long seedCount) {
+        this.seedCount = seedCount;
+    }
+
+    //halve access count,so statement hot long ago loses its rank(called under registry lock)
+    void age() {
+        long count = hitCount + missCount;
+        long accessCount = count - agedCount + seedCount;
+        agedCount = count;
+        seedCount = accessCount >> 1;
+    }
+
+    int getCachedCount() {
+        return cachedCount;
+    }
+
+    void cached() {
+        CachedCountUpd.incrementAndGet(this);
+    }
+
+    void uncached() {
+        CachedCountUpd.decrementAndGet(this);
+    }
+
+    //add hits flushed from a connection cache
+    void addHits(long hits) {
+        HitCountUpd.addAndGet(this, hits);
+    }
+
+    //statement prepared on cache miss
+    void miss(long prepareTimeNanos) {
+        MissCountUpd.incrementAndGet(this);
+        PrepareTimeUpd.addAndGet(this, prepareTimeNanos);
+    }
+
+    void evict() {
+        EvictCountUpd.incrementAndGet(this);
+    }
+
+    StatementMonitorVo getMonitorVo() {
+        StatementMonitorVo vo = new StatementMonitorVo();
+        vo.setSql(getSql());
+        vo.setHitCount(hitCount);
+        vo.setPrepareCount(missCount);
+        vo.setEvictCount(evictCount);
+        vo.setPrepareTime(NANOSECONDS.toMillis(prepareTimeNanos));
+        return vo;
+    }
+
+    public int hashCode() {
+        return id;
+    }
+
+    public boolean equals(Object obj) {
+        return this == obj;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Pool-wide registry,which maps each distinct statement(SQL text with statement options)
+ * to a compact int id once,registered count is bounded to avoid memory leak from
+ * dynamic SQL. When registry is full,coldest quarter of identities not held by any
+ * connection cache are removed and access counts of others are aged,statements of
+ * unregistered SQL are not cached. Most prepared(evicted) statement lists are refreshed
+ * by pool idle scan,monitor reads copy them only.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class SqlIdentityRegistry {
+    static final int MAX_SIZE = 10000;
+    //max size of identities removed in one sweep
+    private static final int SWEEP_SIZE = MAX_SIZE / 4;
+    //size of most prepared(evicted) statement list
+    static final int TOP_SIZE = 10;
+    private static final Comparator<StatementMonitorVo> PrepareCountComparator = new Comparator<StatementMonitorVo>() {
+        public int compare(StatementMonitorVo vo1, StatementMonitorVo vo2) {
+            return vo1.getPrepareCount() < vo2.getPrepareCount() ? -1 : (vo1.getPrepareCount() == vo2.getPrepareCount() ? 0 : 1);
+        }
+    };
+    private static final Comparator<StatementMonitorVo> EvictCountComparator = new Comparator<StatementMonitorVo>() {
+        public int compare(StatementMonitorVo vo1, StatementMonitorVo vo2) {
+            return vo1.getEvictCount() < vo2.getEvictCount() ? -1 : (vo1.getEvictCount() == vo2.getEvictCount() ? 0 : 1);
+        }
+    };
+
+    private final AtomicInteger idSeq = new AtomicInteger(0);
+    private final ConcurrentHashMap<CacheKey, SqlIdentity> identityMap = new ConcurrentHashMap<CacheKey, SqlIdentity>(64);
+    //pool-wide counts,not lost when identities removed
+    private final StripedCounter hitCount = new StripedCounter();
+    private final StripedCounter missCount = new StripedCounter();
+    private final StripedCounter evictCount = new StripedCounter();
+    private final StripedCounter prepareTimeNanos = new StripedCounter();
+    //top lists in descending order,refreshed by pool idle scan
+    private volatile StatementMonitorVo[] mostPrepared = new StatementMonitorVo[0];
+    private volatile StatementMonitorVo[] mostEvicted = new StatementMonitorVo[0];
+
+    /**
+     * find identity of statement
+     *
+     * @param probe lookup key(not be stored)
+     * @return identity,null if not registered
+     */
+    SqlIdentity get(CacheKey probe) {
+        return identityMap.get(probe);
+    }
+
+    /**
+     * register statement identity,a copy of probe will be stored as key
+     *
+     * @param probe lookup key
+     * @return identity,null if registry is full and all identities are held by connection caches
+     */
+    SqlIdentity register(CacheKey probe) {
+        SqlIdentity identity = identityMap.get(probe);
+        if (identity == null) {
+            if (identityMap.size() >= MAX_SIZE && !removeColdIdentities()) return null;
+            CacheKey key = probe.copy();
+            identity = new SqlIdentity(idSeq.incrementAndGet(), key);
+            SqlIdentity preIdentity = identityMap.putIfAbsent(key, identity);
+            if (preIdentity != null) identity = preIdentity;
+        }
+        return identity;
+    }
+
+    /**
+     * remove coldest identities not held by any connection cache,then age others
+     *
+     * @return false if no identity can be removed
+     */
+    private synchronized boolean removeColdIdentities() {
+        if (identityMap.size() < MAX_SIZE) return true;//swept by other thread
+
+        ArrayList<SqlIdentity> candidates = new ArrayList<SqlIdentity>(SWEEP_SIZE);
+        ArrayList<Long> candidateCounts = new ArrayList<Long>(SWEEP_SIZE);
+        for (SqlIdentity identity : identityMap.values()) {
+            if (identity.getCachedCount() == 0) {
+                candidates.add(identity);
+                candidateCounts.add(identity.getAccessCount());//snapshot,counts change during sweep
+            }
+        }
+        if (candidates.isEmpty()) return false;
+
+        int removeSize = Math.min(candidates.size(), SWEEP_SIZE);
+        long[] sortedCounts = new long[candidateCounts.size()];
+        for (int i = 0; i < sortedCounts.length; i++)
+            sortedCounts[i] = candidateCounts.get(i);
+        Arrays.sort(sortedCounts);
+        long maxRemoveCount = sortedCounts[removeSize - 1];
+        for (int i = 0, size = candidates.size(); i < size && removeSize > 0; i++) {
+            if (candidateCounts.get(i) <= maxRemoveCount) {
+                SqlIdentity identity = candidates.get(i);
+                identity.retired = true;
+                identityMap.remove(identity.key);
+                removeSize--;
+            }
+        }
+        age();
+        return true;
+    }
+
+    //halve access counts of all identities
+    synchronized void age() {
+        for (SqlIdentity identity : identityMap.values())
+            identity.age();
+    }
+
+    int size() {
+        return identityMap.size();
+    }
+
+    void hit() {
+        hitCount.increment();
+    }
+
+    //statement prepared on cache miss
+    void miss(SqlIdentity identity, long prepareTimeNanos) {
+        identity.miss(prepareTimeNanos);
+        missCount.increment();
+        this.prepareTimeNanos.add(prepareTimeNanos);
+    }
+
+    void evict(SqlIdentity identity) {
+        identity.evict();
+        evictCount.increment();
+    }
+
+    long getHitCount() {
+        return hitCount.sum();
+    }
+
+    long getMissCount() {
+        return missCount.sum();
+    }
+
+    long getEvictCount() {
+        return evictCount.sum();
+    }
+
+    //most prepared statements in descending order,copy of last refreshed list
+    StatementMonitorVo[] getMostPrepared() {
+        return mostPrepared.clone();
+    }
+
+    //most evicted statements in descending order,copy of last refreshed list
+    StatementMonitorVo[] getMostEvicted() {
+        return mostEvicted.clone();
+    }
+
+    //rebuild most prepared and most evicted statement lists in one pass,called by pool idle scan
+    void refreshTopStatements() {
+        PriorityQueue<StatementMonitorVo> preparedTop = new PriorityQueue<StatementMonitorVo>(TOP_SIZE + 1, PrepareCountComparator);
+        PriorityQueue<StatementMonitorVo> evictedTop = new PriorityQueue<StatementMonitorVo>(TOP_SIZE + 1, EvictCountComparator);
+        for (SqlIdentity identity : identityMap.values()) {
+            long identityEvictCount = identity.getEvictCount();
+            boolean inPreparedTop = preparedTop.size() < TOP_SIZE || identity.getMissCount() > preparedTop.peek().getPrepareCount();
+            boolean inEvictedTop = identityEvictCount > 0 && (evictedTop.size() < TOP_SIZE || identityEvictCount > evictedTop.peek().getEvictCount());
+            if (inPreparedTop || inEvictedTop) {
+                StatementMonitorVo vo = identity.getMonitorVo();
+                if (inPreparedTop) offerTop(preparedTop, vo);
+                if (inEvictedTop) offerTop(evictedTop, vo);
+            }
+        }
+        mostPrepared = toSortedArray(preparedTop);
+        mostEvicted = toSortedArray(evictedTop);
+    }
+
+    Collection<SqlIdentity> getIdentities() {
+        return identityMap.values();
+    }
+
+    /**
+     * find hottest statements(most accessed)
+     *
+     * @param size max size of result
+     * @return identities in descending order of access count
+     */
+    SqlIdentity[] getHottest(int size) {
+        int count = 0;
+        long[] accessCounts = new long[size];
+        SqlIdentity[] hottest = new SqlIdentity[size];
+        for (SqlIdentity identity : identityMap.values()) {
+            long accessCount = identity.getAccessCount();
+            if (count == size && accessCount <= accessCounts[size - 1]) continue;
+
+            int pos = count < size ? count++ : size - 1;
+            while (pos > 0 && accessCounts[pos - 1] < accessCount) {
+                accessCounts[pos] = accessCounts[pos - 1];
+                hottest[pos] = hottest[pos - 1];
+                pos--;
+            }
+            accessCounts[pos] = accessCount;
+            hottest[pos] = identity;
+        }
+        return count == size ? hottest : Arrays.copyOf(hottest, count);
+    }
+
+    /**
+     * fill pool-wide statement cache statistics and top SQL lists into monitor vo
+     */
+    void fillMonitorVo(ConnectionPoolMonitorVo vo) {
+        vo.setStatementCacheHitCount(hitCount.sum());
+        vo.setStatementCacheMissCount(missCount.sum());
+        vo.setStatementCacheEvictCount(evictCount.sum());
+        vo.setStatementPrepareTime(NANOSECONDS.toMillis(prepareTimeNanos.sum()));
+        vo.setMostPreparedStatements(getMostPrepared());//copy of cached lists,not scan identities
+        vo.setMostEvictedStatements(getMostEvicted());
+    }
+
+    private static void offerTop(PriorityQueue<StatementMonitorVo> top, StatementMonitorVo vo) {
+        top.offer(vo);
+        if (top.size() > TOP_SIZE) top.poll();
+    }
+
+    //descending order
+    private static StatementMonitorVo[] toSortedArray(PriorityQueue<StatementMonitorVo> top) {
+        StatementMonitorVo[] vos = new StatementMonitorVo[top.size()];
+        for (int i = vos.length - 1; i >= 0; i--)
+            vos[i] = top.poll();
+        return vos;
+    }
+}
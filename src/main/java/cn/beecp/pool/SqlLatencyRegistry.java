@@ -0,0 +1,144 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool-wide execution latency recorders of SQL,recorded SQL count is bounded to avoid
+ * memory leak from dynamic SQL.When registry is full,recorders of least execution time
+ * (halved on each sweep,so old time weighs less) are removed and their values are added
+ * to the recorder of other SQL,so new hot SQL can get its own recorder.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class SqlLatencyRegistry {
+    static final int MAX_SIZE = 500;
+    //max size of recorders removed in one sweep
+    private static final int SWEEP_SIZE = MAX_SIZE / 4;
+    //size of slowest statement list(ordered by total time)
+    static final int TOP_SIZE = 20;
+    static final String OTHER_SQL = "<other>";
+    private static final int STRIPES = 4;//per SQL,kept small for bounded memory
+    private static final Comparator<SqlLatencyMonitorVo> TotalTimeComparator = new Comparator<SqlLatencyMonitorVo>() {
+        public int compare(SqlLatencyMonitorVo vo1, SqlLatencyMonitorVo vo2) {
+            return vo1.getTotalTime() < vo2.getTotalTime() ? -1 : (vo1.getTotalTime() == vo2.getTotalTime() ? 0 : 1);
+        }
+    };
+
+    private final ConcurrentHashMap<String, SqlLatency> latencyMap = new ConcurrentHashMap<String, SqlLatency>(64);
+    private final SqlLatency other = new SqlLatency(OTHER_SQL);
+
+    /**
+     * find or create latency recorder of SQL
+     *
+     * @param sql executed SQL
+     * @return recorder;null if SQL is null
+     */
+    SqlLatency get(String sql) {
+        if (sql == null) return null;
+        SqlLatency latency = latencyMap.get(sql);
+        if (latency == null) {
+            if (latencyMap.size() >= MAX_SIZE) removeColdLatencies();
+            latency = new SqlLatency(sql);
+            SqlLatency preLatency = latencyMap.putIfAbsent(sql, latency);
+            if (preLatency != null) latency = preLatency;
+        }
+        return latency;
+    }
+
+    /**
+     * remove coldest recorders,recorders kept by statements still record after removal,but not shown
+     */
+    private synchronized void removeColdLatencies() {
+        if (latencyMap.size() < MAX_SIZE) return;//swept by other thread
+
+        SqlLatency[] latencies = latencyMap.values().toArray(new SqlLatency[0]);
+        long[] agedTimes = new long[latencies.length];//snapshot,times change during sweep
+        for (int i = 0; i < latencies.length; i++)
+            agedTimes[i] = latencies[i].age();
+
+        int removeSize = Math.min(latencies.length, SWEEP_SIZE);
+        long[] sortedTimes = agedTimes.clone();
+        Arrays.sort(sortedTimes);
+        long maxRemoveTime = sortedTimes[removeSize - 1];
+        for (int i = 0; i < latencies.length && removeSize > 0; i++) {
+            if (agedTimes[i] <= maxRemoveTime) {
+                SqlLatency latency = latencies[i];
+                latencyMap.remove(latency.sql);
+                other.histogram.add(latency.histogram.snapshot());
+                removeSize--;
+            }
+        }
+    }
+
+    /**
+     * @return SQL of most total execution time,descending order
+     */
+    SqlLatencyMonitorVo[] getSlowestStatements() {
+        PriorityQueue<SqlLatencyMonitorVo> top = new PriorityQueue<SqlLatencyMonitorVo>(TOP_SIZE + 1, TotalTimeComparator);
+        offerTop(top, other);
+        for (SqlLatency latency : latencyMap.values())
+            offerTop(top, latency);
+
+        SqlLatencyMonitorVo[] vos = new SqlLatencyMonitorVo[top.size()];
+        for (int i = vos.length - 1; i >= 0; i--)
+            vos[i] = top.poll();
+        return vos;
+    }
+
+    private static void offerTop(PriorityQueue<SqlLatencyMonitorVo> top, SqlLatency latency) {
+        LatencyHistogram.Snapshot snapshot = latency.histogram.snapshot();
+        if (snapshot.count == 0L) return;
+        if (top.size() == TOP_SIZE && snapshot.sum / 1000L <= top.peek().getTotalTime()) return;
+
+        SqlLatencyMonitorVo vo = new SqlLatencyMonitorVo();
+        vo.setSql(latency.sql);
+        snapshot.fillMonitorVo(vo);
+        top.offer(vo);
+        if (top.size() > TOP_SIZE) top.poll();
+    }
+
+    /**
+     * Latency recorder of one SQL
+     */
+    static final class SqlLatency {
+        final String sql;
+        final LatencyHistogram histogram = new LatencyHistogram(STRIPES);
+        private long agedTime;//nanoseconds,guarded by registry
+        private long agedSum;//histogram sum at last aging
+
+        SqlLatency(String sql) {
+            this.sql = sql;
+        }
+
+        //halve aged time and add time recorded after last aging
+        long age() {
+            long sum = histogram.sum();
+            agedTime = (agedTime >>> 1) + (sum - agedSum);
+            agedSum = sum;
+            return agedTime;
+        }
+
+        void record(long nanos) {
+            histogram.record(nanos);
+        }
+    }
+}
@@ -0,0 +1,515 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static cn.beecp.StatementCachePolicy.CODE_CLOCK;
+import static cn.beecp.StatementCachePolicy.CODE_TINY_LFU;
+import static cn.beecp.util.BeecpUtil.oclose;
+
+/**
+ * PreparedStatement cache of pooled connection,keyed by pool-wide sql identity,
+ * evicted statements are closed. Hits of a statement are counted on its cache entry by
+ * owner of connection and flushed into shared sql identity in batch,so hit path has no
+ * contended write. A cached statement is checked out by one statement proxy at a time,
+ * lookup doesn't find it until the proxy closed.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+abstract class StatementCache {
+    //unflushed hits of a cache to trigger flushing
+    private static final int HIT_FLUSH_SIZE = 256;
+    final int capacity;
+    private final StatementCacheBudget budget;//pool-wide byte budget,may be null
+    private final SqlIdentityRegistry registry;
+    private long cachedBytes;//estimated bytes of cached statements
+    private int unflushedHits;
+    private int checkedOutCount;//count of cached entries in use by statement proxies
+    PoolEventRecorder eventRecorder;//null if pool events not enabled
+
+    StatementCache(int capacity, StatementCacheBudget budget, SqlIdentityRegistry registry) {
+        this.capacity = capacity;
+        this.budget = budget;
+        this.registry = registry;
+    }
+
+    static StatementCache create(int policyCode, int capacity, StatementCacheBudget budget, SqlIdentityRegistry registry) {
+        switch (policyCode) {
+            case CODE_CLOCK:
+                return new ClockCache(capacity, budget, registry);
+            case CODE_TINY_LFU:
+                return new TinyLfuCache(capacity, budget, registry);
+            default:
+                return new LruCache(capacity, budget, registry);
+        }
+    }
+
+    long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    //called after statement added
+    final void onAdded(SqlIdentity identity) {
+        identity.cached();
+        cachedBytes += identity.weight;
+        if (budget != null) budget.add(identity.weight);
+    }
+
+    //called when statement found in cache
+    final void onHit(Entry entry) {
+        entry.hits++;
+        registry.hit();
+        if (++unflushedHits >= HIT_FLUSH_SIZE) {
+            flushHits();
+            unflushedHits = 0;
+        }
+    }
+
+    //move hit count of entry to its identity
+    static void flushHits(Entry entry) {
+        if (entry.hits > 0) {
+            entry.identity.addHits(entry.hits);
+            entry.hits = 0;
+        }
+    }
+
+    //mark entry in use by a statement proxy
+    final Entry checkOut(Entry entry) {
+        entry.inUse = true;
+        checkedOutCount++;
+        return entry;
+    }
+
+    //called after statement proxy closed,statement removed in use is closed now
+    final void release(Entry entry) {
+        entry.inUse = false;
+        if (entry.removed)
+            oclose(entry.statement);
+        else
+            checkedOutCount--;
+    }
+
+    //remove statements not released by proxies(proxies not closed before connection return)
+    final void removeCheckedOut() {
+        if (checkedOutCount > 0) removeInUse();
+    }
+
+    //close statement evicted by policy,statement in use is closed on release
+    final void closeEvicted(Entry entry) {
+        registry.evict(entry.identity);
+        if (entry.inUse) return;
+        Object event = eventRecorder != null ? eventRecorder.beginStatementEvict() : null;
+        oclose(entry.statement);
+        if (event != null) eventRecorder.endStatementEvict(event, entry.identity.getSql());
+    }
+
+    //called after statement removed and closed
+    final void onRemoved(Entry entry) {
+        entry.removed = true;
+        if (entry.inUse) checkedOutCount--;
+        flushHits(entry);
+        entry.identity.uncached();
+        cachedBytes -= entry.identity.weight;
+        if (budget != null) budget.add(-entry.identity.weight);
+    }
+
+    //flush hit counts of all entries to their identities
+    abstract void flushHits();
+
+    //remove and close statements in use
+    abstract void removeInUse();
+
+    /**
+     * evict one statement chosen by policy
+     *
+     * @param excluded statement not to be evicted(just put one)
+     * @return false if no statement can be evicted
+     */
+    abstract boolean evictOne(SqlIdentity excluded);
+
+    /**
+     * remove statement from cache without closing it
+     */
+    abstract void remove(PreparedStatement statement);
+
+    /**
+     * @return checked out entry,null if statement not cached or in use by other proxy
+     */
+    abstract Entry get(SqlIdentity identity);
+
+    /**
+     * record access of a statement,which is not found by {@link #get}
+     */
+    void access(SqlIdentity identity) {
+    }
+
+    /**
+     * @return entry of statement(not checked out),null if rejected by policy or statement of identity exists(in use)
+     */
+    abstract Entry put(SqlIdentity identity, PreparedStatement statement);
+
+    abstract int size();
+
+    //close all cached statements
+    abstract void clear();
+
+    //********************************************LRU************************************************************//
+    static final class LruCache extends StatementCache {
+        private final LinkedHashMap<SqlIdentity, Entry> entryMap;
+
+        LruCache(int capacity, StatementCacheBudget budget, SqlIdentityRegistry registry) {
+            super(capacity, budget, registry);
+            entryMap = new LinkedHashMap<SqlIdentity, Entry>(capacity * 2, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<SqlIdentity, Entry> eldest) {
+                    if (size() > LruCache.this.capacity) {
+                        Entry entry = eldest.getValue();
+                        closeEvicted(entry);
+                        onRemoved(entry);
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Entry get(SqlIdentity identity) {
+            Entry entry = entryMap.get(identity);
+            if (entry == null || entry.inUse) return null;
+            onHit(entry);
+            return checkOut(entry);
+        }
+
+        Entry put(SqlIdentity identity, PreparedStatement statement) {
+            if (entryMap.containsKey(identity)) return null;
+            Entry entry = new Entry(identity, statement);
+            onAdded(identity);
+            entryMap.put(identity, entry);
+            return entry;
+        }
+
+        boolean evictOne(SqlIdentity excluded) {
+            Iterator<Entry> itor = entryMap.values().iterator();
+            while (itor.hasNext()) {//from eldest
+                Entry entry = itor.next();
+                if (entry.identity != excluded) {
+                    itor.remove();
+                    closeEvicted(entry);
+                    onRemoved(entry);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int size() {
+            return entryMap.size();
+        }
+
+        void remove(PreparedStatement statement) {
+            Iterator<Entry> itor = entryMap.values().iterator();
+            while (itor.hasNext()) {
+                Entry entry = itor.next();
+                if (entry.statement == statement) {
+                    itor.remove();
+                    onRemoved(entry);
+                    return;
+                }
+            }
+        }
+
+        void flushHits() {
+            for (Entry entry : entryMap.values())
+                flushHits(entry);
+        }
+
+        void removeInUse() {
+            Iterator<Entry> itor = entryMap.values().iterator();
+            while (itor.hasNext()) {
+                Entry entry = itor.next();
+                if (entry.inUse) {
+                    itor.remove();
+                    oclose(entry.statement);
+                    onRemoved(entry);
+                }
+            }
+        }
+
+        void clear() {
+            for (Entry entry : entryMap.values()) {
+                oclose(entry.statement);
+                onRemoved(entry);
+            }
+            entryMap.clear();
+        }
+    }
+
+    //********************************************CLOCK**********************************************************//
+    static class ClockCache extends StatementCache {
+        private final HashMap<SqlIdentity, Entry> entryMap;
+        private final Entry[] entries;
+        private int size;
+        private int hand;
+
+        ClockCache(int capacity, StatementCacheBudget budget, SqlIdentityRegistry registry) {
+            super(capacity, budget, registry);
+            entries = new Entry[capacity];
+            entryMap = new HashMap<SqlIdentity, Entry>(capacity * 2);
+        }
+
+        Entry get(SqlIdentity identity) {
+            Entry entry = entryMap.get(identity);
+            if (entry == null || entry.inUse) return null;
+            entry.referenced = true;
+            onHit(entry);
+            return checkOut(entry);
+        }
+
+        Entry put(SqlIdentity identity, PreparedStatement statement) {
+            if (entryMap.containsKey(identity)) return null;
+            int index;
+            if (size < capacity) {
+                index = size++;
+            } else {
+                index = findVictim();
+                Entry victim = entries[index];
+                if (!admit(identity, victim.identity)) return null;
+                entryMap.remove(victim.identity);
+                closeEvicted(victim);
+                onRemoved(victim);
+                hand = (index + 1) % capacity;
+            }
+
+            Entry entry = new Entry(identity, statement);
+            entries[index] = entry;
+            entryMap.put(identity, entry);
+            onAdded(identity);
+            return entry;
+        }
+
+        boolean evictOne(SqlIdentity excluded) {
+            if (size == 0 || (size == 1 && entries[0].identity == excluded)) return false;
+
+            if (hand >= size) hand = 0;
+            while (true) {
+                Entry entry = entries[hand];
+                if (entry.identity != excluded) {
+                    if (!entry.referenced) break;
+                    entry.referenced = false;
+                }
+                hand = (hand + 1) % size;
+            }
+
+            Entry victim = entries[hand];
+            closeEvicted(victim);
+            removeAt(hand);
+            return true;
+        }
+
+        void remove(PreparedStatement statement) {
+            for (int i = 0; i < size; i++) {
+                if (entries[i].statement == statement) {
+                    removeAt(i);
+                    return;
+                }
+            }
+        }
+
+        private void removeAt(int index) {
+            Entry entry = entries[index];
+            entryMap.remove(entry.identity);
+            onRemoved(entry);
+            entries[index] = entries[--size];//fill hole with last entry
+            entries[size] = null;
+            if (hand >= size) hand = 0;
+        }
+
+        //sweep from hand,clear reference bits until an unreferenced entry found
+        private int findVictim() {
+            while (true) {
+                Entry entry = entries[hand];
+                if (!entry.referenced) return hand;
+                entry.referenced = false;
+                hand = (hand + 1) % capacity;
+            }
+        }
+
+        boolean admit(SqlIdentity candidate, SqlIdentity victim) {
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void flushHits() {
+            for (int i = 0; i < size; i++)
+                flushHits(entries[i]);
+        }
+
+        void removeInUse() {
+            for (int i = size - 1; i >= 0; i--) {//hole filled with last entry(checked)
+                Entry entry = entries[i];
+                if (entry.inUse) {
+                    oclose(entry.statement);
+                    removeAt(i);
+                }
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                oclose(entries[i].statement);
+                onRemoved(entries[i]);
+                entries[i] = null;
+            }
+            entryMap.clear();
+            size = 0;
+            hand = 0;
+        }
+    }
+
+    static final class Entry {
+        final SqlIdentity identity;
+        final PreparedStatement statement;
+        boolean referenced;//reference bit of clock
+        long hits;//not flushed to identity
+        boolean inUse;//checked out by a statement proxy
+        boolean removed;//removed from cache
+
+        Entry(SqlIdentity identity, PreparedStatement statement) {
+            this.identity = identity;
+            this.statement = statement;
+        }
+    }
+
+    //********************************************TinyLFU********************************************************//
+    static final class TinyLfuCache extends ClockCache {
+        private final FrequencySketch sketch;
+
+        TinyLfuCache(int capacity, StatementCacheBudget budget, SqlIdentityRegistry registry) {
+            super(capacity, budget, registry);
+            sketch = new FrequencySketch(capacity);
+        }
+
+        Entry get(SqlIdentity identity) {
+            sketch.increment(identity.id);
+            return super.get(identity);
+        }
+
+        void access(SqlIdentity identity) {
+            sketch.increment(identity.id);
+        }
+
+        boolean admit(SqlIdentity candidate, SqlIdentity victim) {
+            return sketch.frequency(candidate.id) > sketch.frequency(victim.id);
+        }
+    }
+
+    /**
+     * Count-Min sketch with 4 rows of 4-bit(saturated at 15) counters,all counters
+     * are halved after 'sampleSize' increments,so old popularity fades out.
+     * First access of a statement is only recorded in a doorkeeper bit set,so
+     * one-off statements neither pollute counters nor age them.
+     */
+    static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97CB3127, 0x0B4B3E7D, 0x16A2F1C3, 0x5BD1E995};
+        private final byte[] table;
+        private final long[] doorkeeper;
+        private final int width;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+        private int doorkeeperAdditions;
+
+        FrequencySketch(int capacity) {
+            int width = 16;
+            while (width < capacity * 4) width <<= 1;
+            this.width = width;
+            this.mask = width - 1;
+            this.table = new byte[width * SEEDS.length];
+            this.sampleSize = Math.max(capacity, 16) * 10;
+            int doorkeeperBits = 64;
+            while (doorkeeperBits < sampleSize * 8) doorkeeperBits <<= 1;//keep false positive rate low
+            this.doorkeeper = new long[doorkeeperBits >>> 6];
+        }
+
+        private int hash(int id, int row) {
+            int h = (id + SEEDS[row]) * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private int indexOf(int id, int row) {
+            return row * width + (hash(id, row) & mask);
+        }
+
+        //doorkeeper bit positions(two hash functions)
+        private boolean doorkeeperContains(int id) {
+            int bitMask = (doorkeeper.length << 6) - 1;
+            int b1 = hash(id, 2) & bitMask, b2 = hash(id, 3) & bitMask;
+            return (doorkeeper[b1 >>> 6] & (1L << b1)) != 0 && (doorkeeper[b2 >>> 6] & (1L << b2)) != 0;
+        }
+
+        private void doorkeeperPut(int id) {
+            int bitMask = (doorkeeper.length << 6) - 1;
+            int b1 = hash(id, 2) & bitMask, b2 = hash(id, 3) & bitMask;
+            doorkeeper[b1 >>> 6] |= 1L << b1;
+            doorkeeper[b2 >>> 6] |= 1L << b2;
+            if (++doorkeeperAdditions >= sampleSize) {
+                Arrays.fill(doorkeeper, 0L);
+                doorkeeperAdditions = 0;
+            }
+        }
+
+        void increment(int id) {
+            if (!doorkeeperContains(id)) {
+                doorkeeperPut(id);
+                return;
+            }
+
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = indexOf(id, i);
+                if (table[index] < 15) {
+                    table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) reset();
+        }
+
+        int frequency(int id) {
+            int frequency = 15;
+            for (int i = 0; i < SEEDS.length; i++)
+                frequency = Math.min(frequency, table[indexOf(id, i)]);
+            return doorkeeperContains(id) ? frequency + 1 : frequency;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++)
+                table[i] >>= 1;
+            additions >>= 1;
+            Arrays.fill(doorkeeper, 0L);
+            doorkeeperAdditions = 0;
+        }
+    }
+}
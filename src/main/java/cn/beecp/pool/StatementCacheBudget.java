@@ -0,0 +1,70 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool-wide byte budget of cached statements,limit is halved while heap under pressure.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class StatementCacheBudget {
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong(0);
+    private volatile long limitBytes;
+
+    StatementCacheBudget(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.limitBytes = maxBytes;
+    }
+
+    void add(long bytes) {
+        usedBytes.addAndGet(bytes);
+    }
+
+    long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    long getLimitBytes() {
+        return limitBytes;
+    }
+
+    boolean isOverLimit() {
+        return usedBytes.get() > limitBytes;
+    }
+
+    /**
+     * @param underPressure true,shrink limit to half of max bytes;false,restore limit
+     * @return true if limit changed
+     */
+    boolean setHeapPressure(boolean underPressure) {
+        long newLimit = underPressure ? maxBytes / 2 : maxBytes;
+        if (newLimit == limitBytes) return false;
+        limitBytes = newLimit;
+        return true;
+    }
+
+    /**
+     * @param connectionCount current connection count of pool
+     * @return fair share of limit for one connection
+     */
+    long getShare(int connectionCount) {
+        return limitBytes / Math.max(connectionCount, 1);
+    }
+}
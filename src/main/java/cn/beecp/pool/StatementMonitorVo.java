@@ -0,0 +1,74 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.io.Serializable;
+
+/**
+ * Statement cache Monitor Vo of one SQL
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+
+public class StatementMonitorVo implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String sql;
+    private long hitCount;
+    private long prepareCount;
+    private long evictCount;
+    private long prepareTime;//milliseconds
+
+    public String getSql() {
+        return sql;
+    }
+
+    void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public long getPrepareCount() {
+        return prepareCount;
+    }
+
+    void setPrepareCount(long prepareCount) {
+        this.prepareCount = prepareCount;
+    }
+
+    public long getEvictCount() {
+        return evictCount;
+    }
+
+    void setEvictCount(long evictCount) {
+        this.evictCount = evictCount;
+    }
+
+    public long getPrepareTime() {
+        return prepareTime;
+    }
+
+    void setPrepareTime(long prepareTime) {
+        this.prepareTime = prepareTime;
+    }
+}
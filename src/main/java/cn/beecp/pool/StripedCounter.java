@@ -0,0 +1,60 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cumulative counter striped by thread(same idea to LongAdder of JDK8),
+ * increment on hot path is not contended by other threads in most case.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class StripedCounter {
+    private static final int PADDING = 8;//cells of stripes not on same cache line
+    private final int stripeMask;
+    private final AtomicLongArray cells;
+
+    StripedCounter() {
+        this(LatencyHistogram.defaultStripes());
+    }
+
+    /**
+     * @param stripes count of stripes,rounded up to power of two
+     */
+    StripedCounter(int stripes) {
+        int size = 1;
+        while (size < stripes) size <<= 1;
+        this.stripeMask = size - 1;
+        this.cells = new AtomicLongArray(size * PADDING);
+    }
+
+    void increment() {
+        cells.incrementAndGet(((int) Thread.currentThread().getId() & stripeMask) * PADDING);
+    }
+
+    void add(long delta) {
+        cells.addAndGet(((int) Thread.currentThread().getId() & stripeMask) * PADDING, delta);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++)
+            sum += cells.get(stripe * PADDING);
+        return sum;
+    }
+}
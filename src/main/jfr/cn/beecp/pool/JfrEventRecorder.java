@@ -0,0 +1,211 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.pool;
+
+import jdk.jfr.*;
+
+/**
+ * Pool event recorder on Java Flight Recorder(JDK11+ or JDK8u262+),events are recorded only
+ * when a recording enables them and their duration reaches threshold,which can be changed in
+ * recording settings,for example:'cn.beecp.Borrow#threshold=50 ms'.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+final class JfrEventRecorder implements PoolEventRecorder {
+    private static final EventType BorrowType = EventType.getEventType(BorrowEvent.class);
+    private static final EventType ReturnType = EventType.getEventType(ReturnEvent.class);
+    private static final EventType CreateType = EventType.getEventType(CreateEvent.class);
+    private static final EventType CloseType = EventType.getEventType(CloseEvent.class);
+    private static final EventType ValidationType = EventType.getEventType(ValidationEvent.class);
+    private static final EventType HoldTimeoutType = EventType.getEventType(HoldTimeoutEvent.class);
+    private static final EventType StatementEvictType = EventType.getEventType(StatementEvictEvent.class);
+
+    private final String poolName;
+
+    public JfrEventRecorder(String poolName) {
+        this.poolName = poolName;
+    }
+
+    private static <E extends PoolEvent> E begin(E event) {
+        event.begin();
+        return event;
+    }
+
+    private void commit(PoolEvent event) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.poolName = poolName;
+            event.commit();
+        }
+    }
+
+    public Object beginBorrow() {
+        return BorrowType.isEnabled() ? begin(new BorrowEvent()) : null;
+    }
+
+    public void endBorrow(Object event, long groupWaitTime, long semaphoreWaitTime, long transferWaitTime, Throwable failure) {
+        BorrowEvent e = (BorrowEvent) event;
+        e.groupWaitTime = groupWaitTime;
+        e.semaphoreWaitTime = semaphoreWaitTime;
+        e.transferWaitTime = transferWaitTime;
+        e.failure = failure != null ? failure.getMessage() : null;
+        commit(e);
+    }
+
+    public Object beginReturn() {
+        return ReturnType.isEnabled() ? begin(new ReturnEvent()) : null;
+    }
+
+    public void endReturn(Object event, long holdTime) {
+        ReturnEvent e = (ReturnEvent) event;
+        e.holdTime = holdTime;
+        commit(e);
+    }
+
+    public Object beginCreate() {
+        return CreateType.isEnabled() ? begin(new CreateEvent()) : null;
+    }
+
+    public void endCreate(Object event, boolean success) {
+        CreateEvent e = (CreateEvent) event;
+        e.success = success;
+        commit(e);
+    }
+
+    public Object beginClose() {
+        return CloseType.isEnabled() ? begin(new CloseEvent()) : null;
+    }
+
+    public void endClose(Object event, String reason) {
+        CloseEvent e = (CloseEvent) event;
+        e.reason = reason;
+        commit(e);
+    }
+
+    public Object beginValidation() {
+        return ValidationType.isEnabled() ? begin(new ValidationEvent()) : null;
+    }
+
+    public void endValidation(Object event, boolean active) {
+        ValidationEvent e = (ValidationEvent) event;
+        e.active = active;
+        commit(e);
+    }
+
+    public Object beginHoldTimeout() {
+        return HoldTimeoutType.isEnabled() ? begin(new HoldTimeoutEvent()) : null;
+    }
+
+    public void endHoldTimeout(Object event, long inactiveTime, boolean salvaged) {
+        HoldTimeoutEvent e = (HoldTimeoutEvent) event;
+        e.inactiveTime = inactiveTime;
+        e.salvaged = salvaged;
+        commit(e);
+    }
+
+    public Object beginStatementEvict() {
+        return StatementEvictType.isEnabled() ? begin(new StatementEvictEvent()) : null;
+    }
+
+    public void endStatementEvict(Object event, String sql) {
+        StatementEvictEvent e = (StatementEvictEvent) event;
+        e.sql = sql;
+        commit(e);
+    }
+
+    //***************************************events*************************************************//
+    @Category("BeeCP")
+    @StackTrace(false)
+    static abstract class PoolEvent extends Event {
+        @Label("Pool Name")
+        String poolName;
+    }
+
+    @Name("cn.beecp.Borrow")
+    @Label("Connection Borrow")
+    @Description("Borrow of connection,duration is total wait time")
+    @Threshold("20 ms")
+    static final class BorrowEvent extends PoolEvent {
+        @Label("Group Wait Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long groupWaitTime;
+        @Label("Semaphore Wait Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long semaphoreWaitTime;
+        @Label("Transfer Wait Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long transferWaitTime;
+        @Label("Failure")
+        String failure;
+    }
+
+    @Name("cn.beecp.Return")
+    @Label("Connection Return")
+    @Description("Return of connection by holder,duration is time of reset and transfer")
+    @Threshold("10 ms")
+    static final class ReturnEvent extends PoolEvent {
+        @Label("Hold Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long holdTime;
+    }
+
+    @Name("cn.beecp.Create")
+    @Label("Connection Create")
+    @Threshold("0 ms")
+    static final class CreateEvent extends PoolEvent {
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("cn.beecp.Close")
+    @Label("Connection Close")
+    @Description("Close of connection removed from pool")
+    @Threshold("0 ms")
+    static final class CloseEvent extends PoolEvent {
+        @Label("Remove Reason")
+        String reason;
+    }
+
+    @Name("cn.beecp.Validation")
+    @Label("Connection Validation")
+    @Threshold("10 ms")
+    static final class ValidationEvent extends PoolEvent {
+        @Label("Active")
+        boolean active;
+    }
+
+    @Name("cn.beecp.HoldTimeout")
+    @Label("Connection Hold Timeout")
+    @Description("Connection taken from holder on hold timeout,duration is time of salvage or close")
+    @Threshold("0 ms")
+    static final class HoldTimeoutEvent extends PoolEvent {
+        @Label("Inactive Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long inactiveTime;
+        @Label("Salvaged")
+        boolean salvaged;
+    }
+
+    @Name("cn.beecp.StatementEvict")
+    @Label("Statement Cache Eviction")
+    @Description("Eviction of cached statement,duration is time of statement close")
+    @Threshold("0 ms")
+    static final class StatementEvictEvent extends PoolEvent {
+        @Label("SQL")
+        String sql;
+    }
+}
@@ -25,9 +25,17 @@ import java.util.Vector;
 
 public class TestRunner {
 	private static String defaultFilename="testCase.properties";
+	private static String jfrFilename="jfrTestCase.properties";//in classpath when built with profile 'jfr'
 	@SuppressWarnings("rawtypes")
 	private static Class[] getTestCaseClasses()throws Exception{
-		return getTestCaseClasses(defaultFilename);
+		Class[] classes=getTestCaseClasses(defaultFilename);
+		if(TestRunner.class.getClassLoader().getResource(jfrFilename)==null)return classes;
+
+		Class[] jfrClasses=getTestCaseClasses(jfrFilename);
+		Class[] allClasses=new Class[classes.length+jfrClasses.length];
+		System.arraycopy(classes,0,allClasses,0,classes.length);
+		System.arraycopy(jfrClasses,0,allClasses,classes.length,jfrClasses.length);
+		return allClasses;
 	}
 	public void testRun()throws Throwable{
 		long begtinTime =System.currentTimeMillis();
@@ -46,10 +54,9 @@ public class TestRunner {
 		
 		try {
 			Properties properties = new SortKeyProperties();
-			propertiesStream = TestRunner.class.getResourceAsStream(caseFile);
-			propertiesStream = TestRunner.class.getClassLoader().getResourceAsStream(defaultFilename);
-			if (propertiesStream == null)propertiesStream = TestRunner.class.getResourceAsStream(defaultFilename);
-			if(propertiesStream==null)throw new IOException("Can't find file:'testCase.properties' in classpath");
+			propertiesStream = TestRunner.class.getClassLoader().getResourceAsStream(caseFile);
+			if (propertiesStream == null)propertiesStream = TestRunner.class.getResourceAsStream(caseFile);
+			if(propertiesStream==null)throw new IOException("Can't find file:'"+caseFile+"' in classpath");
 	
 			properties.load(propertiesStream);
 			Enumeration enumtion = properties.keys();
@@ -0,0 +1,67 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.BorrowerGroupMonitorVo;
+import cn.beecp.pool.ConnectionPoolMonitorVo;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+
+public class BorrowerGroupHoldTimeoutTest extends TestCase {
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(2);
+        config.setMaxWait(3000);
+        config.setBorrowerGroups("batch:0-1");
+        config.setHoldTimeout(300);
+        config.setIdleCheckTimeInitDelay(0);
+        config.setIdleCheckTimeInterval(100);
+        config.setWaitTimeToClearPool(0);
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        Connection con1 = ds.getConnection("batch");//not closed,taken by hold timeout
+        Connection con2 = null;
+        try {
+            con2 = ds.getConnection("batch");//wait quota released by idle scan
+            if (!con1.isClosed()) TestUtil.assertError("Hold timeout connection not closed");
+
+            ConnectionPoolMonitorVo vo = TestUtil.getPool(ds).getMonitorVo();
+            for (BorrowerGroupMonitorVo groupVo : vo.getBorrowerGroupMonitorVos()) {
+                if ("batch".equals(groupVo.getGroupName()) && groupVo.getUsingSize() != 1)
+                    TestUtil.assertError("Borrower group using size expect value:%s,current value:%s", 1, groupVo.getUsingSize());
+            }
+        } finally {
+            if (!con1.isClosed()) BeecpUtil.oclose(con1);
+            if (con2 != null) BeecpUtil.oclose(con2);
+        }
+    }
+}
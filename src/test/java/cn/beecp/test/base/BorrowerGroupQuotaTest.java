@@ -0,0 +1,120 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.BorrowerGroupMonitorVo;
+import cn.beecp.pool.ConnectionPoolMonitorVo;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class BorrowerGroupQuotaTest extends TestCase {
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(4);
+        config.setMaxWait(1000);
+        config.setBorrowerGroups("batch:0-2,web:2-4");
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        Connection batch1 = null, batch2 = null, web1 = null, web2 = null, web3 = null;
+        try {
+            batch1 = ds.getConnection("batch");
+            batch2 = ds.getConnection("batch");
+            try {
+                ds.getConnection("batch");
+                TestUtil.assertError("Borrower group max size test failed");
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+            try {
+                ds.getConnection();//two connections reserved for group 'web'
+                TestUtil.assertError("Borrower group min size test failed");
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+
+            web1 = ds.getConnection("web");
+            web2 = ds.getConnection("web");
+            batch1.close();
+            web3 = ds.getConnection("web");//borrow idle capacity released by 'batch'
+
+            ConnectionPoolMonitorVo vo = TestUtil.getPool(ds).getMonitorVo();
+            if (vo.getBorrowTimeoutCount() != 2)//group quota timeouts counted by pool
+                TestUtil.assertError("Borrow timeout count expect value:%s,current value:%s", 2, vo.getBorrowTimeoutCount());
+            for (BorrowerGroupMonitorVo groupVo : vo.getBorrowerGroupMonitorVos()) {
+                if ("web".equals(groupVo.getGroupName()) && groupVo.getUsingSize() != 3)
+                    TestUtil.assertError("Borrower group using size expect value:%s,current value:%s", 3, groupVo.getUsingSize());
+                if ("batch".equals(groupVo.getGroupName()) && groupVo.getTimeoutCount() != 1)
+                    TestUtil.assertError("Borrower group timeout count expect value:%s,current value:%s", 1, groupVo.getTimeoutCount());
+            }
+        } finally {
+            if (batch1 != null && !batch1.isClosed()) BeecpUtil.oclose(batch1);
+            if (batch2 != null) BeecpUtil.oclose(batch2);
+            if (web1 != null) BeecpUtil.oclose(web1);
+            if (web2 != null) BeecpUtil.oclose(web2);
+            if (web3 != null) BeecpUtil.oclose(web3);
+        }
+    }
+
+    public void testWakeUpOnSharedRelease() throws InterruptedException, Exception {
+        final Connection web1 = ds.getConnection("web");
+        final Connection batch1 = ds.getConnection("batch");
+        Connection web2 = null, batch2 = null, con = null;
+        try {
+            web2 = ds.getConnection("web");
+            batch2 = ds.getConnection("batch");
+            new Thread() {
+                public void run() {
+                    try {
+                        Thread.sleep(100);
+                        BeecpUtil.oclose(web1);//reserved for 'web',not to wake other groups
+                        Thread.sleep(200);
+                        BeecpUtil.oclose(batch1);//shared capacity freed,wake waiter of other group
+                    } catch (InterruptedException e) {
+                    }
+                }
+            }.start();
+
+            long beginTime = System.currentTimeMillis();
+            con = ds.getConnection();
+            long tookTime = System.currentTimeMillis() - beginTime;
+            if (tookTime < 250 || tookTime > 800)
+                TestUtil.assertError("Group wait time expect value:%s,current value:%s", "250-800", tookTime);
+        } finally {
+            if (!web1.isClosed()) BeecpUtil.oclose(web1);
+            if (!batch1.isClosed()) BeecpUtil.oclose(batch1);
+            if (web2 != null) BeecpUtil.oclose(web2);
+            if (batch2 != null) BeecpUtil.oclose(batch2);
+            if (con != null) BeecpUtil.oclose(con);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.FastConnectionPool;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class ConnectionHoldTimeoutRecoveryTest extends TestCase {
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setHoldTimeout(1000);
+        config.setHoldTimeoutRecovery(true);
+        config.setIdleCheckTimeInterval(500L);
+        config.setIdleCheckTimeInitDelay(0);
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        FastConnectionPool pool = (FastConnectionPool) TestUtil.getPool(ds);
+        Connection con = null;
+        Statement st = null;
+        try {
+            con = ds.getConnection();
+            con.setAutoCommit(false);
+            st = con.createStatement();
+            long beginTime = System.currentTimeMillis();
+            try {
+                st.execute("sleep:10000");//cancelled by pool on hold timeout
+                TestUtil.assertError("Running statement not cancelled on hold timeout");
+            } catch (SQLException e) {
+                long tookTime = System.currentTimeMillis() - beginTime;
+                if (tookTime > 5000)
+                    TestUtil.assertError("Statement cancel time expect value:%s,current value:%s", "<5000", tookTime);
+            }
+
+            Thread.sleep(500);
+            if (pool.getConnUsingSize() != 0)
+                TestUtil.assertError("Using connections expect value:%s,current value:%s", 0, pool.getConnUsingSize());
+            if (pool.getConnTotalSize() != 1)
+                TestUtil.assertError("Total connections expect value:%s,current value:%s", 1, pool.getConnTotalSize());
+            if (pool.getHoldTimeoutSalvagedCount() != 1)
+                TestUtil.assertError("Salvaged connections expect value:%s,current value:%s", 1, pool.getHoldTimeoutSalvagedCount());
+            try {
+                con.getCatalog();
+                TestUtil.assertError("must throw closed exception");
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+
+            Connection con2 = ds.getConnection();
+            if (!con2.getAutoCommit())
+                TestUtil.assertError("AutoCommit expect value:%s,current value:%s", true, false);
+            con2.close();
+        } finally {
+            if (st != null) BeecpUtil.oclose(st);
+            if (con != null) BeecpUtil.oclose(con);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockConnection;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+
+public class DeferredSessionResetTest extends TestCase {
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setDeferredSessionReset(true);
+        config.setCacheSessionState(true);
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            con.setAutoCommit(false);
+            con.setReadOnly(true);
+            con.close();
+
+            con = ds.getConnection();//same thread
+            long count = MockConnection.getSessionCallCount();
+            if (!con.getAutoCommit())
+                TestUtil.assertError("AutoCommit expect value:%s,current value:%s", true, false);
+            con.setAutoCommit(false);
+            checkCallCount(count, "Reset replaced by setting");
+            con.createStatement().close();//readonly reset before use
+            checkCallCount(count + 1, "Reset before use");
+            if (con.isReadOnly())
+                TestUtil.assertError("Readonly expect value:%s,current value:%s", false, true);
+            con.close();
+            con = null;
+
+            count = MockConnection.getSessionCallCount();
+            final boolean[] autoCommit = new boolean[1];
+            Thread otherThread = new Thread() {
+                public void run() {
+                    Connection con2 = null;
+                    try {
+                        con2 = ds.getConnection();
+                        autoCommit[0] = con2.getAutoCommit();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        if (con2 != null) BeecpUtil.oclose(con2);
+                    }
+                }
+            };
+            otherThread.start();
+            otherThread.join();
+            if (!autoCommit[0])
+                TestUtil.assertError("AutoCommit expect value:%s,current value:%s", true, false);
+            checkCallCount(count + 1, "Reset on claim by other thread");
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+        }
+    }
+
+    private static void checkCallCount(long expect, String state) {
+        long count = MockConnection.getSessionCallCount();
+        if (count != expect)
+            TestUtil.assertError(state + ",driver call count expect value:%s,current value:%s", expect, count);
+    }
+}
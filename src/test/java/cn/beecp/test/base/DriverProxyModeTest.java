@@ -0,0 +1,150 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.ConnectionFactory;
+import cn.beecp.ProxyClassMode;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockConnection;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * proxy classes generated for driver classes in 'driver' mode
+ */
+public class DriverProxyModeTest extends TestCase {
+
+    public void testDriverProxyCalls() throws Exception {
+        BeeDataSource ds1 = createDataSource();
+        BeeDataSource ds2 = createDataSource();
+        Connection con1 = null;
+        Connection con2 = null;
+        try {
+            con1 = ds1.getConnection();
+            con2 = ds2.getConnection();
+            String className = con1.getClass().getName();
+            if (!className.matches("cn\\.beecp\\.pool\\.ProxyConnectionDriver\\d+"))
+                TestUtil.assertError("Driver proxy connection class expect value:%s,current value:%s", "ProxyConnectionDriver<n>", className);
+            if (con1.getClass() != con2.getClass())
+                TestUtil.assertError("Driver proxy class expect shared by pools:%s,current value:%s", className, con2.getClass().getName());
+
+            con1.setReadOnly(true);
+            if (!con1.isReadOnly())
+                TestUtil.assertError("Driver proxy readOnly expect value:%s,current value:%s", true, false);
+            con1.setReadOnly(false);
+
+            PreparedStatement ps = con1.prepareStatement("select ?");
+            ps.setString(1, "test");
+            ps.setMaxRows(10);
+            if (ps.getMaxRows() != 10)
+                TestUtil.assertError("Driver proxy maxRows expect value:%s,current value:%s", 10, ps.getMaxRows());
+            ResultSet rs = ps.executeQuery();
+            if (rs.getStatement() != ps)
+                TestUtil.assertError("Driver proxy result set not return proxy statement");
+            rs.close();
+            ps.close();
+        } finally {
+            if (con1 != null) BeecpUtil.oclose(con1);
+            if (con2 != null) BeecpUtil.oclose(con2);
+            ds1.close();
+            ds2.close();
+        }
+    }
+
+    public void testDriverClassNotPinned() throws Exception {
+        WeakReference<ClassLoader> loaderRef = runPoolOnIsolatedDriver();
+        for (int i = 0; i < 50 && loaderRef.get() != null; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        if (loaderRef.get() != null)
+            TestUtil.assertError("Class loader of driver pinned after pool closed");
+    }
+
+    public void testClassesReusedAfterClose() throws Exception {
+        String proxyClassName = getProxyConnectionClassName();
+        System.gc();
+        if (!proxyClassName.equals(getProxyConnectionClassName()))
+            TestUtil.assertError("Driver proxy classes regenerated after pool closed,class:" + proxyClassName);
+    }
+
+    private String getProxyConnectionClassName() throws Exception {
+        BeeDataSource ds = createDataSource();
+        try {
+            Connection con = ds.getConnection();
+            String className = con.getClass().getName();
+            con.close();
+            return className;
+        } finally {
+            ds.close();
+        }
+    }
+
+    //driver classes invisible to pool class loader,no local reference left after return
+    private WeakReference<ClassLoader> runPoolOnIsolatedDriver() throws Exception {
+        URL classFolder = MockConnection.class.getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader driverLoader = new URLClassLoader(new URL[]{classFolder}, ClassLoader.getSystemClassLoader().getParent());
+        final Class<?> conClass = driverLoader.loadClass(MockConnection.class.getName());
+        if (conClass == MockConnection.class)
+            TestUtil.assertError("Driver class not loaded by isolated class loader");
+
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setConnectionFactory(new ConnectionFactory() {
+            public Connection create() throws SQLException {
+                try {
+                    return (Connection) conClass.newInstance();
+                } catch (Exception e) {
+                    throw new SQLException(e);
+                }
+            }
+        });
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setProxyClassMode(ProxyClassMode.MODE_DRIVER);
+        BeeDataSource ds = new BeeDataSource(config);
+        try {
+            Connection con = ds.getConnection();
+            if (con.getClass().getName().startsWith("cn.beecp.pool.ProxyConnectionDriver"))//interface proxies used
+                TestUtil.assertError("Proxy connection class expect value:%s,current value:%s", "ProxyConnection", con.getClass().getName());
+            con.close();
+        } finally {
+            ds.close();
+            driverLoader.close();
+        }
+        return new WeakReference<ClassLoader>(driverLoader);
+    }
+
+    private BeeDataSource createDataSource() {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setProxyClassMode(ProxyClassMode.MODE_DRIVER);
+        return new BeeDataSource(config);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.FastConnectionPool;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * hold timeout connection is salvaged only after its cancelled execution returned,
+ * second borrower must not get it while first execution still running
+ */
+public class HoldTimeoutSalvageWaitTest extends TestCase {
+
+    public void testWaitExecutionReturn() throws Exception {
+        BeeDataSource ds = createDataSource(5);
+        try {
+            FastConnectionPool pool = (FastConnectionPool) TestUtil.getPool(ds);
+            ExecuteThread thread = new ExecuteThread(ds, "sleep:10000:1500");//returns 1.5 seconds after cancel
+            thread.start();
+            Thread.sleep(200);
+
+            Connection con2 = ds.getConnection();//wait salvage of the connection
+            long borrowTime = System.currentTimeMillis();
+            try {
+                if (!con2.getAutoCommit())
+                    TestUtil.assertError("AutoCommit expect value:%s,current value:%s", true, false);
+            } finally {
+                BeecpUtil.oclose(con2);
+            }
+            thread.join();
+
+            if (thread.failure != null) throw thread.failure;
+            if (borrowTime < thread.returnTime)
+                TestUtil.assertError("Borrow time expect value:%s,current value:%s", ">=" + thread.returnTime, borrowTime);
+            if (pool.getHoldTimeoutSalvagedCount() != 1)
+                TestUtil.assertError("Salvaged connections expect value:%s,current value:%s", 1, pool.getHoldTimeoutSalvagedCount());
+        } finally {
+            ds.close();
+        }
+    }
+
+    public void testRemoveOnWaitTimeout() throws Exception {
+        BeeDataSource ds = createDataSource(1);
+        try {
+            FastConnectionPool pool = (FastConnectionPool) TestUtil.getPool(ds);
+            ExecuteThread thread = new ExecuteThread(ds, "sleep:10000:4000");//not returned in wait time
+            thread.start();
+            Thread.sleep(200);
+
+            Connection con2 = ds.getConnection();//new connection created after removal
+            long borrowTime = System.currentTimeMillis();
+            BeecpUtil.oclose(con2);
+            thread.join();
+
+            if (thread.failure != null) throw thread.failure;
+            if (borrowTime >= thread.returnTime)
+                TestUtil.assertError("Borrow time expect value:%s,current value:%s", "<" + thread.returnTime, borrowTime);
+            if (pool.getHoldTimeoutSalvagedCount() != 0)
+                TestUtil.assertError("Salvaged connections expect value:%s,current value:%s", 0, pool.getHoldTimeoutSalvagedCount());
+        } finally {
+            ds.close();
+        }
+    }
+
+    private static BeeDataSource createDataSource(int waitSeconds) {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(2);
+        config.setMaxWait(10000);
+        config.setHoldTimeout(1000);
+        config.setHoldTimeoutRecovery(true);
+        config.setConnectionTestTimeout(waitSeconds);//max wait of cancelled execution
+        config.setIdleCheckTimeInterval(500L);
+        config.setIdleCheckTimeInitDelay(0);
+        return new BeeDataSource(config);
+    }
+
+    private static final class ExecuteThread extends Thread {
+        private final BeeDataSource ds;
+        private final String sql;
+        private volatile long returnTime;
+        private volatile Exception failure;
+
+        ExecuteThread(BeeDataSource ds, String sql) {
+            this.ds = ds;
+            this.sql = sql;
+        }
+
+        public void run() {
+            Connection con = null;
+            Statement st = null;
+            try {
+                con = ds.getConnection();
+                con.setAutoCommit(false);
+                st = con.createStatement();
+                try {
+                    st.execute(sql);
+                    failure = new Exception("Running statement not cancelled on hold timeout");
+                } catch (SQLException e) {
+                    returnTime = System.currentTimeMillis();
+                }
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                if (st != null) BeecpUtil.oclose(st);
+                if (con != null) BeecpUtil.oclose(con);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+public class HotStatementFileCorruptTest extends TestCase {
+    private static final int MAGIC = 0x42454543;
+    private static final int VERSION = 2;
+    private File hotFile;
+
+    public void setUp() throws Throwable {
+        hotFile = File.createTempFile("beecp", ".hot");
+    }
+
+    public void tearDown() throws Throwable {
+        hotFile.delete();
+    }
+
+    public void testHugeStatementCount() throws Exception {
+        DataOutputStream out = openFile();
+        out.writeInt(Integer.MAX_VALUE);
+        out.close();
+        checkPool();
+    }
+
+    public void testHugeStringLength() throws Exception {
+        DataOutputStream out = openFile();
+        out.writeInt(1);
+        out.writeInt(11);//type
+        out.writeByte(0);//args
+        out.writeInt(Integer.MAX_VALUE);//sql length
+        out.close();
+        checkPool();
+    }
+
+    public void testHugeColumnLength() throws Exception {
+        DataOutputStream out = openFile();
+        out.writeInt(1);
+        out.writeInt(13);//type
+        out.writeByte(2);//args
+        out.writeInt(1);//sql length
+        out.write('x');
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(Integer.MAX_VALUE);//column indexes length
+        out.close();
+        checkPool();
+    }
+
+    public void testTruncatedFile() throws Exception {
+        DataOutputStream out = openFile();
+        out.writeInt(2);
+        out.writeInt(11);
+        out.close();
+        checkPool();
+    }
+
+    private DataOutputStream openFile() throws Exception {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(hotFile));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        return out;
+    }
+
+    //pool must be initialized and work with corrupt file
+    private void checkPool() throws Exception {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setInitialSize(1);
+        config.setPreparedStatementCacheSize(4);
+        config.setPreparedStatementWarmUpSize(4);
+        config.setPreparedStatementWarmUpFile(hotFile.getAbsolutePath());
+        BeeDataSource ds = new BeeDataSource(config);
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            PreparedStatement ps = con.prepareStatement("select 1");
+            ps.close();
+            if (TestUtil.getPool(ds).getMonitorVo().getStatementCacheMissCount() != 1)
+                TestUtil.assertError("Statement cache not work with corrupt hot statement file");
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+            ds.close();
+        }
+    }
+}
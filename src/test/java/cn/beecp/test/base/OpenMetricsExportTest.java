@@ -0,0 +1,133 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.OpenMetricsWriter;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.sql.Connection;
+import java.util.Collections;
+
+public class OpenMetricsExportTest extends TestCase {
+    private BeeDataSource ds;
+    private int port;
+
+    public void setUp() throws Throwable {
+        ServerSocket socket = new ServerSocket(0);
+        port = socket.getLocalPort();
+        socket.close();
+
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setPoolName("Metrics\"Pool");
+        config.setRecordPoolLatency(true);
+        config.setMetricsPort(port);
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        Connection con = ds.getConnection();
+        Thread.sleep(20);
+        con.close();
+
+        //pull API,buffer reused
+        OpenMetricsWriter writer = new OpenMetricsWriter();
+        StringBuilder buf = new StringBuilder();
+        writer.write(buf);
+        buf.setLength(0);
+        writer.write(buf);
+        String text = buf.toString();
+        checkContains(text, "beecp_connections{pool=\"Metrics\\\"Pool\",state=\"idle\"} 1\n");
+        checkContains(text, "# TYPE beecp_borrows counter\n");
+        checkContains(text, "beecp_borrows_total{pool=\"Metrics\\\"Pool\"} 1\n");
+        checkContains(text, "beecp_connection_hold_seconds_bucket{pool=\"Metrics\\\"Pool\",le=\"0.01\"} 0\n");
+        checkContains(text, "beecp_connection_hold_seconds_bucket{pool=\"Metrics\\\"Pool\",le=\"+Inf\"} 1\n");
+        checkContains(text, "beecp_connection_hold_seconds_count{pool=\"Metrics\\\"Pool\"} 1\n");
+        if (!text.endsWith("# EOF\n")) TestUtil.assertError("Metrics text not ended with '# EOF'");
+
+        //http endpoint
+        HttpURLConnection httpCon = (HttpURLConnection) new URL("http://localhost:" + port + "/metrics").openConnection();
+        try {
+            if (httpCon.getResponseCode() != 200)
+                TestUtil.assertError("Metrics endpoint response code expect value:%s,current value:%s", 200, httpCon.getResponseCode());
+            if (!OpenMetricsWriter.CONTENT_TYPE.equals(httpCon.getContentType()))
+                TestUtil.assertError("Metrics endpoint content type expect value:%s,current value:%s", OpenMetricsWriter.CONTENT_TYPE, httpCon.getContentType());
+
+            InputStream in = httpCon.getInputStream();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] bytes = new byte[1024];
+            int len;
+            while ((len = in.read(bytes)) != -1)
+                out.write(bytes, 0, len);
+            checkContains(out.toString("UTF-8"), "beecp_borrows_total{pool=\"Metrics\\\"Pool\"} 1\n");
+        } finally {
+            httpCon.disconnect();
+        }
+    }
+
+    public void testDaemonDispatcher() throws Exception {
+        int dispatcherCount = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("HTTP-Dispatcher")) {
+                dispatcherCount++;
+                if (!thread.isDaemon()) TestUtil.assertError("Metrics dispatcher thread must be daemon");
+            }
+        }
+        if (dispatcherCount == 0) TestUtil.assertError("Metrics dispatcher thread not found");
+    }
+
+    public void testLoopbackBound() throws Exception {
+        for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+            for (InetAddress address : Collections.list(networkInterface.getInetAddresses())) {
+                if (address.isLoopbackAddress() || !(address instanceof Inet4Address)) continue;
+                Socket socket = new Socket();
+                try {
+                    socket.connect(new InetSocketAddress(address, port), 1000);
+                    TestUtil.assertError("Metrics endpoint exposed on address:" + address.getHostAddress());
+                } catch (IOException e) {
+                    //not bound on other address
+                } finally {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    private static void checkContains(String text, String sample) {
+        if (!text.contains(sample))
+            TestUtil.assertError("Metrics sample not found:" + sample);
+    }
+}
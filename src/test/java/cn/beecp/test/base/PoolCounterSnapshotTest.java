@@ -0,0 +1,82 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.ConnectionPoolMonitorVo;
+import cn.beecp.pool.FastConnectionPool;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class PoolCounterSnapshotTest extends TestCase {
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setMaxWait(100);
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        FastConnectionPool pool = (FastConnectionPool) TestUtil.getPool(ds);
+        for (int i = 0; i < 3; i++)
+            ds.getConnection().close();
+
+        Connection con = ds.getConnection();
+        try {
+            ds.getConnection();
+            TestUtil.assertError("Borrow timeout test failed");
+        } catch (SQLException e) {
+            System.out.println(e);
+        } finally {
+            con.close();
+        }
+
+        ConnectionPoolMonitorVo vo = pool.getMonitorVo();
+        checkCount("Borrow", 4, vo.getBorrowCount());
+        checkCount("Thread local hit", 3, vo.getThreadLocalHitCount());
+        checkCount("Borrow timeout", 1, vo.getBorrowTimeoutCount());
+        checkCount("Create", 1, vo.getCreateCount());
+        checkCount("Idle size", 1, vo.getIdleSize());
+
+        pool.reset(true);
+        ConnectionPoolMonitorVo vo2 = pool.getMonitorVo();
+        if (vo2 == vo)
+            TestUtil.assertError("Monitor vo must be a new snapshot");
+        checkCount("Idle size in old snapshot", 1, vo.getIdleSize());
+        checkCount("Idle size", 0, vo2.getIdleSize());
+        Long resetCount = vo2.getRemoveCounts().get("reset");
+        checkCount("Reset remove", 1, resetCount == null ? 0 : resetCount);
+    }
+
+    private static void checkCount(String name, long expect, long current) {
+        if (expect != current)
+            TestUtil.assertError(name + " count expect value:%s,current value:%s", expect, current);
+    }
+}
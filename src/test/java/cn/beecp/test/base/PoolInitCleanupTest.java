@@ -0,0 +1,93 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.ConnectionFactory;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockConnection;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PoolInitCleanupTest extends TestCase {
+    public void setUp() throws Throwable {}
+
+    public void tearDown() throws Throwable {}
+
+    public void testCleanOnInitFailure() throws Exception {
+        final List<Connection> createdList = new ArrayList<Connection>();
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setConnectionFactory(new ConnectionFactory() {
+            public Connection create() throws SQLException {
+                Connection con = createdList.size() < 2 ? new MockConnection() : new MockConnection() {
+                    public void setTransactionIsolation(int level) {
+                        throw new IllegalStateException("Isolation not supported");//not SQLException
+                    }
+                };
+                createdList.add(con);
+                return con;
+            }
+        });
+        config.setInitialSize(3);
+        config.setMaxActive(3);
+        config.setBorrowSemaphoreSize(3);
+        config.setPreparedStatementCacheSize(10);
+        config.setPreparedStatementCacheMaxBytes(1024 * 1024);
+        config.setPreparedStatementCacheHeapThreshold(80);
+
+        int referenceCount = getSchedulerReferenceCount();
+        List<Long> thresholdList = getHeapThresholds();
+        try {
+            new BeeDataSource(config);
+            TestUtil.assertError("A initializerError need be thrown,but not");
+        } catch (ExceptionInInitializerError e) {
+            System.out.println(e.getCause());
+        }
+
+        if (createdList.size() != 3)
+            TestUtil.assertError("Created connections expect value:%s,current value:%s", 3, createdList.size());
+        for (Connection con : createdList) {
+            if (!con.isClosed()) TestUtil.assertError("Connection created in failed initialization not closed");
+        }
+        if (getSchedulerReferenceCount() != referenceCount)
+            TestUtil.assertError("Scheduler references expect value:%s,current value:%s", referenceCount, getSchedulerReferenceCount());
+        if (!thresholdList.equals(getHeapThresholds()))
+            TestUtil.assertError("Heap thresholds expect value:%s,current value:%s", thresholdList, getHeapThresholds());
+    }
+
+    private static int getSchedulerReferenceCount() throws Exception {
+        Field field = Class.forName("cn.beecp.pool.SharedScheduler").getDeclaredField("referenceCount");
+        field.setAccessible(true);
+        return field.getInt(null);
+    }
+
+    private static List<Long> getHeapThresholds() {
+        List<Long> thresholdList = new ArrayList<Long>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.isCollectionUsageThresholdSupported())
+                thresholdList.add(pool.getCollectionUsageThreshold());
+        }
+        return thresholdList;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.FastConnectionPool;
+import cn.beecp.pool.LatencyMonitorVo;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+
+public class PoolLatencyRecordTest extends TestCase {
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(2);
+        config.setConnectionTestInterval(1);
+        config.setRecordPoolLatency(true);
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        FastConnectionPool pool = (FastConnectionPool) TestUtil.getPool(ds);
+        final Connection con = ds.getConnection();
+        try {
+            new Thread() {
+                public void run() {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                    }
+                    BeecpUtil.oclose(con);
+                }
+            }.start();
+
+            Connection con2 = ds.getConnection();//wait transfer from first borrower
+            Thread.sleep(10);
+            con2.close();
+        } finally {
+            if (!con.isClosed()) BeecpUtil.oclose(con);
+        }
+
+        checkLatency("Creation", pool.getCreationLatency(), 1, 0);
+        checkLatency("Hold", pool.getHoldLatency(), 2, 100000);
+        checkLatency("Transfer wait", pool.getTransferWaitLatency(), 1, 50000);
+        checkLatency("Semaphore wait", pool.getSemaphoreWaitLatency(), 2, 0);
+        checkLatency("Validation", pool.getValidationLatency(), 1, 0);
+    }
+
+    private static void checkLatency(String name, LatencyMonitorVo vo, long minCount, long minMaxTime) {
+        if (vo == null || vo.getCount() < minCount)
+            TestUtil.assertError(name + " latency count expect value:%s,current value:%s", ">=" + minCount, vo == null ? null : vo.getCount());
+        if (vo.getMaxTime() < minMaxTime || vo.getP99Time() < vo.getP50Time() || vo.getMaxTime() < vo.getP99Time())
+            TestUtil.assertError(name + " latency p50:" + vo.getP50Time() + ",p99:" + vo.getP99Time() + ",max:" + vo.getMaxTime());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.ProxyClassMode;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.*;
+
+/**
+ * run same proxy operations in each proxy class mode,pre-generated classes of build
+ * must be same to classes written at pool initialization(otherwise pregenerated mode fails)
+ */
+public class ProxyClassModeTest extends TestCase {
+
+    public void testAutoMode() throws Exception {
+        testProxy(ProxyClassMode.MODE_AUTO, "cn\\.beecp\\.pool\\.ProxyConnection");
+    }
+
+    public void testPregeneratedMode() throws Exception {
+        testProxy(ProxyClassMode.MODE_PREGENERATED, "cn\\.beecp\\.pool\\.ProxyConnection");
+    }
+
+    public void testRuntimeMode() throws Exception {
+        testProxy(ProxyClassMode.MODE_RUNTIME, "cn\\.beecp\\.pool\\.ProxyConnectionRuntime");
+    }
+
+    public void testDriverMode() throws Exception {
+        testProxy(ProxyClassMode.MODE_DRIVER, "cn\\.beecp\\.pool\\.ProxyConnectionDriver\\d+");
+    }
+
+    private void testProxy(String proxyClassMode, String connectionClassPattern) throws Exception {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setProxyClassMode(proxyClassMode);
+        BeeDataSource ds = new BeeDataSource(config);
+
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            String className = con.getClass().getName();
+            if (!className.matches(connectionClassPattern))
+                TestUtil.assertError("Proxy connection class(" + proxyClassMode + ") expect value:%s,current value:%s", connectionClassPattern, className);
+
+            Statement st = con.createStatement();
+            if (st.getConnection() != con)
+                TestUtil.assertError("Statement.getConnection(" + proxyClassMode + ") not return proxy connection");
+            ResultSet rs = st.executeQuery("select 1");
+            if (rs.getStatement() != st)
+                TestUtil.assertError("ResultSet.getStatement(" + proxyClassMode + ") not return proxy statement");
+            rs.next();
+            rs.close();
+            if (!rs.isClosed())
+                TestUtil.assertError("ResultSet(" + proxyClassMode + ") not closed");
+
+            PreparedStatement ps = con.prepareStatement("select ?");
+            ps.setInt(1, 1);
+            ResultSet rs2 = ps.executeQuery();
+            if (rs2.getStatement() != ps)
+                TestUtil.assertError("ResultSet.getStatement(" + proxyClassMode + ") not return proxy prepared statement");
+            if (!ps.isWrapperFor(PreparedStatement.class))
+                TestUtil.assertError("PreparedStatement(" + proxyClassMode + ") not wrapper for PreparedStatement");
+
+            ps.close();
+            if (!ps.isClosed())
+                TestUtil.assertError("PreparedStatement(" + proxyClassMode + ") not closed");
+            st.close();
+            try {
+                st.execute("select 1");
+                TestUtil.assertError("Closed statement(" + proxyClassMode + ") can be executed");
+            } catch (SQLException e) {
+                //closed
+            }
+
+            con.setAutoCommit(false);
+            con.commit();
+            con.setAutoCommit(true);
+            con.close();
+            if (!con.isClosed())
+                TestUtil.assertError("Connection(" + proxyClassMode + ") not closed");
+            con = null;
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+            ds.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class ProxyObjectReuseTest extends TestCase {
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setPreparedStatementCacheSize(10);
+        config.setReuseProxyObject(true);
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        Connection con1 = null, con2 = null;
+        try {
+            con1 = ds.getConnection();
+            PreparedStatement ps1 = con1.prepareStatement("select 1 from dual");
+            ResultSet rs1 = ps1.executeQuery();
+            PreparedStatement ps2 = con1.prepareStatement("select 2 from dual");
+            ps2.close();
+            con1.close();
+
+            con2 = ds.getConnection();
+            if (con1 == con2)
+                TestUtil.assertError("Proxy connection is reused by next borrow");
+            if (!con1.isClosed())
+                TestUtil.assertError("Connection of previous borrow is not closed");
+            try {
+                con1.prepareStatement("select 1 from dual");
+                TestUtil.assertError("Connection of previous borrow is not closed");
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+            if (!ps1.isClosed())
+                TestUtil.assertError("Statement of previous borrow is not closed");
+            try {
+                ps1.executeQuery();
+                TestUtil.assertError("Statement of previous borrow is not closed");
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+            try {
+                rs1.next();
+                TestUtil.assertError("Result set of previous borrow is not closed");
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+
+            PreparedStatement ps3 = con2.prepareStatement("select 3 from dual");
+            if (ps3 == ps2)
+                TestUtil.assertError("Proxy statement is reused by next borrow");
+            if (!ps2.isClosed())
+                TestUtil.assertError("Statement of previous borrow is not closed");
+            ResultSet rs3 = ps3.executeQuery();
+            rs3.close();
+            ResultSet rs4 = ps3.executeQuery();
+            if (rs4 != rs3)
+                TestUtil.assertError("Proxy result set is not reused");
+            ps3.close();
+            PreparedStatement ps4 = con2.prepareStatement("select 4 from dual");
+            if (ps4 != ps3)
+                TestUtil.assertError("Proxy statement is not reused in same borrow");
+            if (!rs4.isClosed())
+                TestUtil.assertError("Result set of reused statement is not closed");
+            ps4.close();
+        } finally {
+            if (con2 != null && !con2.isClosed())
+                BeecpUtil.oclose(con2);
+        }
+    }
+}
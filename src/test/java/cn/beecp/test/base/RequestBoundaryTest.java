@@ -0,0 +1,104 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockConnection;
+import cn.beecp.test.mock.RequestBoundaryMockConnection;
+import cn.beecp.test.mock.RequestBoundaryMockDriver;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.util.Set;
+
+/**
+ * JDBC4.3 request boundary,which is called only when enabled,pool reset skipped only for
+ * drivers known to reset connection in endRequest
+ */
+public class RequestBoundaryTest extends TestCase {
+
+    public void testDisabledByDefault() throws Exception {
+        BeeDataSource ds = createDataSource(false);
+        try {
+            long count = RequestBoundaryMockConnection.getBoundaryCallCount();
+            ds.getConnection().close();
+            if (RequestBoundaryMockConnection.getBoundaryCallCount() != count)
+                TestUtil.assertError("Boundary call count expect value:%s,current value:%s", count, RequestBoundaryMockConnection.getBoundaryCallCount());
+        } finally {
+            ds.close();
+        }
+    }
+
+    public void testPoolReset() throws Exception {
+        BeeDataSource ds = createDataSource(true);
+        try {
+            long count = RequestBoundaryMockConnection.getBoundaryCallCount();
+            Connection con = ds.getConnection();
+            long sessionCount = MockConnection.getSessionCallCount();
+            con.setAutoCommit(false);
+            con.close();
+            if (RequestBoundaryMockConnection.getBoundaryCallCount() != count + 2)
+                TestUtil.assertError("Boundary call count expect value:%s,current value:%s", count + 2, RequestBoundaryMockConnection.getBoundaryCallCount());
+            if (MockConnection.getSessionCallCount() != sessionCount + 2)//reset by pool
+                TestUtil.assertError("Session call count expect value:%s,current value:%s", sessionCount + 2, MockConnection.getSessionCallCount());
+        } finally {
+            ds.close();
+        }
+    }
+
+    public void testDriverReset() throws Exception {
+        Set<String> driverResetClasses = getDriverResetClasses();
+        driverResetClasses.add(RequestBoundaryMockConnection.class.getName());
+        BeeDataSource ds = null;
+        try {
+            ds = createDataSource(true);
+            Connection con = ds.getConnection();
+            long sessionCount = MockConnection.getSessionCallCount();
+            con.setAutoCommit(false);
+            con.close();
+            if (MockConnection.getSessionCallCount() != sessionCount + 1)//reset by driver in endRequest
+                TestUtil.assertError("Session call count expect value:%s,current value:%s", sessionCount + 1, MockConnection.getSessionCallCount());
+
+            con = ds.getConnection();
+            if (!con.getAutoCommit())
+                TestUtil.assertError("AutoCommit expect value:%s,current value:%s", true, false);
+            con.close();
+        } finally {
+            driverResetClasses.remove(RequestBoundaryMockConnection.class.getName());
+            if (ds != null) ds.close();
+        }
+    }
+
+    private static BeeDataSource createDataSource(boolean enableRequestBoundary) {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(RequestBoundaryMockDriver.class.getName());
+        config.setJdbcUrl(RequestBoundaryMockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setEnableRequestBoundary(enableRequestBoundary);
+        return new BeeDataSource(config);
+    }
+
+    //known drivers resetting connection in endRequest
+    private static Set<String> getDriverResetClasses() throws Exception {
+        Field field = Class.forName("cn.beecp.pool.RequestBoundary").getDeclaredField("DriverResetConnectionClasses");
+        field.setAccessible(true);
+        return (Set<String>) field.get(null);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.ConnectionPoolJMXBean;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockConnection;
+import cn.beecp.test.mock.MockDriver;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * clearWarnings skipped on return when no driver call made,skipped calls counted as saved round trips
+ */
+public class ReturnRoundTripTest extends TestCase {
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setInitialSize(2);
+        config.setMaxActive(2);
+        config.setBorrowSemaphoreSize(2);
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void testClearWarningsSkipped() throws Exception {
+        ConnectionPoolJMXBean pool = (ConnectionPoolJMXBean) TestUtil.getPool(ds);
+        Connection con = ds.getConnection();
+        con.close();//driver called on first return to clear state of initialization
+
+        long clearCount = MockConnection.getClearWarningsCallCount();
+        long savedCount = pool.getSavedRoundTripCount();
+        con = ds.getConnection();
+        con.close();
+        if (MockConnection.getClearWarningsCallCount() != clearCount)
+            TestUtil.assertError("clearWarnings call count expect value:%s,current value:%s", clearCount, MockConnection.getClearWarningsCallCount());
+        if (pool.getSavedRoundTripCount() != savedCount + 1)
+            TestUtil.assertError("Saved round trip count expect value:%s,current value:%s", savedCount + 1, pool.getSavedRoundTripCount());
+
+        con = ds.getConnection();
+        Statement st = con.createStatement();
+        st.close();
+        con.close();
+        if (MockConnection.getClearWarningsCallCount() != clearCount + 1)
+            TestUtil.assertError("clearWarnings call count expect value:%s,current value:%s", clearCount + 1, MockConnection.getClearWarningsCallCount());
+
+        con = ds.getConnection();
+        con.setReadOnly(true);
+        con.close();
+        if (MockConnection.getClearWarningsCallCount() != clearCount + 2)
+            TestUtil.assertError("clearWarnings call count expect value:%s,current value:%s", clearCount + 2, MockConnection.getClearWarningsCallCount());
+        if (pool.getSavedRoundTripCount() != savedCount + 1)
+            TestUtil.assertError("Saved round trip count expect value:%s,current value:%s", savedCount + 1, pool.getSavedRoundTripCount());
+    }
+
+    public void testConcurrentCount() throws Exception {
+        final ConnectionPoolJMXBean pool = (ConnectionPoolJMXBean) TestUtil.getPool(ds);
+        for (int i = 0; i < 2; i++) {//state of initialization cleared on first return
+            Connection con = ds.getConnection();
+            con.setReadOnly(true);
+            con.close();
+        }
+
+        final int threadCount = 4, loopCount = 5000;
+        long clearCount = MockConnection.getClearWarningsCallCount();
+        long savedCount = pool.getSavedRoundTripCount();
+        Thread[] threads = new Thread[threadCount];
+        final Exception[] failures = new Exception[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < loopCount; j++)
+                            ds.getConnection().close();
+                    } catch (Exception e) {
+                        failures[index] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        while (threads[0].isAlive()) pool.getSavedRoundTripCount();//read by other thread during update
+        for (Thread thread : threads) thread.join();
+        for (Exception e : failures)
+            if (e != null) throw e;
+
+        long expectSaved = savedCount + threadCount * loopCount;
+        if (pool.getSavedRoundTripCount() != expectSaved)
+            TestUtil.assertError("Saved round trip count expect value:%s,current value:%s", expectSaved, pool.getSavedRoundTripCount());
+        if (MockConnection.getClearWarningsCallCount() != clearCount)
+            TestUtil.assertError("clearWarnings call count expect value:%s,current value:%s", clearCount, MockConnection.getClearWarningsCallCount());
+    }
+}
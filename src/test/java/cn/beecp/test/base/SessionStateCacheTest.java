@@ -0,0 +1,101 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockConnection;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+
+public class SessionStateCacheTest extends TestCase {
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setCacheSessionState(true);
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            long count = MockConnection.getSessionCallCount();
+            con.setAutoCommit(con.getAutoCommit());
+            con.getTransactionIsolation();
+            con.setTransactionIsolation(con.getTransactionIsolation());
+            checkCallCount(count + 1, "Known isolation");
+
+            count = MockConnection.getSessionCallCount();
+            con.setReadOnly(true);
+            if (!con.isReadOnly())//known after reading from driver
+                TestUtil.assertError("Readonly expect value:%s,current value:%s", true, false);
+            con.setReadOnly(true);
+            if (!con.isReadOnly())
+                TestUtil.assertError("Readonly expect value:%s,current value:%s", true, false);
+            checkCallCount(count + 2, "Unchanged readonly");
+
+            count = MockConnection.getSessionCallCount();
+            con.setCatalog("test");
+            con.getCatalog();
+            con.getCatalog();
+            con.setCatalog("test");
+            checkCallCount(count + 2, "Known catalog");
+            con.close();
+
+            con = ds.getConnection();
+            count = MockConnection.getSessionCallCount();
+            if (con.isReadOnly())//read from driver after reset
+                TestUtil.assertError("Readonly expect value:%s,current value:%s", false, true);
+            con.isReadOnly();
+            checkCallCount(count + 1, "Reset readonly");
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+        }
+    }
+
+    public void testDriverReportedState() throws Exception {
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            con.setTransactionIsolation(Connection.TRANSACTION_READ_UNCOMMITTED);
+            int level = con.getTransactionIsolation();
+            if (level != Connection.TRANSACTION_READ_COMMITTED)
+                TestUtil.assertError("Isolation reported by driver expect value:%s,current value:%s", Connection.TRANSACTION_READ_COMMITTED, level);
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+        }
+    }
+
+    private static void checkCallCount(long expect, String state) {
+        long count = MockConnection.getSessionCallCount();
+        if (count != expect)
+            TestUtil.assertError(state + ",driver call count expect value:%s,current value:%s", expect, count);
+    }
+}
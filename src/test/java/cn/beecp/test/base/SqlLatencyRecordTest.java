@@ -0,0 +1,116 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.ProxyClassMode;
+import cn.beecp.pool.FastConnectionPool;
+import cn.beecp.pool.SqlLatencyMonitorVo;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+public class SqlLatencyRecordTest extends TestCase {
+
+    public void test() throws InterruptedException, Exception {
+        testRecord(ProxyClassMode.MODE_AUTO);
+        testRecord(ProxyClassMode.MODE_RUNTIME);
+        testRecord(ProxyClassMode.MODE_DRIVER);
+    }
+
+    public void testColdSqlRemoved() throws Exception {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setRecordSqlLatency(true);
+        BeeDataSource ds = new BeeDataSource(config);
+
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            Statement st = con.createStatement();
+            for (int i = 0; i < 1000; i++)//dynamic SQL fill registry
+                st.execute("select " + i);
+            for (int i = 0; i < 5; i++)//new hot SQL after registry full
+                st.execute("sleep:20");
+            st.close();
+
+            SqlLatencyMonitorVo[] vos = ((FastConnectionPool) TestUtil.getPool(ds)).getSlowestStatements();
+            if (!"sleep:20".equals(vos[0].getSql()))
+                TestUtil.assertError("Slowest SQL expect value:%s,current value:%s", "sleep:20", vos[0].getSql());
+            if (vos[0].getCount() != 5)
+                TestUtil.assertError("Execution count expect value:%s,current value:%s", 5, vos[0].getCount());
+            SqlLatencyMonitorVo otherVo = null;
+            for (SqlLatencyMonitorVo vo : vos) {
+                if ("<other>".equals(vo.getSql())) otherVo = vo;
+            }
+            if (otherVo == null || otherVo.getCount() < 500)//values of removed SQL kept
+                TestUtil.assertError("Other SQL count expect value:%s,current value:%s", ">=500", otherVo != null ? otherVo.getCount() : 0);
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+            ds.close();
+        }
+    }
+
+    private void testRecord(String proxyClassMode) throws Exception {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setRecordSqlLatency(true);
+        config.setProxyClassMode(proxyClassMode);
+        BeeDataSource ds = new BeeDataSource(config);
+
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            for (int i = 0; i < 5; i++) {
+                PreparedStatement ps = con.prepareStatement("sleep:20");
+                ps.execute();
+                ps.close();
+            }
+            Statement st = con.createStatement();
+            for (int i = 0; i < 3; i++)
+                st.executeQuery("sleep:5");
+            st.close();
+
+            SqlLatencyMonitorVo[] vos = ((FastConnectionPool) TestUtil.getPool(ds)).getSlowestStatements();
+            if (vos.length != 2)
+                TestUtil.assertError("Recorded SQL size expect value:%s,current value:%s", 2, vos.length);
+            SqlLatencyMonitorVo slowest = vos[0];
+            if (!"sleep:20".equals(slowest.getSql()))
+                TestUtil.assertError("Slowest SQL expect value:%s,current value:%s", "sleep:20", slowest.getSql());
+            if (slowest.getCount() != 5)
+                TestUtil.assertError("Execution count expect value:%s,current value:%s", 5, slowest.getCount());
+            if (slowest.getP50Time() < 20000 || slowest.getP99Time() < slowest.getP50Time() || slowest.getMaxTime() < slowest.getP99Time())
+                TestUtil.assertError("Latency(" + proxyClassMode + ") p50:" + slowest.getP50Time() + ",p99:" + slowest.getP99Time() + ",max:" + slowest.getMaxTime());
+            if (vos[1].getCount() != 3)
+                TestUtil.assertError("Execution count expect value:%s,current value:%s", 3, vos[1].getCount());
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+            ds.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.ConnectionPoolMonitorVo;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+public class StatementCacheBudgetTest extends TestCase {
+
+    public void testBudget() throws Exception {
+        BeeDataSource ds = new BeeDataSource(createConfig(1500L, 0));
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            for (int i = 0; i < 5; i++)
+                prepare(con, "select * from budget where id=" + i);
+
+            ConnectionPoolMonitorVo vo = TestUtil.getPool(ds).getMonitorVo();
+            if (vo.getStatementCacheLimitBytes() != 1500L)
+                TestUtil.assertError("Statement cache limit bytes expect value:%s,current value:%s", 1500L, vo.getStatementCacheLimitBytes());
+            if (vo.getStatementCacheBytes() > vo.getStatementCacheLimitBytes())
+                TestUtil.assertError("Statement cache bytes(%s) over limit bytes(%s)", vo.getStatementCacheBytes(), vo.getStatementCacheLimitBytes());
+            if (vo.getStatementCacheEvictCount() != 3)
+                TestUtil.assertError("Statement cache evict count expect value:%s,current value:%s", 3, vo.getStatementCacheEvictCount());
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+            ds.close();
+        }
+    }
+
+    public void testHeapPressureShrink() throws Exception {
+        Map<String, Long> oldThresholds = getThresholds();
+        BeeDataSource ds = new BeeDataSource(createConfig(10000L, 1));
+        List<byte[]> garbage = new ArrayList<byte[]>();
+        try {
+            ds.getConnection().close();
+            //keep live heap over 1 percent after GC
+            long liveBytes = Runtime.getRuntime().maxMemory() / 50;
+            for (long size = 0; size < liveBytes; size += 1024 * 1024)
+                garbage.add(new byte[1024 * 1024]);
+
+            long deadline = System.nanoTime() + MILLISECONDS.toNanos(3000);
+            while (TestUtil.getPool(ds).getMonitorVo().getStatementCacheLimitBytes() != 5000L && System.nanoTime() < deadline) {
+                System.gc();
+                LockSupport.parkNanos(MILLISECONDS.toNanos(100));
+            }
+            if (TestUtil.getPool(ds).getMonitorVo().getStatementCacheLimitBytes() != 5000L)
+                TestUtil.assertError("Statement cache limit bytes not shrink under heap pressure");
+        } finally {
+            garbage.clear();
+            ds.close();
+        }
+
+        if (!oldThresholds.equals(getThresholds()))
+            TestUtil.assertError("Collection usage thresholds expect value:%s,current value:%s", oldThresholds, getThresholds());
+    }
+
+    private static Map<String, Long> getThresholds() {
+        Map<String, Long> thresholds = new HashMap<String, Long>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported())
+                thresholds.put(pool.getName(), pool.getCollectionUsageThreshold());
+        }
+        return thresholds;
+    }
+
+    private static BeeDataSourceConfig createConfig(long maxBytes, int heapThreshold) {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setPreparedStatementCacheSize(10);
+        config.setPreparedStatementCacheMaxBytes(maxBytes);
+        config.setPreparedStatementCacheHeapThreshold(heapThreshold);
+        return config;
+    }
+
+    private static void prepare(Connection con, String sql) throws Exception {
+        PreparedStatement ps = con.prepareStatement(sql);
+        ps.close();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.ConnectionPoolJMXBean;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+public class StatementCacheCheckOutTest extends TestCase {
+    private BeeDataSource ds;
+    private ConnectionPoolJMXBean pool;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setPreparedStatementCacheSize(4);
+        ds = new BeeDataSource(config);
+        pool = (ConnectionPoolJMXBean) TestUtil.getPool(ds);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void testExclusiveDelegate() throws Exception {
+        String sql = "select * from check_out";
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            PreparedStatement ps1 = con.prepareStatement(sql);
+            ps1.setMaxRows(5);
+            long hitCount = pool.getStatementCacheHitCount();
+            PreparedStatement ps2 = con.prepareStatement(sql);//delegate of ps1 in use
+            if (pool.getStatementCacheHitCount() != hitCount)
+                TestUtil.assertError("Statement in use found by other proxy");
+            ps2.setMaxRows(7);
+            ps2.close();
+            if (ps1.getMaxRows() != 5)
+                TestUtil.assertError("Max rows expect value:%s,current value:%s", 5, ps1.getMaxRows());
+            ps1.close();
+
+            PreparedStatement ps3 = con.prepareStatement(sql);
+            if (pool.getStatementCacheHitCount() != hitCount + 1)
+                TestUtil.assertError("Released statement not found in cache");
+            if (ps3.getMaxRows() != 0)
+                TestUtil.assertError("Max rows not reset,expect value:%s,current value:%s", 0, ps3.getMaxRows());
+            ps3.close();
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+        }
+    }
+
+    public void testResetSetters() throws Exception {
+        String sql = "select * from reset_setters";
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setLargeMaxRows(100L);
+            ps.setPoolable(false);
+            ps.setEscapeProcessing(false);
+            ps.close();
+
+            long hitCount = pool.getStatementCacheHitCount();
+            ps = con.prepareStatement(sql);
+            if (pool.getStatementCacheHitCount() != hitCount + 1)
+                TestUtil.assertError("Reset statement not found in cache");
+            if (ps.getMaxRows() != 0)
+                TestUtil.assertError("Large max rows not reset,expect value:%s,current value:%s", 0, ps.getMaxRows());
+            if (!ps.isPoolable())
+                TestUtil.assertError("Poolable not reset");
+            ps.setCursorName("cursor1");
+            ps.close();
+
+            long missCount = pool.getStatementCacheMissCount();
+            ps = con.prepareStatement(sql);//statement with cursor name removed from cache
+            if (pool.getStatementCacheMissCount() != missCount + 1)
+                TestUtil.assertError("Statement with cursor name not removed from cache");
+            ps.close();
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+        }
+    }
+
+    public void testUnclosedProxyOnReturn() throws Exception {
+        String sql = "select * from unclosed_proxy";
+        Connection con = ds.getConnection();
+        PreparedStatement ps = con.prepareStatement(sql);
+        ps.setMaxRows(9);
+        con.close();//statement proxy not closed
+
+        con = ds.getConnection();
+        try {
+            long missCount = pool.getStatementCacheMissCount();
+            ps = con.prepareStatement(sql);
+            if (pool.getStatementCacheMissCount() != missCount + 1)
+                TestUtil.assertError("Statement of unclosed proxy not removed on connection return");
+            if (ps.getMaxRows() != 0)
+                TestUtil.assertError("Max rows expect value:%s,current value:%s", 0, ps.getMaxRows());
+            ps.close();
+        } finally {
+            BeecpUtil.oclose(con);
+        }
+    }
+}
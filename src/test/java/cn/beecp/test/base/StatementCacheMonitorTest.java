@@ -0,0 +1,85 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.ConnectionPoolMonitorVo;
+import cn.beecp.pool.StatementMonitorVo;
+import cn.beecp.test.Config;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+public class StatementCacheMonitorTest extends TestCase {
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setPreparedStatementCacheSize(2);
+        config.setIdleCheckTimeInterval(1000L);//top statement lists refreshed by idle scan
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        String sql1 = "select * from " + Config.TEST_TABLE + " where 1=1";
+        String sql2 = "select * from " + Config.TEST_TABLE + " where 2=2";
+        String sql3 = "select * from " + Config.TEST_TABLE + " where 3=3";
+
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            prepare(con, sql1);//miss
+            prepare(con, sql1);//hit
+            prepare(con, sql1);//hit
+            prepare(con, sql2);//miss
+            prepare(con, sql3);//miss,evict sql1
+            prepare(con, sql1);//miss,evict sql2
+            Thread.sleep(2000L);//wait idle scan
+
+            ConnectionPoolMonitorVo vo = TestUtil.getPool(ds).getMonitorVo();
+            if (vo.getStatementCacheHitCount() != 2)
+                TestUtil.assertError("Statement cache hit count expect value:%s,current value:%s", 2, vo.getStatementCacheHitCount());
+            if (vo.getStatementCacheMissCount() != 4)
+                TestUtil.assertError("Statement cache miss count expect value:%s,current value:%s", 4, vo.getStatementCacheMissCount());
+            if (vo.getStatementCacheEvictCount() != 2)
+                TestUtil.assertError("Statement cache evict count expect value:%s,current value:%s", 2, vo.getStatementCacheEvictCount());
+
+            StatementMonitorVo[] mostPrepared = vo.getMostPreparedStatements();
+            if (mostPrepared.length != 3 || !sql1.equals(mostPrepared[0].getSql()) || mostPrepared[0].getPrepareCount() != 2)
+                TestUtil.assertError("Most prepared statement test failed");
+            if (vo.getMostEvictedStatements().length != 2)
+                TestUtil.assertError("Most evicted statement size expect value:%s,current value:%s", 2, vo.getMostEvictedStatements().length);
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+        }
+    }
+
+    private void prepare(Connection con, String sql) throws Exception {
+        PreparedStatement ps = con.prepareStatement(sql);
+        ps.close();
+    }
+}
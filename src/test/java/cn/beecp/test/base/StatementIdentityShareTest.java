@@ -0,0 +1,122 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.ConnectionPool;
+import cn.beecp.pool.ConnectionPoolJMXBean;
+import cn.beecp.pool.StatementMonitorVo;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+public class StatementIdentityShareTest extends TestCase {
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(2);
+        config.setBorrowSemaphoreSize(2);
+        config.setPreparedStatementCacheSize(4);
+        config.setIdleCheckTimeInterval(1000L);//top statement lists refreshed by idle scan
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+    }
+
+    public void testSharedIdentity() throws InterruptedException, Exception {
+        String sql = "select * from shared_identity";
+        ConnectionPool pool = TestUtil.getPool(ds);
+        Connection con1 = null, con2 = null;
+        try {
+            con1 = ds.getConnection();
+            con2 = ds.getConnection();
+            ConnectionPoolJMXBean jmxBean = (ConnectionPoolJMXBean) pool;
+            long hitCount = jmxBean.getStatementCacheHitCount();
+            long missCount = jmxBean.getStatementCacheMissCount();
+            prepare(con1, sql);//miss
+            prepare(con2, sql);//miss on other connection,same identity
+            prepare(con2, sql);//hit
+            Thread.sleep(2000L);//wait idle scan
+
+            StatementMonitorVo[] mostPrepared = pool.getMonitorVo().getMostPreparedStatements();
+            if (!sql.equals(mostPrepared[0].getSql()))
+                TestUtil.assertError("Shared statement not most prepared");
+            if (mostPrepared[0].getPrepareCount() != 2)
+                TestUtil.assertError("Shared statement prepare count expect value:%s,current value:%s", 2, mostPrepared[0].getPrepareCount());
+            if (pool.getMonitorVo().getStatementCacheHitCount() != hitCount + 1)
+                TestUtil.assertError("Statement cache hit count expect value:%s,current value:%s", hitCount + 1, pool.getMonitorVo().getStatementCacheHitCount());
+
+            if (jmxBean.getStatementCacheHitCount() != hitCount + 1 || jmxBean.getStatementCacheMissCount() != missCount + 2)
+                TestUtil.assertError("Statement cache counts of JMX bean not same to monitor vo");
+            StatementMonitorVo[] jmxMostPrepared = jmxBean.getMostPreparedStatements();
+            if (!sql.equals(jmxMostPrepared[0].getSql()))
+                TestUtil.assertError("Most prepared statements of JMX bean not same to monitor vo");
+
+            ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+            ObjectOutputStream objectOut = new ObjectOutputStream(byteOut);
+            objectOut.writeObject(jmxMostPrepared[0]);
+            objectOut.close();
+            ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(byteOut.toByteArray()));
+            StatementMonitorVo copy = (StatementMonitorVo) objectIn.readObject();
+            if (!sql.equals(copy.getSql()) || copy.getPrepareCount() != 2)
+                TestUtil.assertError("Statement monitor vo not serializable");
+        } finally {
+            if (con1 != null) BeecpUtil.oclose(con1);
+            if (con2 != null) BeecpUtil.oclose(con2);
+        }
+    }
+
+    public void testColdIdentityEviction() throws InterruptedException, Exception {
+        ConnectionPool pool = TestUtil.getPool(ds);
+        Connection con = null;
+        try {
+            con = ds.getConnection();
+            long missCount = pool.getMonitorVo().getStatementCacheMissCount();
+            for (int i = 0; i < 12000; i++)//more than max size of registry
+                prepare(con, "select * from cold_identity where id=" + i);
+
+            String sql = "select * from hot_identity";
+            prepare(con, sql);//miss
+            long hitCount = pool.getMonitorVo().getStatementCacheHitCount();
+            prepare(con, sql);//hit
+            if (pool.getMonitorVo().getStatementCacheHitCount() != hitCount + 1)
+                TestUtil.assertError("New statement not cached after registry full");
+            if (pool.getMonitorVo().getStatementCacheMissCount() != missCount + 12001)
+                TestUtil.assertError("Statement cache miss count expect value:%s,current value:%s", missCount + 12001, pool.getMonitorVo().getStatementCacheMissCount());
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+        }
+    }
+
+    private void prepare(Connection con, String sql) throws Exception {
+        PreparedStatement ps = con.prepareStatement(sql);
+        ps.close();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.ProxyClassMode;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.test.mock.MockPreparedStatement;
+import cn.beecp.util.BeecpUtil;
+
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+public class StatementQueryTimeoutTest extends TestCase {
+
+    public void test() throws InterruptedException, Exception {
+        testTimeout(ProxyClassMode.MODE_AUTO);
+        testTimeout(ProxyClassMode.MODE_RUNTIME);
+        testTimeout(ProxyClassMode.MODE_DRIVER);
+    }
+
+    private void testTimeout(String proxyClassMode) throws Exception {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setDefaultQueryTimeout(1);
+        config.setProxyClassMode(proxyClassMode);
+        BeeDataSource ds = new BeeDataSource(config);
+
+        Connection con = null;
+        Statement st = null;
+        try {
+            con = ds.getConnection();
+            st = con.createStatement();
+            long beginTime = System.currentTimeMillis();
+            try {
+                st.execute("sleep:5000");
+                TestUtil.assertError("Default query timeout test failed(" + proxyClassMode + ")");
+            } catch (SQLTimeoutException e) {
+                long tookTime = System.currentTimeMillis() - beginTime;
+                if (tookTime > 3000)
+                    TestUtil.assertError("Query cancel time expect value:%s,current value:%s", "<3000", tookTime);
+            }
+            if (!"SharedPoolCanceller".equals(MockPreparedStatement.getLastCancelThreadName()))//not in shared workers
+                TestUtil.assertError("Query cancel thread expect value:%s,current value:%s", "SharedPoolCanceller", MockPreparedStatement.getLastCancelThreadName());
+            st.executeQuery("sleep:10");//timer task of last execution not hit next one
+
+            //timer task reused by executions,which are not cancelled after their begin time passed timeout
+            long loopBeginTime = System.currentTimeMillis();
+            while (System.currentTimeMillis() - loopBeginTime < 2500L)
+                st.execute("sleep:50");
+            beginTime = System.currentTimeMillis();
+            try {
+                st.execute("sleep:5000");
+                TestUtil.assertError("Query timeout after reused timer test failed(" + proxyClassMode + ")");
+            } catch (SQLTimeoutException e) {
+                long tookTime = System.currentTimeMillis() - beginTime;
+                if (tookTime > 3000)
+                    TestUtil.assertError("Query cancel time expect value:%s,current value:%s", "<3000", tookTime);
+            }
+
+            long count = MockPreparedStatement.getQueryTimeoutCallCount();
+            st.setQueryTimeout(1);//same to default
+            if (st.getQueryTimeout() != 1)
+                TestUtil.assertError("Query timeout expect value:%s,current value:%s", 1, st.getQueryTimeout());
+            if (MockPreparedStatement.getQueryTimeoutCallCount() != count)
+                TestUtil.assertError("Unchanged query timeout call count expect value:%s,current value:%s", count, MockPreparedStatement.getQueryTimeoutCallCount());
+
+            st.setQueryTimeout(0);//statement setting takes precedence
+            st.execute("sleep:1500");
+        } finally {
+            if (st != null) BeecpUtil.oclose(st);
+            if (con != null) BeecpUtil.oclose(con);
+            ds.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.pool.ConnectionPoolJMXBean;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+public class StatementWarmUpTest extends TestCase {
+    private final String sql = "select * from warm_up";
+    private File hotFile;
+    private BeeDataSource ds;
+
+    public void setUp() throws Throwable {
+        hotFile = File.createTempFile("beecp", ".hot");
+        hotFile.delete();
+
+        //write hot statement file on close
+        BeeDataSource fileDs = new BeeDataSource(createConfig(0));
+        Connection con = null;
+        try {
+            con = fileDs.getConnection();
+            for (int i = 0; i < 3; i++)
+                prepare(con, sql);
+        } finally {
+            if (con != null) BeecpUtil.oclose(con);
+            fileDs.close();
+        }
+
+        BeeDataSourceConfig config = createConfig(1);
+        config.setPreparedStatementWarmUpSize(1);
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        ds.close();
+        hotFile.delete();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        ConnectionPoolJMXBean pool = (ConnectionPoolJMXBean) TestUtil.getPool(ds);
+        Connection con1 = null, con2 = null;
+        try {
+            con1 = ds.getConnection();//created in pool initialization
+            prepare(con1, sql);
+            if (pool.getStatementCacheHitCount() != 1)
+                TestUtil.assertError("Statement not pre-prepared on initial connection,hit count expect value:%s,current value:%s", 1, pool.getStatementCacheHitCount());
+
+            con2 = ds.getConnection();//created on demand
+            prepare(con2, sql);
+            if (pool.getStatementCacheHitCount() != 1)
+                TestUtil.assertError("Statement pre-prepared on connection created on demand");
+            if (pool.getStatementCacheMissCount() != 1)
+                TestUtil.assertError("Statement cache miss count expect value:%s,current value:%s", 1, pool.getStatementCacheMissCount());
+        } finally {
+            if (con1 != null) BeecpUtil.oclose(con1);
+            if (con2 != null) BeecpUtil.oclose(con2);
+        }
+    }
+
+    private BeeDataSourceConfig createConfig(int initialSize) {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setInitialSize(initialSize);
+        config.setMaxActive(2);
+        config.setBorrowSemaphoreSize(2);
+        config.setPreparedStatementCacheSize(4);
+        config.setPreparedStatementWarmUpFile(hotFile.getAbsolutePath());
+        return config;
+    }
+
+    private void prepare(Connection con, String sql) throws Exception {
+        PreparedStatement ps = con.prepareStatement(sql);
+        ps.close();
+    }
+}
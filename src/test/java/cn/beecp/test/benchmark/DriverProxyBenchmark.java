@@ -0,0 +1,107 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.benchmark;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.ProxyClassMode;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.test.mock.OtherMockDriver;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+/**
+ * Statement execution overhead of proxies with two drivers loaded in JVM,two pools(one per mock driver)
+ * are used alternately by their own code paths(like DAOs of two databases),so shared proxy classes see
+ * statements of both drivers.Run once per proxy class mode in a new JVM,for example:'runtime' and 'driver'
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class DriverProxyBenchmark {
+    private static final String SQL = "select * from BEECP_TEST where id=?";
+    private static final int EXECUTE_COUNT = 100;//statement executions in one borrow
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : ProxyClassMode.MODE_DRIVER;
+        int warmupCount = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int measureCount = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+
+        BeeDataSource ds1 = createDataSource(MockDriver.class.getName(), MockDriver.URL_PREFIX + "benchmark", mode);
+        BeeDataSource ds2 = createDataSource(OtherMockDriver.class.getName(), OtherMockDriver.URL_PREFIX + "benchmark", mode);
+        try {
+            run(ds1, ds2, warmupCount);
+            long beginTime = System.nanoTime();
+            run(ds1, ds2, measureCount);
+            long tookTime = System.nanoTime() - beginTime;
+            System.out.println("Proxy class mode(" + mode + ") with two drivers,borrows:" + measureCount
+                    + ",ns/borrow:" + (tookTime / measureCount)
+                    + ",ns/execute:" + (tookTime / measureCount / EXECUTE_COUNT));
+        } finally {
+            ds1.close();
+            ds2.close();
+        }
+    }
+
+    private static BeeDataSource createDataSource(String driverClassName, String url, String mode) {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(driverClassName);
+        config.setJdbcUrl(url);
+        config.setInitialSize(1);
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setPreparedStatementCacheSize(16);
+        config.setProxyClassMode(mode);
+        return new BeeDataSource(config);
+    }
+
+    private static void run(BeeDataSource ds1, BeeDataSource ds2, int count) throws Exception {
+        for (int i = 0; i < count; i += 2) {
+            executeOnFirst(ds1);
+            executeOnSecond(ds2);
+        }
+    }
+
+    private static void executeOnFirst(BeeDataSource ds) throws Exception {
+        Connection con = ds.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(SQL);
+            for (int j = 0; j < EXECUTE_COUNT; j++) {
+                ps.setInt(1, j);
+                ps.execute();
+            }
+            ps.close();
+        } finally {
+            con.close();
+        }
+    }
+
+    //same to 'executeOnFirst',call sites of second pool
+    private static void executeOnSecond(BeeDataSource ds) throws Exception {
+        Connection con = ds.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(SQL);
+            for (int j = 0; j < EXECUTE_COUNT; j++) {
+                ps.setInt(1, j);
+                ps.execute();
+            }
+            ps.close();
+        } finally {
+            con.close();
+        }
+    }
+}
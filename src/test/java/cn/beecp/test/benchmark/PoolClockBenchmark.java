@@ -0,0 +1,79 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.benchmark;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.test.mock.MockDriver;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+/**
+ * Per statement overhead of access time tracking,with system time(resolution zero) and with pool clock,
+ * run with mock driver once per resolution in a new JVM,for example:'0' and '10'
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class PoolClockBenchmark {
+    private static final String SQL = "select * from BEECP_TEST where id=?";
+    private static final int EXECUTE_COUNT = 100;//statement executions in one borrow
+
+    public static void main(String[] args) throws Exception {
+        long resolution = args.length > 0 ? Long.parseLong(args[0]) : 10L;
+        int warmupCount = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int measureCount = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "benchmark");
+        config.setInitialSize(1);
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setPreparedStatementCacheSize(16);
+        config.setPoolClockResolution(resolution);
+        BeeDataSource ds = new BeeDataSource(config);
+
+        try {
+            run(ds, warmupCount);
+            long beginTime = System.nanoTime();
+            run(ds, measureCount);
+            long tookTime = System.nanoTime() - beginTime;
+            System.out.println("Pool clock resolution(" + resolution + "ms),borrows:" + measureCount
+                    + ",ns/borrow:" + (tookTime / measureCount)
+                    + ",ns/execute:" + (tookTime / measureCount / EXECUTE_COUNT));
+        } finally {
+            ds.close();
+        }
+    }
+
+    private static void run(BeeDataSource ds, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            Connection con = ds.getConnection();
+            try {
+                PreparedStatement ps = con.prepareStatement(SQL);
+                for (int j = 0; j < EXECUTE_COUNT; j++) {
+                    ps.setInt(1, j);
+                    ps.execute();
+                }
+                ps.close();
+            } finally {
+                con.close();
+            }
+        }
+    }
+}
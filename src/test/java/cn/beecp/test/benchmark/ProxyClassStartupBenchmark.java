@@ -0,0 +1,108 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.benchmark;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.ProxyClassMode;
+import cn.beecp.test.mock.MockDriver;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Startup time of pool with pre-generated proxy classes and proxy classes generated at
+ * pool initialization,every sample runs in a new JVM(pool creation,first borrow,prepare,
+ * execute and read result set),so class loading and generation are included
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class ProxyClassStartupBenchmark {
+    private static final String CHILD_ARG = "child";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 1 && CHILD_ARG.equals(args[0])) {
+            System.out.println(startup(args[1]));
+            return;
+        }
+
+        int sampleCount = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        for (String mode : new String[]{ProxyClassMode.MODE_PREGENERATED, ProxyClassMode.MODE_RUNTIME}) {
+            long total = 0, min = Long.MAX_VALUE, max = 0;
+            for (int i = 0; i < sampleCount; i++) {
+                long time = runChild(mode);
+                total += time;
+                min = Math.min(min, time);
+                max = Math.max(max, time);
+            }
+            System.out.println("Proxy class mode(" + mode + "),samples:" + sampleCount
+                    + ",startup avg(us):" + (total / sampleCount / 1000)
+                    + ",min(us):" + (min / 1000)
+                    + ",max(us):" + (max / 1000));
+        }
+    }
+
+    //nanoseconds from pool creation to first statement result
+    private static long startup(String mode) throws Exception {
+        long beginTime = System.nanoTime();
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "benchmark");
+        config.setInitialSize(1);
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setProxyClassMode(mode);
+        BeeDataSource ds = new BeeDataSource(config);
+        try {
+            Connection con = ds.getConnection();
+            try {
+                PreparedStatement ps = con.prepareStatement("select 1");
+                ResultSet rs = ps.executeQuery();
+                rs.close();
+                ps.close();
+            } finally {
+                con.close();
+            }
+            return System.nanoTime() - beginTime;
+        } finally {
+            ds.close();
+        }
+    }
+
+    private static long runChild(String mode) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                ProxyClassStartupBenchmark.class.getName(), CHILD_ARG, mode);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+        try {
+            String line, lastLine = null;
+            while ((line = reader.readLine()) != null)
+                lastLine = line;
+            if (process.waitFor() != 0 || lastLine == null)
+                throw new IllegalStateException("Benchmark child process failed in mode:" + mode);
+            return Long.parseLong(lastLine.trim());
+        } finally {
+            reader.close();
+        }
+    }
+}
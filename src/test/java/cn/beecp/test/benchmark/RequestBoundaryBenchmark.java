@@ -0,0 +1,88 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.benchmark;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.test.mock.MockConnection;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.test.mock.RequestBoundaryMockConnection;
+import cn.beecp.test.mock.RequestBoundaryMockDriver;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+/**
+ * Driver calls and time of one borrow with a framework like transaction,with mock driver
+ * not supporting request boundary and with mock driver supporting it(JDBC4.3,JDK9+)
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class RequestBoundaryBenchmark {
+    private static final String SQL = "select * from BEECP_TEST where id=?";
+
+    public static void main(String[] args) throws Exception {
+        int warmupCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int measureCount = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        test(MockDriver.class.getName(), MockDriver.URL_PREFIX, warmupCount, measureCount);
+        test(RequestBoundaryMockDriver.class.getName(), RequestBoundaryMockDriver.URL_PREFIX, warmupCount, measureCount);
+    }
+
+    private static void test(String driverClassName, String url, int warmupCount, int measureCount) throws Exception {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(driverClassName);
+        config.setJdbcUrl(url + "benchmark");
+        config.setInitialSize(1);
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setPreparedStatementCacheSize(16);
+        config.setCacheSessionState(true);
+        config.setEnableRequestBoundary(true);
+        BeeDataSource ds = new BeeDataSource(config);
+
+        try {
+            run(ds, warmupCount);
+            long sessionCalls = MockConnection.getSessionCallCount();
+            long boundaryCalls = RequestBoundaryMockConnection.getBoundaryCallCount();
+            long beginTime = System.nanoTime();
+            run(ds, measureCount);
+            long tookTime = System.nanoTime() - beginTime;
+            System.out.println("Driver(" + driverClassName + "),borrows:" + measureCount
+                    + ",ns/borrow:" + (tookTime / measureCount)
+                    + ",session calls/borrow:" + (double) (MockConnection.getSessionCallCount() - sessionCalls) / measureCount
+                    + ",boundary calls/borrow:" + (double) (RequestBoundaryMockConnection.getBoundaryCallCount() - boundaryCalls) / measureCount);
+        } finally {
+            ds.close();
+        }
+    }
+
+    private static void run(BeeDataSource ds, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            Connection con = ds.getConnection();
+            try {
+                con.setAutoCommit(false);
+                PreparedStatement ps = con.prepareStatement(SQL);
+                ps.setInt(1, i);
+                ps.execute();
+                ps.close();
+                con.commit();
+            } finally {
+                con.close();
+            }
+        }
+    }
+}
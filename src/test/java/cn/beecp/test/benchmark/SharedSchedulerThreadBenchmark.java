@@ -0,0 +1,60 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.benchmark;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.test.mock.MockDriver;
+
+import java.sql.Connection;
+
+/**
+ * Live threads of JVM with many pools,timed tasks of all pools run in one shared scheduler
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class SharedSchedulerThreadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int poolSize = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int threadCount = Thread.activeCount();
+        BeeDataSource[] dsArray = new BeeDataSource[poolSize];
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                BeeDataSourceConfig config = new BeeDataSourceConfig();
+                config.setDriverClassName(MockDriver.class.getName());
+                config.setJdbcUrl(MockDriver.URL_PREFIX + "benchmark");
+                config.setInitialSize(1);
+                config.setMaxActive(2);
+                config.setPoolClockResolution(10L);
+                config.setIdleCheckTimeInitDelay(1000L);
+                config.setIdleCheckTimeInterval(1000L);
+                dsArray[i] = new BeeDataSource(config);
+                Connection con = dsArray[i].getConnection();
+                con.close();
+            }
+            Thread.sleep(3000L);//idle scans run
+            System.out.println("Pools:" + poolSize + ",threads before:" + threadCount + ",threads after:" + Thread.activeCount()
+                    + ",threads per pool:" + (double) (Thread.activeCount() - threadCount) / poolSize);
+        } finally {
+            for (BeeDataSource ds : dsArray)
+                if (ds != null) ds.close();
+        }
+        Thread.sleep(100L);
+        System.out.println("Threads after close:" + Thread.activeCount());
+    }
+}
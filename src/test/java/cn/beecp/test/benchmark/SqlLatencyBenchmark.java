@@ -0,0 +1,92 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.benchmark;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.test.mock.MockDriver;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Time of one statement execution with mock driver in threads,SQL latency not recorded
+ * and recorded,difference is cost of recording
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class SqlLatencyBenchmark {
+    private static final String SQL = "select * from BEECP_TEST where id=?";
+
+    public static void main(String[] args) throws Exception {
+        int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int executeCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+        for (int i = 0; i < 2; i++) {//second round measured after warm up
+            test(false, threadCount, executeCount);
+            test(true, threadCount, executeCount);
+        }
+    }
+
+    private static void test(boolean recordSqlLatency, int threadCount, final int executeCount) throws Exception {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "benchmark");
+        config.setInitialSize(threadCount);
+        config.setMaxActive(threadCount);
+        config.setBorrowSemaphoreSize(threadCount);
+        config.setPreparedStatementCacheSize(16);
+        config.setRecordSqlLatency(recordSqlLatency);
+        final BeeDataSource ds = new BeeDataSource(config);
+
+        try {
+            final CountDownLatch latch = new CountDownLatch(threadCount);
+            final Throwable[] failure = new Throwable[1];
+            long beginTime = System.nanoTime();
+            for (int i = 0; i < threadCount; i++) {
+                new Thread() {
+                    public void run() {
+                        try {
+                            Connection con = ds.getConnection();
+                            try {
+                                PreparedStatement ps = con.prepareStatement(SQL);
+                                for (int j = 0; j < executeCount; j++) {
+                                    ps.setInt(1, j);
+                                    ps.execute();
+                                }
+                                ps.close();
+                            } finally {
+                                con.close();
+                            }
+                        } catch (Throwable e) {
+                            failure[0] = e;
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                }.start();
+            }
+            latch.await();
+            long tookTime = System.nanoTime() - beginTime;
+            if (failure[0] != null) throw new Exception(failure[0]);
+            System.out.println("recordSqlLatency:" + recordSqlLatency + ",threads:" + threadCount
+                    + ",ns/execute:" + ((double) tookTime / ((long) threadCount * executeCount)));
+        } finally {
+            ds.close();
+        }
+    }
+}
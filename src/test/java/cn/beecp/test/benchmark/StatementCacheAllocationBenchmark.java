@@ -0,0 +1,84 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.benchmark;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.StatementCachePolicy;
+import cn.beecp.test.mock.MockDriver;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+/**
+ * Allocation rate of statement cache hit path(borrow->prepare->close),run with mock driver
+ * and measured by thread allocated bytes of HotSpot ThreadMXBean
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class StatementCacheAllocationBenchmark {
+    private static final String SQL = "select * from BEECP_TEST where id=?";
+
+    public static void main(String[] args) throws Exception {
+        int warmupCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int measureCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        String cachePolicy = args.length > 2 ? args[2] : StatementCachePolicy.POLICY_LRU;
+
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "benchmark");
+        config.setInitialSize(1);
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(1);
+        config.setPreparedStatementCacheSize(16);
+        config.setPreparedStatementCachePolicy(cachePolicy);
+        BeeDataSource ds = new BeeDataSource(config);
+
+        try {
+            com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+            run(ds, warmupCount);
+
+            long allocatedBytes = threadBean.getThreadAllocatedBytes(threadId);
+            long beginTime = System.nanoTime();
+            run(ds, measureCount);
+            long tookTime = System.nanoTime() - beginTime;
+            allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+
+            System.out.println("Statement cache(" + cachePolicy + ") hit path,iterations:" + measureCount
+                    + ",bytes/op:" + (allocatedBytes / measureCount)
+                    + ",ns/op:" + (tookTime / measureCount));
+        } finally {
+            ds.close();
+        }
+    }
+
+    private static void run(BeeDataSource ds, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            Connection con = ds.getConnection();
+            try {
+                PreparedStatement ps = con.prepareStatement(SQL);
+                ps.setInt(1, i);
+                ps.execute();
+                ps.close();
+            } finally {
+                con.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.mock;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mock connection,which keeps session state in memory and creates mock statements
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class MockConnection implements Connection {
+    private static final AtomicLong sessionCallCount = new AtomicLong();//count of session state calls,all connections
+    private static final AtomicLong clearWarningsCallCount = new AtomicLong();//all connections
+    private boolean closed;
+    protected boolean autoCommit = true;
+    protected int transactionIsolation = TRANSACTION_READ_COMMITTED;
+    private boolean readOnly;
+    protected String catalog;
+    private String schema;
+    protected int networkTimeout;
+
+    public static long getSessionCallCount() {
+        return sessionCallCount.get();
+    }
+
+    public static long getClearWarningsCallCount() {
+        return clearWarningsCallCount.get();
+    }
+
+    public void close() throws SQLException {
+        closed = true;
+    }
+
+    public boolean isClosed() throws SQLException {
+        return closed;
+    }
+
+    public boolean isValid(int timeout) throws SQLException {
+        return !closed;
+    }
+
+    public void abort(Executor executor) throws SQLException {
+        closed = true;
+    }
+
+    public boolean getAutoCommit() throws SQLException {
+        sessionCallCount.incrementAndGet();
+        return autoCommit;
+    }
+
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        sessionCallCount.incrementAndGet();
+        this.autoCommit = autoCommit;
+    }
+
+    public int getTransactionIsolation() throws SQLException {
+        sessionCallCount.incrementAndGet();
+        return transactionIsolation;
+    }
+
+    public void setTransactionIsolation(int level) throws SQLException {
+        sessionCallCount.incrementAndGet();
+        //upgraded like some databases,which not support dirty read
+        this.transactionIsolation = level == TRANSACTION_READ_UNCOMMITTED ? TRANSACTION_READ_COMMITTED : level;
+    }
+
+    public boolean isReadOnly() throws SQLException {
+        sessionCallCount.incrementAndGet();
+        return readOnly;
+    }
+
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        sessionCallCount.incrementAndGet();
+        this.readOnly = readOnly;
+    }
+
+    public String getCatalog() throws SQLException {
+        sessionCallCount.incrementAndGet();
+        return catalog;
+    }
+
+    public void setCatalog(String catalog) throws SQLException {
+        sessionCallCount.incrementAndGet();
+        this.catalog = catalog;
+    }
+
+    public String getSchema() throws SQLException {
+        sessionCallCount.incrementAndGet();
+        return schema;
+    }
+
+    public void setSchema(String schema) throws SQLException {
+        sessionCallCount.incrementAndGet();
+        this.schema = schema;
+    }
+
+    public int getNetworkTimeout() throws SQLException {
+        return networkTimeout;
+    }
+
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        this.networkTimeout = milliseconds;
+    }
+
+    public Statement createStatement() throws SQLException {
+        return new MockPreparedStatement(this, null);
+    }
+
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return new MockPreparedStatement(this, null);
+    }
+
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return new MockPreparedStatement(this, null);
+    }
+
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return new MockPreparedStatement(this, sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return new MockPreparedStatement(this, sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return new MockPreparedStatement(this, sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return new MockPreparedStatement(this, sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return new MockPreparedStatement(this, sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return new MockPreparedStatement(this, sql);
+    }
+
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Not support");
+    }
+
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Not support");
+    }
+
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Not support");
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return (T) this;
+    }
+
+    public void clearWarnings() throws SQLException {
+        clearWarningsCallCount.incrementAndGet();
+    }
+
+    public void commit() throws SQLException {
+    }
+
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        return null;
+    }
+
+    public Blob createBlob() throws SQLException {
+        return null;
+    }
+
+    public Clob createClob() throws SQLException {
+        return null;
+    }
+
+    public NClob createNClob() throws SQLException {
+        return null;
+    }
+
+    public SQLXML createSQLXML() throws SQLException {
+        return null;
+    }
+
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        return null;
+    }
+
+    public Properties getClientInfo() throws SQLException {
+        return null;
+    }
+
+    public String getClientInfo(String name) throws SQLException {
+        return null;
+    }
+
+    public int getHoldability() throws SQLException {
+        return 0;
+    }
+
+    public DatabaseMetaData getMetaData() throws SQLException {
+        return null;
+    }
+
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        return null;
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        return null;
+    }
+
+    public String nativeSQL(String sql) throws SQLException {
+        return null;
+    }
+
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+    }
+
+    public void rollback() throws SQLException {
+    }
+
+    public void rollback(Savepoint savepoint) throws SQLException {
+    }
+
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+    }
+
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+    }
+
+    public void setHoldability(int holdability) throws SQLException {
+    }
+
+    public Savepoint setSavepoint() throws SQLException {
+        return null;
+    }
+
+    public Savepoint setSavepoint(String name) throws SQLException {
+        return null;
+    }
+
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+    }
+}
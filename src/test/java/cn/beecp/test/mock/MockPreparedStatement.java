@@ -0,0 +1,442 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.mock;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.*;
+import java.util.Calendar;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mock statement,all execution return empty result,sql 'sleep:<millis>' waits the time or until cancelled,
+ * sql 'sleep:<millis>:<returnMillis>' returns after the second time when cancelled,like driver slow to abort
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class MockPreparedStatement implements PreparedStatement {
+    private static final String SLEEP_SQL_PREFIX = "sleep:";
+    private static final AtomicLong queryTimeoutCallCount = new AtomicLong();//count of 'setQueryTimeout' calls,all statements
+    private static volatile String lastCancelThreadName;//thread name of last 'cancel' call,all statements
+    private final String sql;
+    private final MockConnection connection;
+    private final MockResultSet resultSet = new MockResultSet(this);
+    private boolean closed;
+    private int maxRows;
+    private int fetchSize;
+    private int queryTimeout;
+    private int maxFieldSize;
+    private int fetchDirection = ResultSet.FETCH_FORWARD;
+    private boolean poolable = true;
+    private boolean cancelled;
+
+    public MockPreparedStatement(MockConnection connection, String sql) {
+        this.connection = connection;
+        this.sql = sql;
+    }
+
+    public static long getQueryTimeoutCallCount() {
+        return queryTimeoutCallCount.get();
+    }
+
+    public static String getLastCancelThreadName() {
+        return lastCancelThreadName;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    private synchronized void sleepIfRequired(String sql) throws SQLException {
+        if (sql == null || !sql.startsWith(SLEEP_SQL_PREFIX)) return;
+        cancelled = false;
+        String[] times = sql.substring(SLEEP_SQL_PREFIX.length()).split(":");
+        long deadline = System.currentTimeMillis() + Long.parseLong(times[0]);
+        try {
+            long waitTime;
+            while (!cancelled && (waitTime = deadline - System.currentTimeMillis()) > 0L)
+                wait(waitTime);
+            if (cancelled && times.length > 1) {
+                deadline = System.currentTimeMillis() + Long.parseLong(times[1]);
+                while ((waitTime = deadline - System.currentTimeMillis()) > 0L)
+                    wait(waitTime);
+            }
+        } catch (InterruptedException e) {
+            throw new SQLException("Interrupted");
+        }
+        if (cancelled) throw new SQLException("Statement cancelled");
+    }
+
+    public Connection getConnection() throws SQLException {
+        return connection;
+    }
+
+    public void close() throws SQLException {
+        closed = true;
+    }
+
+    public boolean isClosed() throws SQLException {
+        return closed;
+    }
+
+    public boolean execute() throws SQLException {
+        sleepIfRequired(sql);
+        return false;
+    }
+
+    public boolean execute(String sql) throws SQLException {
+        sleepIfRequired(sql);
+        return false;
+    }
+
+    public ResultSet executeQuery() throws SQLException {
+        sleepIfRequired(sql);
+        return resultSet;
+    }
+
+    public ResultSet executeQuery(String sql) throws SQLException {
+        sleepIfRequired(sql);
+        return resultSet;
+    }
+
+    public ResultSet getResultSet() throws SQLException {
+        return resultSet;
+    }
+
+    public int executeUpdate() throws SQLException {
+        return 1;
+    }
+
+    public int executeUpdate(String sql) throws SQLException {
+        return 1;
+    }
+
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return false;
+    }
+
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        return false;
+    }
+
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        return false;
+    }
+
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return 1;
+    }
+
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return 1;
+    }
+
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        return 1;
+    }
+
+    public int getMaxRows() throws SQLException {
+        return maxRows;
+    }
+
+    public void setMaxRows(int max) throws SQLException {
+        this.maxRows = max;
+    }
+
+    public long getLargeMaxRows() throws SQLException {
+        return maxRows;
+    }
+
+    public void setLargeMaxRows(long max) throws SQLException {
+        this.maxRows = (int) Math.min(max, Integer.MAX_VALUE);
+    }
+
+    public int getFetchSize() throws SQLException {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int rows) throws SQLException {
+        this.fetchSize = rows;
+    }
+
+    public int getQueryTimeout() throws SQLException {
+        return queryTimeout;
+    }
+
+    public void setQueryTimeout(int seconds) throws SQLException {
+        queryTimeoutCallCount.incrementAndGet();
+        this.queryTimeout = seconds;
+    }
+
+    public int getMaxFieldSize() throws SQLException {
+        return maxFieldSize;
+    }
+
+    public void setMaxFieldSize(int max) throws SQLException {
+        this.maxFieldSize = max;
+    }
+
+    public int getFetchDirection() throws SQLException {
+        return fetchDirection;
+    }
+
+    public void setFetchDirection(int direction) throws SQLException {
+        this.fetchDirection = direction;
+    }
+
+    public boolean isPoolable() throws SQLException {
+        return poolable;
+    }
+
+    public void setPoolable(boolean poolable) throws SQLException {
+        this.poolable = poolable;
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return (T) this;
+    }
+
+    public void addBatch() throws SQLException {
+    }
+
+    public void addBatch(String sql) throws SQLException {
+    }
+
+    public void cancel() throws SQLException {
+        lastCancelThreadName = Thread.currentThread().getName();
+        synchronized (this) {
+            cancelled = true;
+            notifyAll();
+        }
+    }
+
+    public void clearBatch() throws SQLException {
+    }
+
+    public void clearParameters() throws SQLException {
+    }
+
+    public void clearWarnings() throws SQLException {
+    }
+
+    public void closeOnCompletion() throws SQLException {
+    }
+
+    public int[] executeBatch() throws SQLException {
+        return null;
+    }
+
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return null;
+    }
+
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return null;
+    }
+
+    public boolean getMoreResults() throws SQLException {
+        return false;
+    }
+
+    public boolean getMoreResults(int parameterIndex) throws SQLException {
+        return false;
+    }
+
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        return null;
+    }
+
+    public int getResultSetConcurrency() throws SQLException {
+        return 0;
+    }
+
+    public int getResultSetHoldability() throws SQLException {
+        return 0;
+    }
+
+    public int getResultSetType() throws SQLException {
+        return 0;
+    }
+
+    public int getUpdateCount() throws SQLException {
+        return 0;
+    }
+
+    public SQLWarning getWarnings() throws SQLException {
+        return null;
+    }
+
+    public boolean isCloseOnCompletion() throws SQLException {
+        return false;
+    }
+
+    public void setArray(int parameterIndex, Array x) throws SQLException {
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+    }
+
+    public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+    }
+
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+    }
+
+    public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+    }
+
+    public void setBlob(int parameterIndex, InputStream x, long length) throws SQLException {
+    }
+
+    public void setBlob(int parameterIndex, InputStream x) throws SQLException {
+    }
+
+    public void setBlob(int parameterIndex, Blob x) throws SQLException {
+    }
+
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+    }
+
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+    }
+
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader x, int length) throws SQLException {
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader x, long length) throws SQLException {
+    }
+
+    public void setCharacterStream(int parameterIndex, Reader x) throws SQLException {
+    }
+
+    public void setClob(int parameterIndex, Reader x, long length) throws SQLException {
+    }
+
+    public void setClob(int parameterIndex, Reader x) throws SQLException {
+    }
+
+    public void setClob(int parameterIndex, Clob x) throws SQLException {
+    }
+
+    public void setCursorName(String parameterName) throws SQLException {
+    }
+
+    public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+    }
+
+    public void setDate(int parameterIndex, Date x) throws SQLException {
+    }
+
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+    }
+
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+    }
+
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+    }
+
+    public void setInt(int parameterIndex, int x) throws SQLException {
+    }
+
+    public void setLong(int parameterIndex, long x) throws SQLException {
+    }
+
+    public void setNCharacterStream(int parameterIndex, Reader x, long length) throws SQLException {
+    }
+
+    public void setNCharacterStream(int parameterIndex, Reader x) throws SQLException {
+    }
+
+    public void setNClob(int parameterIndex, Reader x, long length) throws SQLException {
+    }
+
+    public void setNClob(int parameterIndex, Reader x) throws SQLException {
+    }
+
+    public void setNClob(int parameterIndex, NClob x) throws SQLException {
+    }
+
+    public void setNString(int parameterIndex, String x) throws SQLException {
+    }
+
+    public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+    }
+
+    public void setNull(int parameterIndex, int x) throws SQLException {
+    }
+
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+    }
+
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+    }
+
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+    }
+
+    public void setRef(int parameterIndex, Ref x) throws SQLException {
+    }
+
+    public void setRowId(int parameterIndex, RowId x) throws SQLException {
+    }
+
+    public void setSQLXML(int parameterIndex, SQLXML x) throws SQLException {
+    }
+
+    public void setShort(int parameterIndex, short x) throws SQLException {
+    }
+
+    public void setString(int parameterIndex, String x) throws SQLException {
+    }
+
+    public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+    }
+
+    public void setTime(int parameterIndex, Time x) throws SQLException {
+    }
+
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+    }
+
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+    }
+
+    public void setURL(int parameterIndex, URL x) throws SQLException {
+    }
+
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+    }
+}
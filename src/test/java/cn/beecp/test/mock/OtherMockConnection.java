@@ -0,0 +1,52 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.mock;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Connection of second mock driver
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class OtherMockConnection extends MockConnection {
+
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return new OtherMockPreparedStatement(this, sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return new OtherMockPreparedStatement(this, sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return new OtherMockPreparedStatement(this, sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return new OtherMockPreparedStatement(this, sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return new OtherMockPreparedStatement(this, sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return new OtherMockPreparedStatement(this, sql);
+    }
+}
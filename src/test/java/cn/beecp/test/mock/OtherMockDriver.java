@@ -0,0 +1,48 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.mock;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Second mock driver with its own connection and statement classes,which accepts url
+ * with prefix 'jdbc:beecp-mock-other:',used by benchmarks to load two drivers in JVM.
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class OtherMockDriver extends MockDriver {
+    public static final String URL_PREFIX = "jdbc:beecp-mock-other:";
+
+    static {
+        try {
+            DriverManager.registerDriver(new OtherMockDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public Connection connect(String url, Properties info) throws SQLException {
+        return acceptsURL(url) ? new OtherMockConnection() : null;
+    }
+
+    public boolean acceptsURL(String url) throws SQLException {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+}
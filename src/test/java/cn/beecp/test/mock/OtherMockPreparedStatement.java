@@ -0,0 +1,40 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.mock;
+
+import java.sql.SQLException;
+
+/**
+ * Statement of second mock driver,which keeps its own parameter and execution methods
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class OtherMockPreparedStatement extends MockPreparedStatement {
+    private int lastParameter;
+
+    public OtherMockPreparedStatement(MockConnection connection, String sql) {
+        super(connection, sql);
+    }
+
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        lastParameter = x;
+    }
+
+    public boolean execute() throws SQLException {
+        return lastParameter < 0;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.mock;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection of request boundary mock driver,counts calls of beginRequest and endRequest,
+ * autoCommit,isolation,catalog and networkTimeout are restored in endRequest(like SQL Server)
+ *
+ * @author Chris.Liao
+ * @version 1.0
+ */
+public class RequestBoundaryMockConnection extends MockConnection {
+    private static final AtomicLong boundaryCallCount = new AtomicLong();
+    private boolean inRequest;
+    private boolean beginAutoCommit;
+    private int beginTransactionIsolation;
+    private String beginCatalog;
+    private int beginNetworkTimeout;
+
+    public static long getBoundaryCallCount() {
+        return boundaryCallCount.get();
+    }
+
+    public boolean isInRequest() {
+        return inRequest;
+    }
+
+    public void beginRequest() throws SQLException {
+        boundaryCallCount.incrementAndGet();
+        inRequest = true;
+        beginAutoCommit = autoCommit;
+        beginTransactionIsolation = transactionIsolation;
+        beginCatalog = catalog;
+        beginNetworkTimeout = networkTimeout;
+    }
+
+    public void endRequest() throws SQLException {
+        boundaryCallCount.incrementAndGet();
+        if (inRequest) {
+            autoCommit = beginAutoCommit;
+            transactionIsolation = beginTransactionIsolation;
+            catalog = beginCatalog;
+            networkTimeout = beginNetworkTimeout;
+        }
+        inRequest = false;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright Chris2018998
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cn.beecp.test.base;
+
+import cn.beecp.BeeDataSource;
+import cn.beecp.BeeDataSourceConfig;
+import cn.beecp.test.TestCase;
+import cn.beecp.test.TestUtil;
+import cn.beecp.test.mock.MockDriver;
+import cn.beecp.util.BeecpUtil;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.File;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JfrEventRecordTest extends TestCase {
+    private BeeDataSource ds;
+    private Recording recording;
+
+    public void setUp() throws Throwable {
+        BeeDataSourceConfig config = new BeeDataSourceConfig();
+        config.setDriverClassName(MockDriver.class.getName());
+        config.setJdbcUrl(MockDriver.URL_PREFIX + "test");
+        config.setPoolName("JfrPool");
+        config.setMaxActive(1);
+        config.setBorrowSemaphoreSize(2);
+        config.setEnableJfrEvent(true);
+
+        recording = new Recording();
+        recording.enable("cn.beecp.Borrow").withThreshold(Duration.ofMillis(50));
+        recording.enable("cn.beecp.Return").withThreshold(Duration.ZERO);
+        recording.enable("cn.beecp.Create");
+        recording.enable("cn.beecp.Close");
+        recording.start();
+        ds = new BeeDataSource(config);
+    }
+
+    public void tearDown() throws Throwable {
+        recording.close();
+    }
+
+    public void test() throws InterruptedException, Exception {
+        final Connection con = ds.getConnection();
+        try {
+            new Thread() {
+                public void run() {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                    }
+                    BeecpUtil.oclose(con);
+                }
+            }.start();
+
+            Connection con2 = ds.getConnection();//wait transfer,over borrow threshold
+            con2.close();
+        } finally {
+            if (!con.isClosed()) BeecpUtil.oclose(con);
+        }
+        ds.close();
+        recording.stop();
+
+        File file = File.createTempFile("beecp", ".jfr");
+        try {
+            recording.dump(file.toPath());
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+            Map<String, Integer> countMap = new HashMap<String, Integer>();
+            for (RecordedEvent event : events) {
+                String name = event.getEventType().getName();
+                if (!"JfrPool".equals(event.getString("poolName"))) continue;
+                Integer count = countMap.get(name);
+                countMap.put(name, count == null ? 1 : count + 1);
+
+                if ("cn.beecp.Borrow".equals(name) && event.getDuration("transferWaitTime").toMillis() < 50)
+                    TestUtil.assertError("Borrow event transfer wait time expect value:%s,current value:%s", ">=50ms", event.getDuration("transferWaitTime"));
+                if ("cn.beecp.Close".equals(name) && event.getString("reason") == null)
+                    TestUtil.assertError("Close event reason not set");
+            }
+
+            checkCount(countMap, "cn.beecp.Borrow", 1);//first borrow under threshold
+            checkCount(countMap, "cn.beecp.Return", 2);
+            checkCount(countMap, "cn.beecp.Create", 1);
+            checkCount(countMap, "cn.beecp.Close", 1);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void checkCount(Map<String, Integer> countMap, String name, int expect) {
+        Integer count = countMap.get(name);
+        if (count == null || count != expect)
+            TestUtil.assertError(name + " event count expect value:%s,current value:%s", expect, count);
+    }
+}